@@ -0,0 +1,118 @@
+package com.itmikes.capacitorintents;
+
+import android.content.ClipData;
+import android.content.ComponentName;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import java.util.ArrayList;
+import java.util.Random;
+
+/** Intent shapes seen in the field, built once per trial. */
+final class BenchmarkPayloads {
+
+    private BenchmarkPayloads() {}
+
+    static Intent create(String shape) {
+        switch (shape) {
+            case "flat":
+                return flat();
+            case "nested":
+                return nested();
+            case "primitiveArrays":
+                return primitiveArrays();
+            case "clipItems":
+                return clipItems();
+            default:
+                throw new IllegalArgumentException("Unknown payload shape: " + shape);
+        }
+    }
+
+    /** A barcode-scanner style broadcast: a dozen scalar extras. */
+    private static Intent flat() {
+        Bundle extras = new Bundle();
+        extras.put("com.symbol.datawedge.source", "scanner");
+        extras.put("com.symbol.datawedge.label_type", "LABEL-TYPE-CODE128");
+        extras.put("com.symbol.datawedge.data_string", "0123456789012");
+        extras.put("com.symbol.datawedge.decode_mode", "single_decode");
+        extras.put("scanTime", 1718000000000L);
+        extras.put("sequence", 4711);
+        extras.put("batteryLevel", 0.83d);
+        extras.put("trigger", Boolean.TRUE);
+        extras.put("profile", "Warehouse");
+        extras.put("deviceId", "ARMOR-X12-0042");
+        extras.put("rssi", (short) -61);
+        extras.put("temperature", 31.5f);
+        Intent intent = new Intent("com.symbol.datawedge.api.RESULT_ACTION");
+        intent.putExtras(extras);
+        intent.addCategory("android.intent.category.DEFAULT");
+        intent.setComponent(new ComponentName("com.symbol.datawedge", "com.symbol.datawedge.ScanService"));
+        intent.setPackage("com.example.app");
+        return intent;
+    }
+
+    /** A device-management status snapshot: Bundles nested five levels deep. */
+    private static Intent nested() {
+        Bundle root = new Bundle();
+        for (int section = 0; section < 6; section++) {
+            root.put("section" + section, nestedBundle(4, section));
+        }
+        ArrayList<String> radios = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            radios.add("radio-" + i);
+        }
+        root.put("radios", radios);
+        Intent intent = new Intent("com.vendor.mdm.STATUS");
+        intent.putExtras(root);
+        return intent;
+    }
+
+    private static Bundle nestedBundle(int depth, int seed) {
+        Bundle bundle = new Bundle();
+        bundle.put("id", seed);
+        bundle.put("name", "node-" + depth + "-" + seed);
+        bundle.put("updatedAt", 1718000000000L + seed);
+        bundle.put("healthy", seed % 2 == 0);
+        if (depth > 0) {
+            bundle.put("child", nestedBundle(depth - 1, seed + 1));
+            bundle.put("tags", new String[] { "a", "b", "c" });
+        }
+        return bundle;
+    }
+
+    /** A telemetry broadcast carrying sensor sample windows. */
+    private static Intent primitiveArrays() {
+        Random random = new Random(42);
+        byte[] raw = new byte[4096];
+        random.nextBytes(raw);
+        int[] samples = new int[2048];
+        long[] timestamps = new long[512];
+        double[] readings = new double[1024];
+        for (int i = 0; i < samples.length; i++) samples[i] = random.nextInt();
+        for (int i = 0; i < timestamps.length; i++) timestamps[i] = 1718000000000L + i * 20L;
+        for (int i = 0; i < readings.length; i++) readings[i] = random.nextDouble();
+        Bundle extras = new Bundle();
+        extras.put("raw", raw);
+        extras.put("samples", samples);
+        extras.put("timestamps", timestamps);
+        extras.put("readings", readings);
+        Intent intent = new Intent("com.vendor.telemetry.SAMPLES");
+        intent.putExtras(extras);
+        return intent;
+    }
+
+    /** A share intent with many content URIs, each needing a MIME lookup. */
+    private static Intent clipItems() {
+        ClipData clipData = new ClipData(new ClipData.Item(null, Uri.parse("content://media/external/images/media/0")));
+        for (int i = 1; i < 64; i++) {
+            clipData.addItem(new ClipData.Item("caption " + i, Uri.parse("content://media/external/images/media/" + i)));
+        }
+        Bundle extras = new Bundle();
+        extras.put("android.intent.extra.SUBJECT", "Photos");
+        Intent intent = new Intent("android.intent.action.SEND_MULTIPLE");
+        intent.setClipData(clipData);
+        intent.putExtras(extras);
+        intent.setType("image/*");
+        return intent;
+    }
+}
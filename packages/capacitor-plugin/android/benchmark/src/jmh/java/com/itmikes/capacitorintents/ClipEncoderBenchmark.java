@@ -0,0 +1,57 @@
+package com.itmikes.capacitorintents;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/** Key-up and segment clip finalisation: read the recorded file and Base64 it into the event extra. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ClipEncoderBenchmark {
+
+    // Matches the recorder's 128 kbps AAC output
+    private static final int BYTES_PER_SECOND = 128_000 / 8;
+
+    @Param({ "1", "30", "300" })
+    public int clipSeconds;
+
+    private File clip;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] audio = new byte[clipSeconds * BYTES_PER_SECOND];
+        new Random(42).nextBytes(audio);
+        clip = File.createTempFile("ptt_bench_", ".aac");
+        try (FileOutputStream out = new FileOutputStream(clip)) {
+            out.write(audio);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        clip.delete();
+    }
+
+    @Benchmark
+    public String readBase64() throws IOException {
+        return ClipEncoder.readBase64(clip);
+    }
+
+    /** The previous whole-file path, kept to compare allocation (gc.alloc.rate.norm) against the streaming one. */
+    @Benchmark
+    public String readAllThenEncode() throws IOException {
+        return ClipEncoder.encode(ClipEncoder.readAll(clip));
+    }
+}
@@ -0,0 +1,84 @@
+package com.itmikes.capacitorintents;
+
+import android.content.ContentResolver;
+import android.content.Intent;
+import android.os.Bundle;
+import android.webkit.MimeTypeMap;
+import com.getcapacitor.JSObject;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A periodic status broadcast with {@code keys} extras, two of which change per broadcast:
+ * serialized whole every time, as without {@code deltaMode}, versus diffed against the last
+ * snapshot with only the changed keys serialized. Both include the bridge's JSON encoding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DeltaDeliveryBenchmark {
+
+    private static final String ACTION = "com.example.mdm.STATUS";
+    private static final int SNAPSHOTS = 16;
+
+    @Param({ "10", "40", "160" })
+    public int keys;
+
+    private Intent[] snapshots;
+    private IntentSerializer serializer;
+    private DeltaTracker tracker;
+    private int next;
+    private long clock;
+
+    @Setup
+    public void setUp() {
+        serializer = new IntentSerializer(new ContentResolver(), MimeTypeMap.getSingleton());
+        tracker = new DeltaTracker(0);
+        snapshots = new Intent[SNAPSHOTS];
+        for (int i = 0; i < SNAPSHOTS; i++) {
+            Bundle extras = new Bundle();
+            for (int k = 0; k < keys; k++) {
+                extras.put("status.field" + k, k % 3 == 0 ? "value-" + k : (Object) Integer.valueOf(k * 31));
+            }
+            // Fresh values every broadcast, as after unparcelling; only these two differ
+            extras.put("status.field0", "value-" + i);
+            extras.put("status.field1", i);
+            Intent intent = new Intent(ACTION);
+            intent.putExtras(extras);
+            snapshots[i] = intent;
+        }
+        tracker.diff(ACTION, snapshots[SNAPSHOTS - 1].getExtras(), null, clock);
+    }
+
+    private Intent nextSnapshot() {
+        Intent intent = snapshots[next];
+        next = (next + 1) % SNAPSHOTS;
+        return intent;
+    }
+
+    @Benchmark
+    public String full() throws JSONException {
+        return serializer.serialize(nextSnapshot(), PayloadShape.FULL).toString();
+    }
+
+    @Benchmark
+    public String delta() throws JSONException {
+        Intent intent = nextSnapshot();
+        DeltaTracker.Delta delta = tracker.diff(ACTION, intent.getExtras(), null, ++clock);
+        if (delta == null) {
+            return null;  // Unchanged; nothing is sent
+        }
+        PayloadShape shape = delta.isFull() ? PayloadShape.FULL : PayloadShape.FULL.withExtras(delta.changed);
+        JSObject event = serializer.serialize(intent, shape);
+        event.put("deltaSync", delta.isFull() ? "full" : "delta");
+        return event.toString();
+    }
+}
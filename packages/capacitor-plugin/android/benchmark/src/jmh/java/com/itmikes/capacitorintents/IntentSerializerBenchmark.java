@@ -0,0 +1,62 @@
+package com.itmikes.capacitorintents;
+
+import android.content.ContentResolver;
+import android.content.Intent;
+import android.webkit.MimeTypeMap;
+import com.getcapacitor.JSObject;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Intent to JSObject conversion as done on every matching broadcast, compared with the reflective
+ * path it replaced. {@code toString} variants include the JSON encoding the bridge performs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class IntentSerializerBenchmark {
+
+    @Param({ "flat", "nested", "primitiveArrays", "clipItems" })
+    public String payload;
+
+    private Intent intent;
+    private ContentResolver contentResolver;
+    private MimeTypeMap mimeTypeMap;
+    private IntentSerializer serializer;
+
+    @Setup
+    public void setUp() {
+        intent = BenchmarkPayloads.create(payload);
+        contentResolver = new ContentResolver();
+        mimeTypeMap = MimeTypeMap.getSingleton();
+        serializer = new IntentSerializer(contentResolver, mimeTypeMap);
+    }
+
+    @Benchmark
+    public JSObject serialize() throws JSONException {
+        return serializer.serialize(intent);
+    }
+
+    @Benchmark
+    public String serializeToString() throws JSONException {
+        return serializer.serialize(intent).toString();
+    }
+
+    @Benchmark
+    public JSObject legacy() throws JSONException {
+        return LegacyIntentJson.serialize(intent, contentResolver, mimeTypeMap);
+    }
+
+    @Benchmark
+    public String legacyToString() throws JSONException {
+        return LegacyIntentJson.serialize(intent, contentResolver, mimeTypeMap).toString();
+    }
+}
@@ -0,0 +1,90 @@
+package com.itmikes.capacitorintents;
+
+import android.content.Intent;
+import android.os.Bundle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Native side of a burst of outgoing broadcasts: decoding the bridge message(s) and building the
+ * Intents. {@code perCall} is one {@code sendBroadcastIntent} message per intent with the JSON
+ * string extra; {@code batched} is one {@code sendBroadcastIntents} message with typed extras.
+ * The WebView-to-native hop and promise resolution per call come on top on a device and are not
+ * measured here, so the real gain of batching is larger than this shows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SendBroadcastBenchmark {
+
+    @Param({ "1", "10", "50" })
+    public int burst;
+
+    private List<String> perCallMessages;
+    private String batchMessage;
+
+    @Setup
+    public void setUp() throws JSONException {
+        perCallMessages = new ArrayList<>(burst);
+        JSONArray intents = new JSONArray();
+        for (int i = 0; i < burst; i++) {
+            JSONObject status = status(i);
+            perCallMessages.add(new JSONObject().put("action", "com.example.companion.STATUS").put("value", status).toString());
+            intents.put(new JSONObject()
+                .put("action", "com.example.companion.STATUS")
+                .put("package", "com.example.companion")
+                .put("extras", status));
+        }
+        batchMessage = new JSONObject().put("intents", intents).toString();
+    }
+
+    /** A config/status push: scalars, a nested object and a number array. */
+    private static JSONObject status(int i) throws JSONException {
+        return new JSONObject()
+            .put("sequence", i)
+            .put("timestamp", 1718000000000L + i)
+            .put("batteryLevel", 0.83)
+            .put("charging", false)
+            .put("profile", "Warehouse")
+            .put("deviceId", "ARMOR-X12-0042")
+            .put("channels", new JSONArray().put(1).put(4).put(7))
+            .put("location", new JSONObject().put("lat", 38.7223).put("lon", -9.1393).put("accuracy", 12));
+    }
+
+    @Benchmark
+    public int perCall() throws JSONException {
+        int built = 0;
+        for (String message : perCallMessages) {
+            JSONObject call = new JSONObject(message);
+            Intent intent = new Intent(call.getString("action"));
+            Bundle extras = new Bundle();
+            extras.putString("value", call.getJSONObject("value").toString());
+            intent.putExtras(extras);
+            built++;
+        }
+        return built;
+    }
+
+    @Benchmark
+    public int batched() throws JSONException {
+        JSONArray intents = new JSONObject(batchMessage).getJSONArray("intents");
+        int built = 0;
+        for (int i = 0; i < intents.length(); i++) {
+            IntentFactory.fromJson(intents.getJSONObject(i));
+            built++;
+        }
+        return built;
+    }
+}
@@ -0,0 +1,54 @@
+package android.content;
+
+import android.net.Uri;
+import java.util.ArrayList;
+import java.util.List;
+
+/** JVM stand-in for {@code android.content.ClipData}. */
+public class ClipData {
+
+    public static class Item {
+
+        private final CharSequence text;
+        private final Uri uri;
+
+        public Item(CharSequence text, Uri uri) {
+            this.text = text;
+            this.uri = uri;
+        }
+
+        public String getHtmlText() {
+            return null;
+        }
+
+        public Intent getIntent() {
+            return null;
+        }
+
+        public CharSequence getText() {
+            return text;
+        }
+
+        public Uri getUri() {
+            return uri;
+        }
+    }
+
+    private final List<Item> items = new ArrayList<>();
+
+    public ClipData(Item item) {
+        items.add(item);
+    }
+
+    public void addItem(Item item) {
+        items.add(item);
+    }
+
+    public int getItemCount() {
+        return items.size();
+    }
+
+    public Item getItemAt(int index) {
+        return items.get(index);
+    }
+}
@@ -0,0 +1,31 @@
+package android.content;
+
+/** JVM stand-in for {@code android.content.ComponentName}. */
+public class ComponentName {
+
+    private final String packageName;
+    private final String className;
+
+    public ComponentName(String packageName, String className) {
+        this.packageName = packageName;
+        this.className = className;
+    }
+
+    public static ComponentName unflattenFromString(String name) {
+        int sep = name.indexOf('/');
+        if (sep < 0 || sep + 1 >= name.length()) {
+            return null;
+        }
+        String pkg = name.substring(0, sep);
+        String cls = name.substring(sep + 1);
+        if (cls.charAt(0) == '.') {
+            cls = pkg + cls;
+        }
+        return new ComponentName(pkg, cls);
+    }
+
+    @Override
+    public String toString() {
+        return "ComponentInfo{" + packageName + "/" + className + "}";
+    }
+}
@@ -0,0 +1,120 @@
+package android.content;
+
+import android.net.Uri;
+import android.os.Bundle;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/** JVM stand-in for the parts of {@code android.content.Intent} the serializer and intent factory use. */
+public class Intent {
+
+    private final String action;
+    private Bundle extras;
+    private ClipData clipData;
+    private Set<String> categories;
+    private int flags;
+    private ComponentName component;
+    private Uri data;
+    private String packageName;
+    private String type;
+
+    public Intent(String action) {
+        this.action = action;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public Bundle getExtras() {
+        return extras;
+    }
+
+    public Intent putExtras(Bundle bundle) {
+        if (extras == null) {
+            extras = new Bundle();
+        }
+        extras.putAll(bundle);
+        return this;
+    }
+
+    public String getStringExtra(String name) {
+        return extras != null ? extras.getString(name) : null;
+    }
+
+    public ClipData getClipData() {
+        return clipData;
+    }
+
+    public void setClipData(ClipData clipData) {
+        this.clipData = clipData;
+    }
+
+    public Set<String> getCategories() {
+        return categories;
+    }
+
+    public Intent addCategory(String category) {
+        if (categories == null) {
+            categories = new LinkedHashSet<>();
+        }
+        categories.add(category);
+        return this;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public Intent setFlags(int flags) {
+        this.flags = flags;
+        return this;
+    }
+
+    public Intent addFlags(int flags) {
+        this.flags |= flags;
+        return this;
+    }
+
+    public ComponentName getComponent() {
+        return component;
+    }
+
+    public Intent setComponent(ComponentName component) {
+        this.component = component;
+        return this;
+    }
+
+    public Uri getData() {
+        return data;
+    }
+
+    public Intent setData(Uri data) {
+        this.data = data;
+        return this;
+    }
+
+    public Intent setDataAndType(Uri data, String type) {
+        this.data = data;
+        this.type = type;
+        return this;
+    }
+
+    public String getPackage() {
+        return packageName;
+    }
+
+    public Intent setPackage(String packageName) {
+        this.packageName = packageName;
+        return this;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Intent setType(String type) {
+        this.type = type;
+        return this;
+    }
+}
@@ -0,0 +1,20 @@
+package android.net;
+
+/** JVM stand-in for {@code android.net.Uri}. */
+public final class Uri {
+
+    private final String value;
+
+    private Uri(String value) {
+        this.value = value;
+    }
+
+    public static Uri parse(String value) {
+        return new Uri(value);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -0,0 +1,88 @@
+package android.os;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/** JVM stand-in for the parts of {@code android.os.Bundle} the serializer and intent factory use. */
+public class Bundle {
+
+    private final Map<String, Object> values = new LinkedHashMap<>();
+
+    public Set<String> keySet() {
+        return values.keySet();
+    }
+
+    public boolean containsKey(String key) {
+        return values.containsKey(key);
+    }
+
+    public Object get(String key) {
+        return values.get(key);
+    }
+
+    public String getString(String key) {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    public void put(String key, Object value) {
+        values.put(key, value);
+    }
+
+    public void putString(String key, String value) {
+        values.put(key, value);
+    }
+
+    public void putInt(String key, int value) {
+        values.put(key, value);
+    }
+
+    public void putLong(String key, long value) {
+        values.put(key, value);
+    }
+
+    public void putFloat(String key, float value) {
+        values.put(key, value);
+    }
+
+    public void putDouble(String key, double value) {
+        values.put(key, value);
+    }
+
+    public void putBoolean(String key, boolean value) {
+        values.put(key, value);
+    }
+
+    public void putBundle(String key, Bundle value) {
+        values.put(key, value);
+    }
+
+    public void putStringArray(String key, String[] value) {
+        values.put(key, value);
+    }
+
+    public void putIntArray(String key, int[] value) {
+        values.put(key, value);
+    }
+
+    public void putLongArray(String key, long[] value) {
+        values.put(key, value);
+    }
+
+    public void putFloatArray(String key, float[] value) {
+        values.put(key, value);
+    }
+
+    public void putDoubleArray(String key, double[] value) {
+        values.put(key, value);
+    }
+
+    public void putBooleanArray(String key, boolean[] value) {
+        values.put(key, value);
+    }
+
+    public void putAll(Bundle other) {
+        values.putAll(other.values);
+    }
+}
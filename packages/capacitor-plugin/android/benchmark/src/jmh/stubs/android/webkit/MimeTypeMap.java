@@ -0,0 +1,19 @@
+package android.webkit;
+
+/** JVM stand-in for {@code android.webkit.MimeTypeMap}. */
+public class MimeTypeMap {
+
+    private static final MimeTypeMap INSTANCE = new MimeTypeMap();
+
+    public static MimeTypeMap getSingleton() {
+        return INSTANCE;
+    }
+
+    public String getExtensionFromMimeType(String mimeType) {
+        if (mimeType == null) {
+            return null;
+        }
+        int slash = mimeType.indexOf('/');
+        return slash >= 0 ? mimeType.substring(slash + 1) : null;
+    }
+}
@@ -0,0 +1,6 @@
+package com.getcapacitor;
+
+import org.json.JSONArray;
+
+/** JVM stand-in for Capacitor's {@code JSArray}. */
+public class JSArray extends JSONArray {}
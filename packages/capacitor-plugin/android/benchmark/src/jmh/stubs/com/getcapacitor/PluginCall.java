@@ -0,0 +1,17 @@
+package com.getcapacitor;
+
+/** JVM stand-in for Capacitor's {@code PluginCall}; benchmarks never read call options. */
+public class PluginCall {
+
+    public JSArray getArray(String name) {
+        return null;
+    }
+
+    public Boolean getBoolean(String name) {
+        return null;
+    }
+
+    public Integer getInt(String name) {
+        return null;
+    }
+}
@@ -0,0 +1,64 @@
+package com.itmikes.capacitorintents;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import java.util.List;
+
+/**
+ * One {@code registerBroadcastReceiver} call: the actions it listens for and how matching
+ * intents are handed back to its kept-alive {@link PluginCall}.
+ */
+class BroadcastSubscription {
+
+    final String id;
+    final PluginCall call;
+    final List<String> actions;
+    final PayloadShape shape;
+    /** Null when every intent with a matching action is wanted. */
+    final IntentPredicate predicate;
+    final SubscriptionQueue<ReceiverRegistry.Envelope> queue;
+    final EventBatcher batcher;
+    /** Null unless {@code deltaMode} is on. */
+    final DeltaTracker delta;
+
+    // Receiver thread only
+    Runnable drainTask;
+    boolean drainPosted;
+    volatile boolean closed;
+
+    BroadcastSubscription(
+        PluginCall call,
+        List<String> actions,
+        PayloadShape shape,
+        IntentPredicate predicate,
+        SubscriptionQueue<ReceiverRegistry.Envelope> queue,
+        EventBatcher batcher,
+        DeltaTracker delta
+    ) {
+        this.id = call.getCallbackId();
+        this.call = call;
+        this.actions = actions;
+        this.shape = shape;
+        this.predicate = predicate;
+        this.queue = queue;
+        this.batcher = batcher;
+        this.delta = delta;
+    }
+
+    /** Called on the receiver thread as the queue drains, with an intent serialized once per distinct {@link PayloadShape}. */
+    void deliver(JSObject event) {
+        if (batcher != null) {
+            batcher.add(event);
+        } else {
+            call.resolve(event);
+        }
+    }
+
+    /** Flushes anything still buffered; the call must not be used afterwards. */
+    void close() {
+        closed = true;
+        if (batcher != null) {
+            batcher.flush();
+        }
+    }
+}
@@ -1,27 +1,24 @@
 package com.itmikes.capacitorintents;
 
 import android.content.BroadcastReceiver;
-import android.content.ClipData;
-import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.util.Log;
 import android.webkit.MimeTypeMap;
+import com.getcapacitor.Bridge;
 import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
-import java.lang.reflect.Array;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-import org.json.JSONArray;
+import java.util.List;
 import org.json.JSONException;
 import org.json.JSONObject;
 import android.app.ActivityManager;
@@ -31,26 +28,139 @@ import android.os.PowerManager;
 @CapacitorPlugin(name = "CapacitorIntentsPlugin")
 public class CapacitorIntents extends Plugin {
 
-    private static final String LOG_TAG = "Capacitor Intents";
-    private Map<String, PluginCall> watchingCalls = new HashMap<>();
-    private Map<String, BroadcastReceiver> receiverMap = new HashMap<>();
+    private ReceiverRegistry receiverRegistry;
+    private HandlerThread receiverThread;
+    private Handler receiverHandler;
+    private BroadcastReceiver pttChunkReceiver;
+    private PttEventBus.Listener pttEventListener;
+    private EventOutbox outbox;
+    private IntentSerializer intentSerializer;
+
+    @Override
+    public void load() {
+        intentSerializer = new IntentSerializer(getContext().getContentResolver(), MimeTypeMap.getSingleton());
+        // Broadcasts are serialized and batched here rather than on the UI thread
+        receiverThread = new HandlerThread("CapacitorIntents-receiver");
+        receiverThread.start();
+        receiverHandler = new Handler(receiverThread.getLooper());
+        receiverRegistry = new ReceiverRegistry(getContext(), receiverHandler, intentSerializer, this::addClipUrl);
+
+        // PTT service events arrive in-process; hop to the receiver thread so they are ordered with
+        // subscription changes exactly like broadcasts
+        outbox = EventOutbox.get(getContext());
+        pttEventListener = event -> receiverHandler.post(() -> {
+            if (event.isChunk()) {
+                notifyChunk(event.extras);
+            } else if (event.isUploadStatus()) {
+                notifyUploadStatus(event.extras);
+            } else if (!receiverRegistry.dispatch(event) && outbox.isEnabled()) {
+                // No registerBroadcastReceiver call for this action yet; keep it for replayOutbox
+                try {
+                    outbox.append(intentSerializer.serialize(event, PayloadShape.FULL));
+                } catch (JSONException e) {
+                    Diagnostics.record(Diagnostics.Event.SERIALIZE_FAILED);
+                }
+            }
+        });
+        PttEventBus.subscribe(pttEventListener);
+
+        // With eventTransport 'broadcast', chunks are only ever sent to our own package
+        pttChunkReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (intent.getExtras() != null) {
+                    notifyChunk(intent.getExtras());
+                }
+            }
+        };
+        IntentFilter chunkFilter = new IntentFilter(PttForegroundService.CUSTOM_ACTION_CHUNK);
+        this.getContext().registerReceiver(pttChunkReceiver, chunkFilter, null, receiverHandler, Context.RECEIVER_NOT_EXPORTED);
+    }
+
+    private void notifyChunk(Bundle extras) {
+        JSObject chunk = new JSObject();
+        chunk.put("streamId", extras.getLong("streamId"));
+        chunk.put("sequence", extras.getInt("sequence"));
+        chunk.put("timestamp", extras.getLong("timestamp"));
+        chunk.put("last", extras.getBoolean("last"));
+        chunk.put("mimeType", extras.getString("mimeType"));
+        chunk.put("data", extras.getString("chunkBase64"));
+        notifyListeners("pttAudioChunk", chunk);
+    }
+
+    private void notifyUploadStatus(Bundle extras) {
+        JSObject status = new JSObject();
+        for (String key : extras.keySet()) {
+            status.put(key, extras.get(key));
+        }
+        notifyListeners("pttUploadStatus", status);
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        PttEventBus.unsubscribe(pttEventListener);
+        if (pttChunkReceiver != null) {
+            this.getContext().unregisterReceiver(pttChunkReceiver);
+            pttChunkReceiver = null;
+        }
+        receiverRegistry.clear();
+        receiverThread.quitSafely();
+    }
 
     @PluginMethod(returnType = PluginMethod.RETURN_CALLBACK)
     public void registerBroadcastReceiver(PluginCall call) throws JSONException {
+        JSArray jsArr = call.getArray("filters");
+        if (jsArr == null || jsArr.length() < 1) {
+            call.reject("Filters are required: at least 1 entry");
+            return;
+        }
+        IntentPredicate predicate;
+        try {
+            predicate = IntentPredicate.fromJson(call.getArray("match"));
+        } catch (JSONException e) {
+            call.reject("Invalid match: " + e.getMessage());
+            return;
+        }
+        String overflowName = call.getString("overflow", SubscriptionQueue.Overflow.DROP_OLDEST.jsName);
+        SubscriptionQueue.Overflow overflow = SubscriptionQueue.Overflow.fromJs(overflowName);
+        if (overflow == null) {
+            call.reject("Unknown overflow policy: " + overflowName);
+            return;
+        }
+        SubscriptionQueue<ReceiverRegistry.Envelope> queue = new SubscriptionQueue<>(
+            call.getInt("queueMax", SubscriptionQueue.DEFAULT_CAPACITY),
+            overflow,
+            call.getString("conflateKey")
+        );
         call.setKeepAlive(true);
-        requestBroadcastUpdates(call);
-        watchingCalls.put(call.getCallbackId(), call);
+        List<String> actions = new ArrayList<>();
+        for (int i = 0; i < jsArr.length(); i++) {
+            actions.add(jsArr.getString(i));
+        }
+        EventBatcher batcher = EventBatcher.fromOptions(
+            call.getInt("batchMaxEvents"),
+            call.getInt("batchMaxDelayMs"),
+            receiverHandler,
+            events -> {
+                JSObject batch = new JSObject();
+                batch.put("events", events);
+                call.resolve(batch);
+            }
+        );
+        DeltaTracker delta = Boolean.TRUE.equals(call.getBoolean("deltaMode")) ? new DeltaTracker(call.getInt("deltaFullSyncMs", 0)) : null;
+        receiverRegistry.add(new BroadcastSubscription(call, actions, PayloadShape.fromCall(call), predicate, queue, batcher, delta));
     }
 
     @PluginMethod
     public void unregisterBroadcastReceiver(PluginCall call) {
         String callbackId = call.getString("id");
-        if (callbackId != null) {
-            PluginCall removed = watchingCalls.remove(callbackId);
-            if (removed != null) {
-                removeReceiver(callbackId);
-                removed.release(bridge);
-            }
+        final BroadcastSubscription removed = callbackId != null ? receiverRegistry.remove(callbackId) : null;
+        if (removed != null) {
+            // Queued behind any intent already dispatched to the receiver thread
+            receiverHandler.post(() -> {
+                receiverRegistry.close(removed);  // Deliver whatever is still queued or batched before the call goes away
+                removed.call.release(bridge);
+            });
         }
         call.resolve();
     }
@@ -65,155 +175,47 @@ public class CapacitorIntents extends Plugin {
         call.resolve();
     }
 
-    private void requestBroadcastUpdates(final PluginCall call) throws JSONException {
-        final String callBackID = call.getCallbackId();
-        IntentFilter ifilt = new IntentFilter();
-        JSArray jsArr = call.getArray("filters");
-        if (jsArr.length() >= 1) {
-            for (int i = 0; i < jsArr.length(); i++) {
-                ifilt.addAction(jsArr.getString(i));
+    /**
+     * Sends many intents for one bridge call. All are built before any is sent, so a malformed
+     * entry rejects the call without a partial burst going out.
+     */
+    @PluginMethod
+    public void sendBroadcastIntents(PluginCall call) {
+        JSArray specs = call.getArray("intents");
+        if (specs == null) {
+            call.reject("intents is required");
+            return;
+        }
+        List<Intent> intents = new ArrayList<>(specs.length());
+        for (int i = 0; i < specs.length(); i++) {
+            try {
+                intents.add(IntentFactory.fromJson(specs.getJSONObject(i)));
+            } catch (JSONException e) {
+                call.reject("Invalid intent at index " + i + ": " + e.getMessage());
+                return;
             }
-            receiverMap.put(
-                callBackID,
-                new BroadcastReceiver() {
-                    @Override
-                    public void onReceive(Context context, Intent intent) {
-                        PluginCall refCall = watchingCalls.get(callBackID);
-                        if (refCall != null) {
-                            JSObject jsO = null;
-                            try {
-                                jsO = JSObject.fromJSONObject(getIntentJson(intent));
-                                refCall.resolve(jsO);
-                            } catch (JSONException e) {
-                                e.printStackTrace();
-                            }
-                        }
-                    }
-                }
-            );
-
-            this.getContext().registerReceiver(receiverMap.get(callBackID), ifilt, Context.RECEIVER_EXPORTED);
-        } else {
-            call.reject("Filters are required: at least 1 entry");
         }
+        Context context = getContext();
+        for (Intent intent : intents) {
+            context.sendBroadcast(intent);
+        }
+        JSObject result = new JSObject();
+        result.put("sent", intents.size());
+        call.resolve(result);
     }
 
-    private void removeReceiver(String callBackID) {
-        this.getContext().unregisterReceiver(receiverMap.get(callBackID));
-        this.receiverMap.remove(callBackID);
-    }
-
-    private static Object toJsonValue(final Object value) throws JSONException {
-        //  Credit: https://github.com/napolitano/cordova-plugin-intent
-        if (value == null) {
-            return null;
-        } else if (value instanceof Bundle) {
-            final Bundle bundle = (Bundle) value;
-            final JSONObject result = new JSONObject();
-            for (final String key : bundle.keySet()) {
-                result.put(key, toJsonValue(bundle.get(key)));
-            }
-            return result;
-        } else if ((value.getClass().isArray())) {
-            final JSONArray result = new JSONArray();
-            int length = Array.getLength(value);
-            for (int i = 0; i < length; ++i) {
-                result.put(i, toJsonValue(Array.get(value, i)));
-            }
-            return result;
-        } else if (value instanceof ArrayList<?>) {
-            final ArrayList arrayList = (ArrayList<?>) value;
-            final JSONArray result = new JSONArray();
-            for (int i = 0; i < arrayList.size(); i++) result.put(toJsonValue(arrayList.get(i)));
-            return result;
-        } else if (
-            value instanceof String ||
-            value instanceof Boolean ||
-            value instanceof Integer ||
-            value instanceof Long ||
-            value instanceof Double
-        ) {
-            return value;
-        } else {
-            return String.valueOf(value);
-        }
-    }
-
-    private static JSONObject toJsonObject(Bundle bundle) {
-        //  Credit: https://github.com/napolitano/cordova-plugin-intent
-        try {
-            return (JSONObject) toJsonValue(bundle);
-        } catch (JSONException e) {
-            throw new IllegalArgumentException("Cannot convert bundle to JSON: " + e.getMessage(), e);
-        }
-    }
-
-    private JSONObject getIntentJson(Intent intent) {
-        //  Credit: https://github.com/darryncampbell/darryncampbell-cordova-plugin-intent
-        JSONObject intentJSON = null;
-        ClipData clipData = null;
-        JSONObject[] items = null;
-        ContentResolver cR = this.getContext().getContentResolver();
-        MimeTypeMap mime = MimeTypeMap.getSingleton();
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-            clipData = intent.getClipData();
-            if (clipData != null) {
-                int clipItemCount = clipData.getItemCount();
-                items = new JSONObject[clipItemCount];
-
-                for (int i = 0; i < clipItemCount; i++) {
-                    ClipData.Item item = clipData.getItemAt(i);
-
-                    try {
-                        items[i] = new JSONObject();
-                        items[i].put("htmlText", item.getHtmlText());
-                        items[i].put("intent", item.getIntent());
-                        items[i].put("text", item.getText());
-                        items[i].put("uri", item.getUri());
-
-                        if (item.getUri() != null) {
-                            String type = cR.getType(item.getUri());
-                            String extension = mime.getExtensionFromMimeType(cR.getType(item.getUri()));
-
-                            items[i].put("type", type);
-                            items[i].put("extension", extension);
-                        }
-                    } catch (JSONException e) {
-                        Log.d(LOG_TAG, " Error thrown during intent > JSON conversion");
-                        Log.d(LOG_TAG, e.getMessage());
-                        Log.d(LOG_TAG, Arrays.toString(e.getStackTrace()));
-                    }
-                }
-            }
+    /**
+     * Clips delivered by reference carry only a file path; expose it through the WebView's
+     * local server so JS can {@code fetch()} it straight into an ArrayBuffer.
+     */
+    private void addClipUrl(JSObject intentJson) throws JSONException {
+        JSONObject extras = intentJson.optJSONObject("extras");
+        if (extras == null || !PttConfig.CLIP_DELIVERY_REFERENCE.equals(extras.optString("clipDelivery"))) {
+            return;
         }
-
-        try {
-            intentJSON = new JSONObject();
-
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-                if (items != null) {
-                    intentJSON.put("clipItems", new JSONArray(items));
-                }
-            }
-
-            intentJSON.put("type", intent.getType());
-            intentJSON.put("extras", toJsonObject(intent.getExtras()));
-            intentJSON.put("action", intent.getAction());
-            intentJSON.put("categories", intent.getCategories());
-            intentJSON.put("flags", intent.getFlags());
-            intentJSON.put("component", intent.getComponent());
-            intentJSON.put("data", intent.getData());
-            intentJSON.put("package", intent.getPackage());
-            intentJSON.put("pttType", intent.getStringExtra("originalAction"));  // For PTT-specific type
-
-            return intentJSON;
-        } catch (JSONException e) {
-            Log.d(LOG_TAG, " Error thrown during intent > JSON conversion");
-            Log.d(LOG_TAG, e.getMessage());
-            Log.d(LOG_TAG, Arrays.toString(e.getStackTrace()));
-
-            return null;
+        String path = extras.optString("audioPath", null);
+        if (path != null && bridge != null) {
+            extras.put("audioUrl", bridge.getLocalUrl() + Bridge.CAPACITOR_FILE_START + path);
         }
     }
 
@@ -222,6 +224,7 @@ public class CapacitorIntents extends Plugin {
         Log.d("CapacitorIntents", "startPttService called from JS");
         try {
             Intent serviceIntent = new Intent(getContext(), PttForegroundService.class);
+            serviceIntent.putExtra(PttConfig.EXTRA_CONFIG, call.getData().toString());
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
                 getContext().startForegroundService(serviceIntent);
             } else {
@@ -236,6 +239,76 @@ public class CapacitorIntents extends Plugin {
     }
     
 
+    /**
+     * Streams journaled events as {@code { events: [{ seq, event }], done }} batches. Events keep
+     * their journal entry until {@code ackOutbox} confirms them.
+     */
+    @PluginMethod(returnType = PluginMethod.RETURN_CALLBACK)
+    public void replayOutbox(PluginCall call) {
+        call.setKeepAlive(true);
+        int batchSize = Math.max(1, call.getInt("batchSize", 50));
+        // Clip URLs depend on this WebView's server, so they are added at replay time
+        outbox.replay(batchSize, this::addClipUrl, (events, done) -> {
+            JSObject batch = new JSObject();
+            batch.put("events", events);
+            batch.put("done", done);
+            call.resolve(batch);
+            if (done) {
+                call.release(bridge);
+            }
+        });
+    }
+
+    @PluginMethod
+    public void ackOutbox(PluginCall call) {
+        Long seq = call.getLong("seq");
+        if (seq == null) {
+            call.reject("seq is required");
+            return;
+        }
+        outbox.acknowledge(seq, () -> {
+            JSObject ret = new JSObject();
+            ret.put("remaining", outbox.size());
+            call.resolve(ret);
+        });
+    }
+
+    @PluginMethod
+    public void releasePttClip(PluginCall call) {
+        String path = call.getString("path");
+        if (path == null) {
+            call.reject("path is required");
+            return;
+        }
+        ClipStore clipStore = ClipStore.get(getContext());
+        // Only ever delete clips the PTT service wrote into its clip store
+        if (!clipStore.isClipPath(path)) {
+            call.reject("Not a PTT clip: " + path);
+            return;
+        }
+        JSObject ret = new JSObject();
+        ret.put("released", clipStore.release(path, ClipStore.Owner.JS));
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void getBroadcastReceiverStats(PluginCall call) {
+        JSObject result = new JSObject();
+        result.put("subscriptions", receiverRegistry.stats());
+        call.resolve(result);
+    }
+
+    /** Queue and counters of the native clip uploader, including clips a previous process left queued. */
+    @PluginMethod
+    public void getPttUploadStats(PluginCall call) {
+        call.resolve(ClipUploader.get(getContext()).stats());
+    }
+
+    @PluginMethod
+    public void getPttClipStats(PluginCall call) {
+        call.resolve(ClipStore.get(getContext()).stats());
+    }
+
     @PluginMethod
     public void stopPttService(PluginCall call) {
         Log.d("CapacitorIntents", "stopPttService called from JS");
@@ -249,4 +322,37 @@ public class CapacitorIntents extends Plugin {
             call.reject("Failed to stop service: " + e.getMessage());
         }
     }
+
+    /** Latency histograms for each PTT stage, shared with the in-process service. */
+    @PluginMethod
+    public void getPttMetrics(PluginCall call) {
+        call.resolve(PttMetrics.toJSObject());
+    }
+
+    @PluginMethod
+    public void resetPttMetrics(PluginCall call) {
+        PttMetrics.reset();
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void getPttPowerStats(PluginCall call) {
+        call.resolve(PttPowerStats.toJSObject(getContext()));
+    }
+
+    /** The diagnostic event ring, oldest first. */
+    @PluginMethod
+    public void getDiagnostics(PluginCall call) {
+        call.resolve(Diagnostics.toJSObject(Boolean.TRUE.equals(call.getBoolean("clear"))));
+    }
+
+    @PluginMethod
+    public void setDiagnosticLevel(PluginCall call) {
+        String level = call.getString("level");
+        if (!Diagnostics.setLevel(level, Boolean.TRUE.equals(call.getBoolean("logcat")))) {
+            call.reject("Unknown diagnostic level: " + level);
+            return;
+        }
+        call.resolve();
+    }
 }
@@ -0,0 +1,47 @@
+package com.itmikes.capacitorintents;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds a press's audio chunks until its down event has been published. Capture starts before the
+ * down event leaves the finaliser queue, so without this chunk 0 could reach JS ahead of the down
+ * it belongs to. Submitting never waits for the finaliser, only for a flush already in progress.
+ */
+final class ChunkGate<T> {
+
+    interface Sink<T> {
+        void publish(T item);
+    }
+
+    private final Sink<T> sink;
+    /** Null once open. */
+    private List<T> held = new ArrayList<>();
+
+    ChunkGate(Sink<T> sink) {
+        this.sink = sink;
+    }
+
+    /** Capture thread. Publishes now if the gate is open, otherwise keeps the item for {@link #open()}. */
+    void submit(T item) {
+        synchronized (this) {
+            if (held != null) {
+                held.add(item);
+                return;
+            }
+        }
+        // Outside the lock: open() has finished flushing, so this cannot overtake a held item
+        sink.publish(item);
+    }
+
+    /** Called after the down event has been published. Flushes held items in order; idempotent. */
+    synchronized void open() {
+        if (held == null) {
+            return;
+        }
+        for (T item : held) {
+            sink.publish(item);
+        }
+        held = null;
+    }
+}
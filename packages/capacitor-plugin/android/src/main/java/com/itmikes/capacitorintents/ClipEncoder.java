@@ -0,0 +1,100 @@
+package com.itmikes.capacitorintents;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Turns a finished clip file into the {@code audioBase64} extra. Kept free of Android types so the
+ * hot path can be benchmarked on a plain JVM.
+ */
+final class ClipEncoder {
+
+    // A multiple of 3, so every full read encodes without carrying bytes over
+    private static final int READ_BUFFER_BYTES = 48 * 1024;
+
+    private ClipEncoder() {}
+
+    /**
+     * Streams the file through a fixed read buffer into the encoder, so the only clip-sized
+     * allocations are the Base64 text and the String made from it; the raw clip is never held whole.
+     */
+    static String readBase64(File clip) throws IOException {
+        long length = clip.length();
+        long encodedLength = (length + 2) / 3 * 4;
+        if (encodedLength > Integer.MAX_VALUE - 8) {
+            throw new IOException("Clip too large: " + length + " bytes");
+        }
+        AsciiSink sink = new AsciiSink((int) encodedLength);
+        byte[] buffer = new byte[READ_BUFFER_BYTES];
+        try (FileInputStream in = new FileInputStream(clip); OutputStream out = Base64.getEncoder().wrap(sink)) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return sink.toString();
+    }
+
+    static byte[] readAll(File clip) throws IOException {
+        long length = clip.length();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Clip too large: " + length + " bytes");
+        }
+        byte[] audioBytes = new byte[(int) length];
+        try (FileInputStream fis = new FileInputStream(clip)) {
+            int offset = 0;
+            while (offset < audioBytes.length) {
+                int read = fis.read(audioBytes, offset, audioBytes.length - offset);
+                if (read < 0) {
+                    throw new IOException("Clip truncated at " + offset + " of " + audioBytes.length + " bytes");
+                }
+                offset += read;
+            }
+        }
+        return audioBytes;
+    }
+
+    static String encode(byte[] audioBytes) {
+        return Base64.getEncoder().encodeToString(audioBytes);
+    }
+
+    /** Collects the encoder's ASCII output; sized up front, grows only if the file grew while being read. */
+    private static final class AsciiSink extends OutputStream {
+
+        private byte[] bytes;
+        private int count;
+
+        AsciiSink(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(1);
+            bytes[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(len);
+            System.arraycopy(b, off, bytes, count, len);
+            count += len;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (count + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, count + extra));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, 0, count, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
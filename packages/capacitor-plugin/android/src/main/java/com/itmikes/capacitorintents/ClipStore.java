@@ -0,0 +1,261 @@
+package com.itmikes.capacitorintents;
+
+import android.content.Context;
+import com.getcapacitor.JSObject;
+import java.io.File;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Owns every PTT clip file. Clips live in their own cache subdirectory under a size and count
+ * budget; once over budget the least recently used unpinned clips are deleted.
+ *
+ * Each {@link Owner} pins a clip independently: the recorder while it is recorded and finalised,
+ * the uploader until it is uploaded, the outbox until its event is acknowledged, and JS until it
+ * releases a clip delivered by reference. A clip is evictable only once no owner holds it, and a
+ * release (from JS, or the uploader's {@code deleteAfterUpload}) while others still hold it is
+ * deferred until the last of them lets go.
+ *
+ * Process-wide so the plugin can release clips the service recorded; all methods are synchronized.
+ */
+class ClipStore {
+
+    private static final String DIR_NAME = "ptt_clips";
+    static final String CLIP_PREFIX = "ptt_";
+    // The only names older versions wrote into the app's shared cache directory
+    private static final Pattern LEGACY_CLIP_NAME = Pattern.compile("ptt_\\d+\\.aac");
+
+    static final long DEFAULT_MAX_BYTES = 50L * 1024 * 1024;
+    static final int DEFAULT_MAX_COUNT = 200;
+
+    private static ClipStore instance;
+
+    enum Owner {
+        RECORDER,
+        UPLOAD,
+        JOURNAL,
+        JS
+    }
+
+    private static final class Entry {
+
+        final File file;
+        long size;
+        final EnumSet<Owner> owners = EnumSet.noneOf(Owner.class);
+        /** Released while still pinned; deleted once the last owner lets go. */
+        boolean releasePending;
+
+        Entry(File file) {
+            this.file = file;
+        }
+    }
+
+    private final File dir;
+    // Access-ordered, so iteration starts at the least recently used clip
+    private final LinkedHashMap<String, Entry> clips = new LinkedHashMap<>(16, 0.75f, true);
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private int maxCount = DEFAULT_MAX_COUNT;
+    private long totalBytes;
+    private long lastTimestamp;
+
+    private long evictedCount;
+    private long evictedBytes;
+    private long sweptCount;
+    private long sweptBytes;
+    private long releasedCount;
+
+    /** Tests build their own store; everything else shares {@link #get}. */
+    ClipStore(File dir) {
+        this.dir = dir;
+    }
+
+    static synchronized ClipStore get(Context context) {
+        if (instance == null) {
+            instance = new ClipStore(new File(context.getApplicationContext().getCacheDir(), DIR_NAME));
+        }
+        return instance;
+    }
+
+    synchronized void setBudget(long maxBytes, int maxCount) {
+        this.maxBytes = maxBytes;
+        this.maxCount = maxCount;
+        evict();
+    }
+
+    /** Reserves a new clip file, pinned by the {@link Owner#RECORDER}. */
+    synchronized File newClip(String extension) {
+        if (!dir.exists()) dir.mkdirs();
+        // Millisecond names can collide on back-to-back presses
+        long timestamp = Math.max(System.currentTimeMillis(), lastTimestamp + 1);
+        lastTimestamp = timestamp;
+        File file = new File(dir, CLIP_PREFIX + timestamp + extension);
+        Entry entry = new Entry(file);
+        entry.owners.add(Owner.RECORDER);
+        clips.put(file.getAbsolutePath(), entry);
+        return file;
+    }
+
+    /** Keeps a clip out of eviction until {@code owner} unpins or releases it; repeated pins by one owner count once. */
+    synchronized void pin(String path, Owner owner) {
+        Entry entry = clips.get(path);
+        if (entry != null) {
+            entry.owners.add(owner);
+        }
+    }
+
+    /**
+     * Drops {@code owner}'s pin and records the current size, which counts toward the budget either
+     * way. The clip becomes evictable once no owner holds it, or is deleted if it was released meanwhile.
+     */
+    synchronized void unpin(String path, Owner owner) {
+        Entry entry = clips.get(path);
+        if (entry == null) {
+            return;
+        }
+        entry.owners.remove(owner);
+        updateSize(entry);
+        if (entry.owners.isEmpty() && entry.releasePending) {
+            delete(path, entry);
+            return;
+        }
+        evict();
+    }
+
+    private void updateSize(Entry entry) {
+        totalBytes -= entry.size;
+        entry.size = entry.file.length();
+        totalBytes += entry.size;
+    }
+
+    /** Deletes a clip the service gave up on (failed start, disarmed recorder, teardown). */
+    synchronized void discard(String path) {
+        Entry entry = clips.remove(path);
+        if (entry != null) {
+            totalBytes -= entry.size;
+            entry.file.delete();
+        }
+    }
+
+    boolean isClipPath(String path) {
+        File file = new File(path);
+        return dir.equals(file.getParentFile()) && file.getName().startsWith(CLIP_PREFIX);
+    }
+
+    /**
+     * {@code owner} is done with the clip and wants it gone: it is deleted now if no other owner
+     * holds it, otherwise once the last one lets go. Returns false only if there was nothing to delete.
+     */
+    synchronized boolean release(String path, Owner owner) {
+        Entry entry = clips.get(path);
+        if (entry == null) {
+            // Not tracked, e.g. a reference JS kept across a restart
+            boolean deleted = new File(path).delete();
+            if (deleted) {
+                releasedCount++;
+            }
+            return deleted;
+        }
+        entry.owners.remove(owner);
+        if (!entry.owners.isEmpty()) {
+            entry.releasePending = true;
+            return true;
+        }
+        return delete(path, entry);
+    }
+
+    private boolean delete(String path, Entry entry) {
+        clips.remove(path);
+        totalBytes -= entry.size;
+        boolean deleted = entry.file.delete();
+        if (deleted) {
+            releasedCount++;
+        }
+        return deleted;
+    }
+
+    /**
+     * Deletes clip files this process does not know about, i.e. left behind by a crash or kill,
+     * plus clips older versions wrote straight into the cache directory. That directory belongs to
+     * the host app, so only names matching the old {@code ptt_<millis>.aac} pattern are touched
+     * there. Run once the outbox and the uploader have {@link #adopt adopted} the clips they still
+     * refer to.
+     */
+    synchronized void sweepOrphans(File legacyDir) {
+        sweep(dir, null);
+        sweep(legacyDir, LEGACY_CLIP_NAME);
+        if (sweptCount > 0) {
+            Diagnostics.record(Diagnostics.Event.CLIPS_SWEPT, sweptCount, sweptBytes);
+        }
+    }
+
+    /** Tracks clips from a previous process that {@code owner} still refers to, pinned for it. */
+    synchronized void adopt(Set<String> paths, Owner owner) {
+        for (String path : paths) {
+            File file = new File(path);
+            Entry entry = clips.get(path);
+            if (entry == null && isClipPath(path) && file.isFile()) {
+                entry = new Entry(file);
+                entry.size = file.length();
+                totalBytes += entry.size;
+                clips.put(path, entry);
+            }
+            if (entry != null) {
+                entry.owners.add(owner);
+            }
+        }
+    }
+
+    private void sweep(File directory, Pattern names) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            boolean clipName = names == null ? name.startsWith(CLIP_PREFIX) : names.matcher(name).matches();
+            if (clipName && file.isFile() && !clips.containsKey(file.getAbsolutePath())) {
+                long size = file.length();
+                if (file.delete()) {
+                    sweptCount++;
+                    sweptBytes += size;
+                }
+            }
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> it = clips.entrySet().iterator();
+        int count = clips.size();
+        while ((totalBytes > maxBytes || count > maxCount) && it.hasNext()) {
+            Entry entry = it.next().getValue();
+            if (!entry.owners.isEmpty()) {
+                continue;
+            }
+            it.remove();
+            count--;
+            totalBytes -= entry.size;
+            entry.file.delete();
+            evictedCount++;
+            evictedBytes += entry.size;
+            Diagnostics.record(Diagnostics.Event.CLIP_EVICTED, entry.size);
+        }
+    }
+
+    synchronized JSObject stats() {
+        JSObject result = new JSObject();
+        result.put("count", clips.size());
+        result.put("bytes", totalBytes);
+        result.put("maxCount", maxCount);
+        result.put("maxBytes", maxBytes);
+        result.put("evictedCount", evictedCount);
+        result.put("evictedBytes", evictedBytes);
+        result.put("sweptCount", sweptCount);
+        result.put("sweptBytes", sweptBytes);
+        result.put("releasedCount", releasedCount);
+        return result;
+    }
+}
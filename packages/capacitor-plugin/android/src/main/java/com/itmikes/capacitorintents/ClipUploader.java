@@ -0,0 +1,522 @@
+package com.itmikes.capacitorintents;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Uploads finished PTT clips straight from the {@link ClipStore} to an HTTP endpoint, so audio
+ * never crosses the bridge as Base64 and keeps going while the WebView is suspended. JS only gets
+ * small {@code pttUploadStatus} events.
+ *
+ * Each request is a {@code multipart/form-data} POST of up to {@code batchSize} clips, streamed
+ * from the files in chunked mode through one fixed buffer. At most {@code concurrency} requests
+ * run at once. Network errors, 408, 429 and 5xx are retried with jittered exponential backoff
+ * (honouring {@code Retry-After}); other statuses fail the clips for good.
+ *
+ * The queue and the endpoint are persisted, so clips recorded before a crash or kill are sent
+ * once the service starts again. An interrupted request is sent again in full; the clip file
+ * names are unique, so the server can drop duplicates. Queued clips stay pinned in the clip store
+ * until they are uploaded or given up on.
+ */
+class ClipUploader {
+
+    private static final String TAG = "PttUploader";
+    private static final String FILE_NAME = "ptt_uploads.json";
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_CONCURRENCY = 4;
+    private static final int CONNECT_TIMEOUT_MS = 15000;
+    private static final int READ_TIMEOUT_MS = 30000;
+    private static final byte[] CRLF = { '\r', '\n' };
+
+    static final String STATUS_QUEUED = "queued";
+    static final String STATUS_UPLOADING = "uploading";
+    static final String STATUS_UPLOADED = "uploaded";
+    static final String STATUS_RETRYING = "retrying";
+    static final String STATUS_FAILED = "failed";
+
+    /** The {@code upload} option of {@code startPttService}. */
+    static final class Config {
+
+        final String url;
+        final Map<String, String> headers;
+        final String fieldName;
+        final int batchSize;
+        final int concurrency;
+        final int maxAttempts;
+        final long backoffMs;
+        final long maxBackoffMs;
+        final boolean deleteAfterUpload;
+
+        private Config(JSONObject options) throws JSONException {
+            url = options.getString("url");
+            headers = new LinkedHashMap<>();
+            JSONObject headerValues = options.optJSONObject("headers");
+            if (headerValues != null) {
+                Iterator<String> names = headerValues.keys();
+                while (names.hasNext()) {
+                    String name = names.next();
+                    headers.put(name, headerValues.getString(name));
+                }
+            }
+            fieldName = options.optString("fieldName", "clip");
+            batchSize = Math.max(1, Math.min(50, options.optInt("batchSize", 1)));
+            concurrency = Math.max(1, Math.min(MAX_CONCURRENCY, options.optInt("concurrency", 2)));
+            maxAttempts = Math.max(1, options.optInt("maxAttempts", 10));
+            backoffMs = Math.max(10, options.optLong("backoffMs", 2000));
+            maxBackoffMs = Math.max(backoffMs, options.optLong("maxBackoffMs", 5 * 60 * 1000));
+            deleteAfterUpload = options.optBoolean("deleteAfterUpload", true);
+        }
+
+        /** Returns null when there is no endpoint, i.e. uploading is off. */
+        static Config fromJson(JSONObject options) throws JSONException {
+            if (options == null || options.optString("url", "").isEmpty()) {
+                return null;
+            }
+            return new Config(options);
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("url", url);
+            json.put("headers", new JSONObject(headers));
+            json.put("fieldName", fieldName);
+            json.put("batchSize", batchSize);
+            json.put("concurrency", concurrency);
+            json.put("maxAttempts", maxAttempts);
+            json.put("backoffMs", backoffMs);
+            json.put("maxBackoffMs", maxBackoffMs);
+            json.put("deleteAfterUpload", deleteAfterUpload);
+            return json;
+        }
+    }
+
+    private static final class Clip {
+
+        final String path;
+        final String mimeType;
+        final long durationMs;
+        int attempts;
+        /** Wall-clock time, so the backoff survives a restart. */
+        long nextAttemptAt;
+        boolean inFlight;
+
+        Clip(String path, String mimeType, long durationMs) {
+            this.path = path;
+            this.mimeType = mimeType;
+            this.durationMs = durationMs;
+        }
+    }
+
+    private static ClipUploader instance;
+
+    private final File stateFile;
+    private final ClipStore clipStore;
+    private final PttEventBus.Listener statusListener;
+    private final ScheduledThreadPoolExecutor executor;
+
+    // Guarded by this
+    private Config config;
+    private final List<Clip> queue = new ArrayList<>();
+    private int active;
+    private ScheduledFuture<?> wakeUp;
+    private long uploadedCount;
+    private long uploadedBytes;
+    private long failedCount;
+    private long retryCount;
+    private long requestCount;
+
+    ClipUploader(File stateFile, ClipStore clipStore, PttEventBus.Listener statusListener) {
+        this.stateFile = stateFile;
+        this.clipStore = clipStore;
+        this.statusListener = statusListener;
+        executor = new ScheduledThreadPoolExecutor(MAX_CONCURRENCY, runnable -> {
+            Thread thread = new Thread(runnable, "PttUploader");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        load();
+    }
+
+    /** Picks up whatever a previous process left queued. */
+    static synchronized ClipUploader get(Context context) {
+        if (instance == null) {
+            instance = new ClipUploader(
+                new File(context.getApplicationContext().getFilesDir(), FILE_NAME),
+                ClipStore.get(context),
+                PttEventBus::publish
+            );
+        }
+        return instance;
+    }
+
+    /** Null stops uploading; queued clips then wait, pinned, until an endpoint is configured again. */
+    synchronized void configure(Config config) {
+        this.config = config;
+        persist();
+        pump();
+    }
+
+    synchronized boolean isEnabled() {
+        return config != null;
+    }
+
+    /** Takes over a finished, pinned clip. */
+    void enqueue(String path, String mimeType, long durationMs) {
+        Clip clip = new Clip(path, mimeType, durationMs);
+        clipStore.pin(path, ClipStore.Owner.UPLOAD);
+        synchronized (this) {
+            queue.add(clip);
+            persist();
+        }
+        publish(clip, STATUS_QUEUED, null);
+        synchronized (this) {
+            pump();
+        }
+    }
+
+    /** Clip files still waiting for upload. */
+    synchronized Set<String> clipPaths() {
+        Set<String> paths = new HashSet<>();
+        for (Clip clip : queue) {
+            paths.add(clip.path);
+        }
+        return paths;
+    }
+
+    /** Stops the workers; queued clips stay persisted for the next instance. */
+    synchronized void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** Starts as many due batches as the concurrency limit allows, then sleeps until the next one is due. */
+    private void pump() {
+        if (config == null || executor.isShutdown()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long nextDue = Long.MAX_VALUE;
+        List<Clip> batch = new ArrayList<>();
+        Iterator<Clip> it = queue.iterator();
+        while (it.hasNext() && active < config.concurrency) {
+            Clip clip = it.next();
+            if (clip.inFlight) {
+                continue;
+            }
+            if (clip.nextAttemptAt > now) {
+                nextDue = Math.min(nextDue, clip.nextAttemptAt);
+                continue;
+            }
+            if (!new File(clip.path).isFile()) {
+                it.remove();
+                failedCount++;
+                clipStore.discard(clip.path);
+                executor.execute(() -> publish(clip, STATUS_FAILED, status -> status.putString("error", "Clip file is gone")));
+                continue;
+            }
+            clip.inFlight = true;
+            batch.add(clip);
+            if (batch.size() == config.batchSize) {
+                start(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            start(batch);
+        }
+        if (wakeUp != null) {
+            wakeUp.cancel(false);
+            wakeUp = null;
+        }
+        if (nextDue != Long.MAX_VALUE) {
+            wakeUp = executor.schedule(() -> {
+                synchronized (this) {
+                    pump();
+                }
+            }, nextDue - now, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void start(List<Clip> batch) {
+        active++;
+        requestCount++;
+        final Config requestConfig = config;
+        executor.execute(() -> upload(batch, requestConfig));
+    }
+
+    private interface StatusExtras {
+        void put(Bundle status);
+    }
+
+    /** Worker thread. */
+    private void upload(List<Clip> batch, Config requestConfig) {
+        for (Clip clip : batch) {
+            publish(clip, STATUS_UPLOADING, status -> status.putInt("attempt", clip.attempts + 1));
+        }
+        int httpStatus = 0;
+        long retryAfterMs = 0;
+        String error = null;
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(requestConfig.url).openConnection();
+            try {
+                httpStatus = send(connection, batch, requestConfig);
+                retryAfterMs = retryAfterMs(connection.getHeaderField("Retry-After"));
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException e) {
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+        boolean ok = httpStatus >= 200 && httpStatus < 300;
+        if (!ok) {
+            // The error text travels with the status events
+            Diagnostics.record(Diagnostics.Event.UPLOAD_FAILED, batch.size(), httpStatus);
+        }
+        boolean retry = !ok && (httpStatus == 0 || httpStatus == 408 || httpStatus == 429 || httpStatus >= 500);
+        finish(batch, requestConfig, ok, retry, httpStatus, retryAfterMs, error);
+    }
+
+    private void finish(List<Clip> batch, Config requestConfig, boolean ok, boolean retry, int httpStatus, long retryAfterMs, String error) {
+        List<Runnable> events = new ArrayList<>(batch.size());
+        synchronized (this) {
+            active--;
+            long now = System.currentTimeMillis();
+            for (Clip clip : batch) {
+                clip.inFlight = false;
+                clip.attempts++;
+                if (ok) {
+                    queue.remove(clip);
+                    uploadedCount++;
+                    long size = new File(clip.path).length();
+                    uploadedBytes += size;
+                    if (requestConfig.deleteAfterUpload) {
+                        clipStore.release(clip.path, ClipStore.Owner.UPLOAD);  // Deferred while the outbox or JS still holds it
+                    } else {
+                        clipStore.unpin(clip.path, ClipStore.Owner.UPLOAD);
+                    }
+                    events.add(() -> publish(clip, STATUS_UPLOADED, status -> {
+                        status.putInt("httpStatus", httpStatus);
+                        status.putLong("bytes", size);
+                    }));
+                } else if (retry && clip.attempts < requestConfig.maxAttempts) {
+                    retryCount++;
+                    long delay = Math.max(backoffMs(requestConfig, clip.attempts), retryAfterMs);
+                    clip.nextAttemptAt = now + delay;
+                    events.add(() -> publish(clip, STATUS_RETRYING, status -> {
+                        putFailure(status, httpStatus, error);
+                        status.putLong("retryInMs", delay);
+                    }));
+                } else {
+                    queue.remove(clip);
+                    failedCount++;
+                    clipStore.unpin(clip.path, ClipStore.Owner.UPLOAD);  // Evictable once no other owner holds it
+                    events.add(() -> publish(clip, STATUS_FAILED, status -> putFailure(status, httpStatus, error)));
+                }
+            }
+            persist();
+        }
+        for (Runnable event : events) {
+            event.run();
+        }
+        synchronized (this) {
+            pump();
+        }
+    }
+
+    private static void putFailure(Bundle status, int httpStatus, String error) {
+        if (httpStatus > 0) {
+            status.putInt("httpStatus", httpStatus);
+        }
+        if (error != null) {
+            status.putString("error", error);
+        }
+    }
+
+    /** Equal jitter: half the exponential step, plus up to half again at random. */
+    static long backoffMs(Config config, int attempts) {
+        long step = config.backoffMs << Math.min(attempts - 1, 20);
+        step = Math.min(config.maxBackoffMs, step);
+        return step / 2 + ThreadLocalRandom.current().nextLong(step / 2 + 1);
+    }
+
+    private static long retryAfterMs(String header) {
+        if (header == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(header.trim())) * 1000;
+        } catch (NumberFormatException e) {
+            return 0;  // HTTP dates are not worth parsing here; our own backoff applies
+        }
+    }
+
+    /** Streams the batch as one multipart body and returns the response status. */
+    private static int send(HttpURLConnection connection, List<Clip> batch, Config config) throws IOException {
+        String boundary = "ptt-" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        // Chunked, so nothing is buffered to find the body length first
+        connection.setChunkedStreamingMode(BUFFER_BYTES);
+        for (Map.Entry<String, String> header : config.headers.entrySet()) {
+            connection.setRequestProperty(header.getKey(), header.getValue());
+        }
+        connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+
+        byte[] buffer = new byte[BUFFER_BYTES];
+        try (OutputStream out = connection.getOutputStream()) {
+            for (Clip clip : batch) {
+                File file = new File(clip.path);
+                String partHeader = "--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"" + config.fieldName + "\"; filename=\"" + file.getName() + "\"\r\n"
+                    + "Content-Type: " + (clip.mimeType != null ? clip.mimeType : "application/octet-stream") + "\r\n"
+                    + "X-Duration-Ms: " + clip.durationMs + "\r\n\r\n";
+                out.write(partHeader.getBytes(StandardCharsets.UTF_8));
+                try (InputStream in = new FileInputStream(file)) {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                    }
+                }
+                out.write(CRLF);
+            }
+            out.write(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+        int status = connection.getResponseCode();
+        // Read the response out so the connection can go back to the keep-alive pool
+        InputStream response = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (response != null) {
+            try (InputStream in = response) {
+                while (in.read(buffer) != -1) {
+                    // Discard
+                }
+            }
+        }
+        return status;
+    }
+
+    private void publish(Clip clip, String state, StatusExtras extras) {
+        PttEvent event = new PttEvent(PttEvent.ACTION_UPLOAD, 0);
+        event.extras.putString("status", state);
+        event.extras.putString("audioPath", clip.path);
+        event.extras.putString("fileName", new File(clip.path).getName());
+        event.extras.putInt("attempts", clip.attempts);
+        if (extras != null) {
+            extras.put(event.extras);
+        }
+        synchronized (this) {
+            event.extras.putInt("queued", queue.size());
+        }
+        statusListener.onPttEvent(event);
+    }
+
+    synchronized JSObject stats() {
+        JSObject result = new JSObject();
+        result.put("enabled", config != null);
+        result.put("queued", queue.size());
+        result.put("active", active);
+        result.put("requests", requestCount);
+        result.put("uploaded", uploadedCount);
+        result.put("uploadedBytes", uploadedBytes);
+        result.put("retries", retryCount);
+        result.put("failed", failedCount);
+        JSArray clips = new JSArray();
+        for (Clip clip : queue) {
+            JSObject entry = new JSObject();
+            entry.put("audioPath", clip.path);
+            entry.put("attempts", clip.attempts);
+            entry.put("uploading", clip.inFlight);
+            entry.put("nextAttemptAt", clip.nextAttemptAt);
+            clips.put(entry);
+        }
+        result.put("clips", clips);
+        return result;
+    }
+
+    /** Writes the endpoint and queue to a temp file and renames it over the old state. Caller holds the lock. */
+    private void persist() {
+        File temp = new File(stateFile.getPath() + ".tmp");
+        try {
+            JSONObject state = new JSONObject();
+            if (config != null) {
+                state.put("config", config.toJson());
+            }
+            JSONArray clips = new JSONArray();
+            for (Clip clip : queue) {
+                JSONObject entry = new JSONObject();
+                entry.put("path", clip.path);
+                entry.put("mimeType", clip.mimeType);
+                entry.put("durationMs", clip.durationMs);
+                entry.put("attempts", clip.attempts);
+                entry.put("nextAttemptAt", clip.nextAttemptAt);
+                clips.put(entry);
+            }
+            state.put("clips", clips);
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                out.write(state.toString().getBytes(StandardCharsets.UTF_8));
+                out.getFD().sync();
+            }
+            if (!temp.renameTo(stateFile)) {
+                throw new IOException("Could not replace " + stateFile.getName());
+            }
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Could not persist upload queue: " + e.getMessage(), e);
+            temp.delete();
+        }
+    }
+
+    private synchronized void load() {
+        if (!stateFile.isFile()) {
+            return;
+        }
+        try {
+            JSONObject state = new JSONObject(new String(Files.readAllBytes(stateFile.toPath()), StandardCharsets.UTF_8));
+            config = Config.fromJson(state.optJSONObject("config"));
+            JSONArray clips = state.optJSONArray("clips");
+            for (int i = 0; clips != null && i < clips.length(); i++) {
+                JSONObject entry = clips.getJSONObject(i);
+                Clip clip = new Clip(entry.getString("path"), entry.optString("mimeType", null), entry.optLong("durationMs"));
+                clip.attempts = entry.optInt("attempts");
+                clip.nextAttemptAt = entry.optLong("nextAttemptAt");
+                queue.add(clip);
+            }
+            if (!queue.isEmpty()) {
+                clipStore.adopt(clipPaths(), ClipStore.Owner.UPLOAD);
+                Diagnostics.record(Diagnostics.Event.UPLOADS_RESUMED, queue.size());
+            }
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Upload queue unreadable, starting over: " + e.getMessage(), e);
+            queue.clear();
+        }
+        pump();
+    }
+}
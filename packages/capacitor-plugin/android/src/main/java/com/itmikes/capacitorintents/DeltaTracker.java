@@ -0,0 +1,177 @@
+package com.itmikes.capacitorintents;
+
+import android.os.Bundle;
+import com.getcapacitor.JSObject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The {@code deltaMode} state of one subscription: the extras last sent to JS for each action.
+ * Periodic status broadcasts resend the same large Bundle with a field or two changed; comparing
+ * the raw values here means only the changed keys are serialized and cross the bridge.
+ *
+ * The first event per action, and the first after each {@code fullSyncMs}, is sent whole. Events
+ * that change nothing are not sent at all. Snapshots are only taken of events actually delivered,
+ * so overflow drops and conflation never desynchronise JS. Kept free of plugin types so it can be
+ * benchmarked on a plain JVM.
+ */
+class DeltaTracker {
+
+    /** What to send for one event. */
+    static final class Delta {
+
+        /** Null for a full sync. */
+        final Set<String> changed;
+        final List<String> removed;
+
+        Delta(Set<String> changed, List<String> removed) {
+            this.changed = changed;
+            this.removed = removed;
+        }
+
+        boolean isFull() {
+            return changed == null;
+        }
+    }
+
+    static final Delta FULL = new Delta(null, Collections.emptyList());
+
+    private static final class Snapshot {
+
+        Map<String, Object> values;
+        long syncedAt;
+
+        Snapshot(Map<String, Object> values, long syncedAt) {
+            this.values = values;
+            this.syncedAt = syncedAt;
+        }
+    }
+
+    /** 0 sends only the first event per action in full. */
+    final long fullSyncMs;
+    private final Map<String, Snapshot> snapshots = new HashMap<>();
+
+    private long fullEvents;
+    private long deltaEvents;
+    private long unchangedEvents;
+    private long keysSent;
+    private long keysSkipped;
+
+    DeltaTracker(long fullSyncMs) {
+        this.fullSyncMs = Math.max(0, fullSyncMs);
+    }
+
+    /**
+     * Compares {@code extras} with the last snapshot of {@code action} and replaces it. Only keys in
+     * {@code include} are tracked when it is set. Returns null when nothing changed.
+     */
+    synchronized Delta diff(String action, Bundle extras, Set<String> include, long nowMs) {
+        Map<String, Object> values = new HashMap<>();
+        if (extras != null) {
+            for (String key : include != null ? include : extras.keySet()) {
+                if (extras.containsKey(key)) {
+                    values.put(key, extras.get(key));
+                }
+            }
+        }
+        String snapshotKey = action != null ? action : "";
+        Snapshot snapshot = snapshots.get(snapshotKey);
+        if (snapshot == null || (fullSyncMs > 0 && nowMs - snapshot.syncedAt >= fullSyncMs)) {
+            snapshots.put(snapshotKey, new Snapshot(values, nowMs));
+            fullEvents++;
+            keysSent += values.size();
+            return FULL;
+        }
+        Set<String> changed = new LinkedHashSet<>();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            String key = entry.getKey();
+            if (!snapshot.values.containsKey(key) || !same(entry.getValue(), snapshot.values.get(key))) {
+                changed.add(key);
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (String key : snapshot.values.keySet()) {
+            if (!values.containsKey(key)) {
+                removed.add(key);
+            }
+        }
+        snapshot.values = values;
+        if (changed.isEmpty() && removed.isEmpty()) {
+            unchangedEvents++;
+            keysSkipped += values.size();
+            return null;
+        }
+        deltaEvents++;
+        keysSent += changed.size();
+        keysSkipped += values.size() - changed.size();
+        return new Delta(changed, removed);
+    }
+
+    /** Deep value equality for everything a Bundle can hold; arrays and nested Bundles by content. */
+    static boolean same(Object a, Object b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null) {
+            return false;
+        }
+        if (a instanceof Bundle && b instanceof Bundle) {
+            Bundle left = (Bundle) a;
+            Bundle right = (Bundle) b;
+            if (!left.keySet().equals(right.keySet())) {
+                return false;
+            }
+            for (String key : left.keySet()) {
+                if (!same(left.get(key), right.get(key))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a instanceof Object[] && b instanceof Object[]) {
+            Object[] left = (Object[]) a;
+            Object[] right = (Object[]) b;
+            if (left.length != right.length) {
+                return false;
+            }
+            for (int i = 0; i < left.length; i++) {
+                if (!same(left[i], right[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a instanceof List && b instanceof List) {
+            List<?> left = (List<?>) a;
+            List<?> right = (List<?>) b;
+            if (left.size() != right.size()) {
+                return false;
+            }
+            for (int i = 0; i < left.size(); i++) {
+                if (!same(left.get(i), right.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        // Boxed values, Strings and primitive arrays; anything else by its own equals
+        return Objects.deepEquals(a, b);
+    }
+
+    synchronized JSObject stats() {
+        JSObject result = new JSObject();
+        result.put("fullSyncMs", fullSyncMs);
+        result.put("fullEvents", fullEvents);
+        result.put("deltaEvents", deltaEvents);
+        result.put("unchangedEvents", unchangedEvents);
+        result.put("keysSent", keysSent);
+        result.put("keysSkipped", keysSkipped);
+        return result;
+    }
+}
@@ -0,0 +1,213 @@
+package com.itmikes.capacitorintents;
+
+import android.os.SystemClock;
+import android.util.Log;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+/**
+ * Process-wide diagnostic event recorder for the key, record and receive paths. Each event is an
+ * {@link Event} code and two longs written into a fixed ring of longs, so recording allocates
+ * nothing and builds no strings; names and labels are only attached when {@code getDiagnostics()}
+ * exports the ring. Events above the runtime level are skipped after one volatile read.
+ *
+ * With {@code logcat} enabled, recorded events are also printed, at the cost of formatting each one.
+ */
+final class Diagnostics {
+
+    static final String TAG = "PttDiagnostics";
+
+    static final int OFF = 0;
+    static final int ERROR = 1;
+    static final int WARN = 2;
+    static final int INFO = 3;
+    static final int DEBUG = 4;
+
+    private static final String[] LEVEL_NAMES = { "off", "error", "warn", "info", "debug" };
+
+    enum Event {
+        KEY_RECEIVED(DEBUG, "keyReceived", "down", "state"),
+        KEY_UNMAPPED(WARN, "keyUnmapped", null, null),
+        /** The key came back down inside the release debounce window. */
+        RELEASE_DEBOUNCED(DEBUG, "releaseDebounced", null, null),
+        DUPLICATE_DOWN(DEBUG, "duplicateDown", null, null),
+        UNPAIRED_UP(DEBUG, "unpairedUp", null, null),
+        STUCK_KEY_RELEASED(WARN, "stuckKeyReleased", "maxClipMs", null),
+        RECEIVER_REGISTERED(INFO, "receiverRegistered", "actions", null),
+        RECEIVER_FAILED(ERROR, "receiverFailed", null, null),
+        RECORDER_ARMED(DEBUG, "recorderArmed", null, null),
+        ARM_FAILED(WARN, "armFailed", null, null),
+        CAPTURE_STARTED(INFO, "captureStarted", "latencyMs", "prewarmed"),
+        CAPTURE_FAILED(ERROR, "captureFailed", "streaming", null),
+        STREAM_ERROR(ERROR, "streamError", null, null),
+        RECORDING_STOPPED(DEBUG, "recordingStopped", "streaming", null),
+        STOP_FAILED(WARN, "stopFailed", null, null),
+        NOT_RECORDING(WARN, "notRecording", null, null),
+        SEGMENT_FAILED(WARN, "segmentFailed", "segment", null),
+        CLIP_READY(INFO, "clipReady", "bytes", "byReference"),
+        CLIP_EMPTY(WARN, "clipEmpty", null, null),
+        CLIP_READ_FAILED(ERROR, "clipReadFailed", "bytes", null),
+        FOCUS_REQUESTED(DEBUG, "focusRequested", "granted", null),
+        FOCUS_CHANGED(DEBUG, "focusChanged", "change", null),
+        WAKE_LOCK_RELEASED(DEBUG, "wakeLockReleased", "timeoutMs", null),
+        /** No in-process listener and no outbox for a PTT event. */
+        EVENT_DROPPED(WARN, "eventDropped", null, null),
+        EVENT_JOURNALED(DEBUG, "eventJournaled", "seq", null),
+        JOURNAL_FAILED(ERROR, "journalFailed", null, null),
+        /** A PTT-prefixed broadcast that did not come through the in-process channel. */
+        FOREIGN_BROADCAST_DROPPED(WARN, "foreignBroadcastDropped", null, null),
+        SERIALIZE_FAILED(WARN, "serializeFailed", null, null),
+        UPLOAD_FAILED(WARN, "uploadFailed", "clips", "httpStatus"),
+        UPLOADS_RESUMED(INFO, "uploadsResumed", "clips", null),
+        CONFIG_APPLIED(INFO, "configApplied", "streaming", "sampleRate"),
+        /** Repeated or unpaired key events absorbed over a service lifetime. */
+        KEYS_IGNORED(INFO, "keysIgnored", "count", null),
+        PRE_ROLL_STARTED(INFO, "preRollStarted", "preRollMs", "readMs"),
+        CLIPS_SWEPT(INFO, "clipsSwept", "clips", "bytes"),
+        CLIP_EVICTED(DEBUG, "clipEvicted", "bytes", null),
+        JOURNAL_COMPACTED(DEBUG, "journalCompacted", "ackedSeq", "remaining");
+
+        final int level;
+        final String key;
+        /** Export names of the two arguments; null when unused. */
+        final String argA;
+        final String argB;
+
+        Event(int level, String key, String argA, String argB) {
+            this.level = level;
+            this.key = key;
+            this.argA = argA;
+            this.argB = argB;
+        }
+    }
+
+    private static final Event[] EVENTS = Event.values();
+
+    /** Events kept; the oldest is overwritten first. */
+    static final int CAPACITY = 512;
+    private static final int SLOTS = 4;  // elapsedRealtimeNanos, event ordinal, a, b
+
+    private static final long[] RING = new long[CAPACITY * SLOTS];
+    private static long written;
+
+    private static volatile int level = INFO;
+    private static volatile boolean logcat;
+
+    private Diagnostics() {}
+
+    static void record(Event event) {
+        record(event, 0, 0);
+    }
+
+    static void record(Event event, long a) {
+        record(event, a, 0);
+    }
+
+    static void record(Event event, long a, long b) {
+        if (event.level > level) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtimeNanos();
+        synchronized (RING) {
+            int slot = (int) (written % CAPACITY) * SLOTS;
+            RING[slot] = now;
+            RING[slot + 1] = event.ordinal();
+            RING[slot + 2] = a;
+            RING[slot + 3] = b;
+            written++;
+        }
+        if (logcat) {
+            Log.println(priority(event.level), TAG, format(event, a, b));
+        }
+    }
+
+    /** Returns false for an unknown level name. */
+    static boolean setLevel(String name, boolean mirrorToLogcat) {
+        int parsed = parseLevel(name);
+        if (parsed < 0) {
+            return false;
+        }
+        level = parsed;
+        logcat = mirrorToLogcat;
+        return true;
+    }
+
+    private static int parseLevel(String name) {
+        for (int i = 0; i < LEVEL_NAMES.length; i++) {
+            if (LEVEL_NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Oldest event first. Timestamps are wall-clock milliseconds derived from the monotonic stamps. */
+    static JSObject toJSObject(boolean clear) {
+        long[] copy;
+        long total;
+        synchronized (RING) {
+            copy = RING.clone();
+            total = written;
+            if (clear) {
+                written = 0;
+            }
+        }
+        long nowNanos = SystemClock.elapsedRealtimeNanos();
+        long nowWall = System.currentTimeMillis();
+        int count = (int) Math.min(total, CAPACITY);
+        JSArray events = new JSArray();
+        for (long i = total - count; i < total; i++) {
+            int slot = (int) (i % CAPACITY) * SLOTS;
+            Event event = EVENTS[(int) copy[slot + 1]];
+            JSObject entry = new JSObject();
+            entry.put("timestamp", nowWall - (nowNanos - copy[slot]) / 1_000_000L);
+            entry.put("level", LEVEL_NAMES[event.level]);
+            entry.put("event", event.key);
+            if (event.argA != null) {
+                entry.put(event.argA, copy[slot + 2]);
+            }
+            if (event.argB != null) {
+                entry.put(event.argB, copy[slot + 3]);
+            }
+            events.put(entry);
+        }
+        JSObject result = new JSObject();
+        result.put("level", LEVEL_NAMES[level]);
+        result.put("logcat", logcat);
+        result.put("capacity", CAPACITY);
+        result.put("recorded", total);
+        result.put("overwritten", total - count);
+        result.put("events", events);
+        return result;
+    }
+
+    static void clear() {
+        synchronized (RING) {
+            written = 0;
+        }
+    }
+
+    private static int priority(int eventLevel) {
+        switch (eventLevel) {
+            case ERROR:
+                return Log.ERROR;
+            case WARN:
+                return Log.WARN;
+            case INFO:
+                return Log.INFO;
+            default:
+                return Log.DEBUG;
+        }
+    }
+
+    private static String format(Event event, long a, long b) {
+        StringBuilder line = new StringBuilder(event.key);
+        if (event.argA != null) {
+            line.append(' ').append(event.argA).append('=').append(a);
+        }
+        if (event.argB != null) {
+            line.append(' ').append(event.argB).append('=').append(b);
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,77 @@
+package com.itmikes.capacitorintents;
+
+import android.os.Handler;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+/**
+ * Buffers serialized intents for one subscription and hands them to JS as a single array,
+ * either once {@code maxEvents} are queued or {@code maxDelayMs} after the first queued event.
+ */
+class EventBatcher {
+
+    interface Sink {
+        void deliver(JSArray events);
+    }
+
+    private final int maxEvents;
+    private final long maxDelayMs;
+    private final Handler handler;
+    private final Sink sink;
+    private final Runnable flushTask = this::flush;
+
+    private JSArray pending = new JSArray();
+
+    EventBatcher(int maxEvents, long maxDelayMs, Handler handler, Sink sink) {
+        this.maxEvents = Math.max(1, maxEvents);
+        this.maxDelayMs = Math.max(0, maxDelayMs);
+        this.handler = handler;
+        this.sink = sink;
+    }
+
+    /** Reads {@code batchMaxEvents} / {@code batchMaxDelayMs}; returns null when batching was not requested. */
+    static EventBatcher fromOptions(Integer maxEvents, Integer maxDelayMs, Handler handler, Sink sink) {
+        if (maxEvents == null && maxDelayMs == null) {
+            return null;
+        }
+        return new EventBatcher(
+            maxEvents != null ? maxEvents : Integer.MAX_VALUE,
+            maxDelayMs != null ? maxDelayMs : 100,
+            handler,
+            sink
+        );
+    }
+
+    void add(JSObject event) {
+        JSArray ready = null;
+        synchronized (this) {
+            pending.put(event);
+            if (pending.length() >= maxEvents) {
+                ready = takePending();
+            } else if (pending.length() == 1) {
+                handler.postDelayed(flushTask, maxDelayMs);
+            }
+        }
+        if (ready != null) {
+            sink.deliver(ready);
+        }
+    }
+
+    void flush() {
+        JSArray ready;
+        synchronized (this) {
+            if (pending.length() == 0) {
+                return;
+            }
+            ready = takePending();
+        }
+        sink.deliver(ready);
+    }
+
+    private JSArray takePending() {
+        handler.removeCallbacks(flushTask);
+        JSArray ready = pending;
+        pending = new JSArray();
+        return ready;
+    }
+}
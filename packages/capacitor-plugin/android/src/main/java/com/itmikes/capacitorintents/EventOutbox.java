@@ -0,0 +1,434 @@
+package com.itmikes.capacitorintents;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Durable journal for PTT events nobody was listening for, replayed to JS when it reconnects.
+ *
+ * Layout: a 12-byte header (magic, first sequence number) followed by length-prefixed records
+ * ({@code int length, long seq, UTF-8 JSON}). {@link #append} only queues the event in memory; the
+ * journal thread serializes, writes and fsyncs queued records as one group at most
+ * {@link #FLUSH_DELAY_MS} later. A torn record left by a crash is cut off when the journal is opened. Acknowledging
+ * rewrites the journal without the acknowledged records.
+ */
+class EventOutbox {
+
+    private static final String TAG = "PttOutbox";
+    private static final String FILE_NAME = "ptt_outbox.journal";
+    private static final int MAGIC = 0x50545430; // "PTT0"
+    private static final int HEADER_BYTES = 12;
+    private static final int RECORD_HEADER_BYTES = 12;
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+    private static final long FLUSH_DELAY_MS = 200;
+    private static final int FLUSH_THRESHOLD_RECORDS = 64;
+
+    private static final class Record {
+
+        final long seq;
+        final JSObject event;
+
+        Record(long seq, JSObject event) {
+            this.seq = seq;
+            this.event = event;
+        }
+    }
+
+    interface BatchSink {
+        void deliver(JSArray events, boolean done);
+    }
+
+    private static EventOutbox instance;
+
+    private final File file;
+    private final ClipStore clipStore;
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final Object lock = new Object();
+
+    // Guarded by lock
+    private ArrayList<Record> pending = new ArrayList<>();
+    private boolean flushScheduled;
+    private long nextSeq = 1;
+    private int recordCount;
+    private long appendedCount;
+    private volatile boolean enabled;
+
+    // Journal thread only
+    private ArrayList<Record> writing = new ArrayList<>();
+    private byte[] buffer = new byte[8 * 1024];
+    private FileOutputStream out;
+
+    /** Tests build their own outbox; everything else shares {@link #get}. */
+    EventOutbox(File file, ClipStore clipStore) {
+        this.file = file;
+        this.clipStore = clipStore;
+        thread = new HandlerThread("PttOutbox");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        open();
+    }
+
+    static synchronized EventOutbox get(Context context) {
+        if (instance == null) {
+            instance = new EventOutbox(new File(context.getApplicationContext().getFilesDir(), FILE_NAME), ClipStore.get(context));
+        }
+        return instance;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Journals an event; the outbox owns {@code event} from here on. Inline Base64 audio is dropped
+     * in favour of the clip file, which stays pinned in the {@link ClipStore} until the record is
+     * acknowledged. Only a sequence number is assigned here; the JSON text is built on the journal
+     * thread.
+     */
+    long append(JSObject event) {
+        JSONObject extras = event.optJSONObject("extras");
+        if (extras != null) {
+            String clipPath = extras.optString("audioPath", null);
+            if (clipPath != null) {
+                clipStore.pin(clipPath, ClipStore.Owner.JOURNAL);
+                if (extras.remove("audioBase64") != null) {
+                    try {
+                        extras.put("clipDelivery", PttConfig.CLIP_DELIVERY_REFERENCE);
+                    } catch (JSONException e) {
+                        // Key is non-null; cannot happen
+                    }
+                }
+            }
+        }
+        synchronized (lock) {
+            long seq = nextSeq++;
+            pending.add(new Record(seq, event));
+            recordCount++;
+            appendedCount++;
+            if (pending.size() >= FLUSH_THRESHOLD_RECORDS) {
+                handler.post(this::flush);
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                handler.postDelayed(this::flush, FLUSH_DELAY_MS);
+            }
+            return seq;
+        }
+    }
+
+    /** Streams every journaled event to {@code sink} in batches, on the journal thread. */
+    void replay(final int batchSize, final ReceiverRegistry.EventDecorator decorator, final BatchSink sink) {
+        handler.post(() -> {
+            flush();
+            JSArray batch = new JSArray();
+            try (DataInputStream in = openForRead()) {
+                if (in != null) {
+                    byte[] json = new byte[1024];
+                    while (true) {
+                        int length;
+                        long seq;
+                        try {
+                            length = in.readInt();
+                            seq = in.readLong();
+                        } catch (EOFException e) {
+                            break;
+                        }
+                        if (length < 0 || length > MAX_RECORD_BYTES) {
+                            break;
+                        }
+                        if (json.length < length) {
+                            json = new byte[length];
+                        }
+                        in.readFully(json, 0, length);
+                        try {
+                            JSObject event = new JSObject(new String(json, 0, length, StandardCharsets.UTF_8));
+                            decorator.decorate(event);
+                            JSObject entry = new JSObject();
+                            entry.put("seq", seq);
+                            entry.put("event", event);
+                            batch.put(entry);
+                        } catch (JSONException e) {
+                            Log.w(TAG, "Skipping unreadable record " + seq);
+                        }
+                        if (batch.length() >= batchSize) {
+                            sink.deliver(batch, false);
+                            batch = new JSArray();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Replay failed: " + e.getMessage(), e);
+            }
+            sink.deliver(batch, true);
+        });
+    }
+
+    /** Drops every record up to and including {@code seq} and compacts the journal. */
+    void acknowledge(final long seq, final Runnable done) {
+        handler.post(() -> {
+            flush();
+            compact(seq);
+            done.run();
+        });
+    }
+
+    /** Writes whatever is still queued and stops the journal thread; the journal stays for the next instance. */
+    void shutdown() {
+        handler.post(() -> {
+            flush();
+            closeOut();
+        });
+        thread.quitSafely();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    int size() {
+        synchronized (lock) {
+            return recordCount;
+        }
+    }
+
+    long appendedCount() {
+        synchronized (lock) {
+            return appendedCount;
+        }
+    }
+
+    private interface RecordVisitor {
+        void visit(long seq, String json) throws IOException;
+    }
+
+    /** Returns the offset just past the last complete record. */
+    private static long readRecords(DataInputStream in, RecordVisitor visitor) throws IOException {
+        long offset = HEADER_BYTES;
+        while (true) {
+            try {
+                int length = in.readInt();
+                long seq = in.readLong();
+                if (length < 0 || length > MAX_RECORD_BYTES) {
+                    break;  // Torn or corrupt; everything from here on is dropped
+                }
+                byte[] json = new byte[length];
+                in.readFully(json);
+                visitor.visit(seq, new String(json, StandardCharsets.UTF_8));
+                offset += RECORD_HEADER_BYTES + length;
+            } catch (EOFException e) {
+                break;
+            }
+        }
+        return offset;
+    }
+
+    private void open() {
+        if (!file.exists()) {
+            return;
+        }
+        try (DataInputStream in = openForRead()) {
+            if (in == null) {
+                file.delete();
+                return;
+            }
+            final long[] last = { 0 };
+            final int[] count = { 0 };
+            final Set<String> clipPaths = new HashSet<>();
+            long validEnd = readRecords(in, (seq, json) -> {
+                last[0] = seq;
+                count[0]++;
+                String path = clipPathOf(json);
+                if (path != null) {
+                    clipPaths.add(path);
+                }
+            });
+            // Journaled clips stay pinned until their records are acknowledged
+            clipStore.adopt(clipPaths, ClipStore.Owner.JOURNAL);
+            synchronized (lock) {
+                nextSeq = Math.max(nextSeq, last[0] + 1);
+                recordCount = count[0];
+            }
+            if (validEnd < file.length()) {
+                Log.w(TAG, "Truncating torn journal tail at " + validEnd);
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(validEnd);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to open journal, starting over: " + e.getMessage(), e);
+            file.delete();
+        }
+    }
+
+    /** Reads past the header, or returns null if there is no usable journal. Updates nextSeq from the header. */
+    private DataInputStream openForRead() throws IOException {
+        if (!file.exists() || file.length() < HEADER_BYTES) {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        if (in.readInt() != MAGIC) {
+            in.close();
+            return null;
+        }
+        long firstSeq = in.readLong();
+        synchronized (lock) {
+            nextSeq = Math.max(nextSeq, firstSeq);
+        }
+        return in;
+    }
+
+    /** Journal thread only. Serializes, writes and fsyncs everything appended so far. */
+    private void flush() {
+        synchronized (lock) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            // Appends keep filling the other list while this one is written
+            ArrayList<Record> swap = writing;
+            writing = pending;
+            pending = swap;
+        }
+        int length = 0;
+        for (Record record : writing) {
+            byte[] json = record.event.toString().getBytes(StandardCharsets.UTF_8);
+            int needed = length + RECORD_HEADER_BYTES + json.length;
+            if (needed > buffer.length) {
+                byte[] grown = new byte[Math.max(needed, buffer.length * 2)];
+                System.arraycopy(buffer, 0, grown, 0, length);
+                buffer = grown;
+            }
+            length = putInt(buffer, length, json.length);
+            length = putLong(buffer, length, record.seq);
+            System.arraycopy(json, 0, buffer, length, json.length);
+            length += json.length;
+        }
+        writing.clear();
+        try {
+            if (out == null) {
+                boolean fresh = !file.exists() || file.length() < HEADER_BYTES;
+                out = new FileOutputStream(file, !fresh);
+                if (fresh) {
+                    writeHeader(out, 1);
+                }
+            }
+            out.write(buffer, 0, length);
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Journal write failed: " + e.getMessage(), e);
+            closeOut();
+        }
+    }
+
+    private void compact(long ackedSeq) {
+        closeOut();
+        File temp = new File(file.getPath() + ".tmp");
+        final int[] kept = { 0 };
+        final Set<String> released = new HashSet<>();
+        long firstSeq;
+        synchronized (lock) {
+            firstSeq = nextSeq;
+        }
+        try (DataInputStream in = openForRead()) {
+            if (in == null) {
+                return;
+            }
+            try (FileOutputStream tempOut = new FileOutputStream(temp)) {
+                final DataOutputStream data = new DataOutputStream(tempOut);
+                writeHeader(tempOut, firstSeq);
+                readRecords(in, (seq, json) -> {
+                    if (seq <= ackedSeq) {
+                        String path = clipPathOf(json);
+                        if (path != null) {
+                            released.add(path);
+                        }
+                        return;
+                    }
+                    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+                    data.writeInt(bytes.length);
+                    data.writeLong(seq);
+                    data.write(bytes);
+                    kept[0]++;
+                });
+                data.flush();
+                tempOut.getFD().sync();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("Could not replace journal");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Journal compaction failed: " + e.getMessage(), e);
+            temp.delete();
+            return;
+        }
+        synchronized (lock) {
+            recordCount = kept[0];
+        }
+        for (String path : released) {
+            clipStore.unpin(path, ClipStore.Owner.JOURNAL);
+        }
+        Diagnostics.record(Diagnostics.Event.JOURNAL_COMPACTED, ackedSeq, kept[0]);
+    }
+
+    private void closeOut() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // Nothing left to flush
+            }
+            out = null;
+        }
+    }
+
+    private static void writeHeader(FileOutputStream stream, long firstSeq) throws IOException {
+        byte[] header = new byte[HEADER_BYTES];
+        putLong(header, putInt(header, 0, MAGIC), firstSeq);
+        stream.write(header);
+    }
+
+    private static String clipPathOf(String json) {
+        try {
+            JSONObject extras = new JSONObject(json).optJSONObject("extras");
+            return extras != null ? extras.optString("audioPath", null) : null;
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    private static int putInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+        return offset + 4;
+    }
+
+    private static int putLong(byte[] buffer, int offset, long value) {
+        return putInt(buffer, putInt(buffer, offset, (int) (value >>> 32)), (int) value);
+    }
+}
@@ -0,0 +1,257 @@
+package com.itmikes.capacitorintents;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import java.util.Iterator;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Builds outgoing Intents from the JS description used by {@code sendBroadcastIntents}. Extras
+ * keep their types: JS numbers become int, long or double, arrays become typed arrays, objects
+ * become nested Bundles, and {@code extraTypes} overrides the guess per key. Kept free of
+ * plugin types so it can be benchmarked on a plain JVM.
+ */
+final class IntentFactory {
+
+    private IntentFactory() {}
+
+    static Intent fromJson(JSONObject spec) throws JSONException {
+        String action = optString(spec, "action");
+        if (action == null || action.isEmpty()) {
+            throw new JSONException("Intent needs an action");
+        }
+        Intent intent = new Intent(action);
+
+        JSONObject extras = spec.optJSONObject("extras");
+        if (extras != null) {
+            intent.putExtras(toBundle(extras, spec.optJSONObject("extraTypes")));
+        }
+        // Legacy form: the whole object as one JSON string extra, exactly as sendBroadcastIntent sends it
+        JSONObject value = spec.optJSONObject("value");
+        if (value != null) {
+            Bundle legacy = new Bundle();
+            legacy.putString("value", value.toString());
+            intent.putExtras(legacy);
+        }
+
+        String packageName = optString(spec, "package");
+        if (packageName != null) {
+            intent.setPackage(packageName);
+        }
+        String component = optString(spec, "component");
+        if (component != null) {
+            ComponentName name = ComponentName.unflattenFromString(component);
+            if (name == null) {
+                throw new JSONException("Invalid component (expected package/class): " + component);
+            }
+            intent.setComponent(name);
+        }
+        JSONArray categories = spec.optJSONArray("categories");
+        if (categories != null) {
+            for (int i = 0; i < categories.length(); i++) {
+                intent.addCategory(categories.getString(i));
+            }
+        }
+        // setData and setType each clear the other
+        String data = optString(spec, "data");
+        String type = optString(spec, "type");
+        if (data != null && type != null) {
+            intent.setDataAndType(Uri.parse(data), type);
+        } else if (data != null) {
+            intent.setData(Uri.parse(data));
+        } else if (type != null) {
+            intent.setType(type);
+        }
+        if (!spec.isNull("flags")) {
+            intent.addFlags(spec.getInt("flags"));
+        }
+        return intent;
+    }
+
+    /** Null when the key is absent or JS sent {@code null}, which {@code optString} would turn into "null". */
+    private static String optString(JSONObject object, String key) throws JSONException {
+        return object.isNull(key) ? null : object.getString(key);
+    }
+
+    static Bundle toBundle(JSONObject values, JSONObject types) throws JSONException {
+        Bundle bundle = new Bundle();
+        Iterator<String> keys = values.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            String type = types != null ? optString(types, key) : null;
+            if (type != null) {
+                putTyped(bundle, key, values, type);
+            } else {
+                putInferred(bundle, key, values.get(key));
+            }
+        }
+        return bundle;
+    }
+
+    private static void putInferred(Bundle bundle, String key, Object value) throws JSONException {
+        if (value == JSONObject.NULL) {
+            bundle.putString(key, null);
+        } else if (value instanceof String) {
+            bundle.putString(key, (String) value);
+        } else if (value instanceof Boolean) {
+            bundle.putBoolean(key, (Boolean) value);
+        } else if (value instanceof Integer) {
+            bundle.putInt(key, (Integer) value);
+        } else if (value instanceof Long) {
+            bundle.putLong(key, (Long) value);
+        } else if (value instanceof Number) {
+            putNumber(bundle, key, (Number) value);
+        } else if (value instanceof JSONObject) {
+            bundle.putBundle(key, toBundle((JSONObject) value, null));
+        } else if (value instanceof JSONArray) {
+            putInferredArray(bundle, key, (JSONArray) value);
+        } else {
+            bundle.putString(key, value.toString());
+        }
+    }
+
+    /** JS has one number type; whole values that fit are sent as int or long, the rest as double. */
+    private static void putNumber(Bundle bundle, String key, Number number) {
+        double d = number.doubleValue();
+        if (d == Math.rint(d) && !Double.isInfinite(d) && Math.abs(d) <= 0x1p53) {
+            long l = (long) d;
+            if (l == (int) l) {
+                bundle.putInt(key, (int) l);
+            } else {
+                bundle.putLong(key, l);
+            }
+        } else {
+            bundle.putDouble(key, d);
+        }
+    }
+
+    /** Arrays take the widest element type; mixed or nested arrays fall back to their JSON text. */
+    private static void putInferredArray(Bundle bundle, String key, JSONArray array) throws JSONException {
+        boolean allStrings = true;
+        boolean allBooleans = true;
+        boolean allNumbers = true;
+        boolean allInts = true;
+        boolean allLongs = true;
+        for (int i = 0; i < array.length(); i++) {
+            Object item = array.get(i);
+            allStrings &= item instanceof String;
+            allBooleans &= item instanceof Boolean;
+            if (item instanceof Number) {
+                double d = ((Number) item).doubleValue();
+                boolean whole = d == Math.rint(d) && Math.abs(d) <= 0x1p53;
+                allLongs &= whole;
+                allInts &= whole && (long) d == (int) (long) d;
+            } else {
+                allNumbers = false;
+            }
+        }
+        if (array.length() == 0 || allStrings) {
+            putTypedArray(bundle, key, array, "string[]");
+        } else if (allBooleans) {
+            putTypedArray(bundle, key, array, "boolean[]");
+        } else if (allNumbers && allInts) {
+            putTypedArray(bundle, key, array, "int[]");
+        } else if (allNumbers && allLongs) {
+            putTypedArray(bundle, key, array, "long[]");
+        } else if (allNumbers) {
+            putTypedArray(bundle, key, array, "double[]");
+        } else {
+            bundle.putString(key, array.toString());
+        }
+    }
+
+    private static void putTyped(Bundle bundle, String key, JSONObject values, String type) throws JSONException {
+        switch (type) {
+            case "string":
+                bundle.putString(key, values.isNull(key) ? null : values.get(key).toString());
+                break;
+            case "int":
+                bundle.putInt(key, values.getInt(key));
+                break;
+            case "long":
+                bundle.putLong(key, values.getLong(key));
+                break;
+            case "float":
+                bundle.putFloat(key, (float) values.getDouble(key));
+                break;
+            case "double":
+                bundle.putDouble(key, values.getDouble(key));
+                break;
+            case "boolean":
+                bundle.putBoolean(key, values.getBoolean(key));
+                break;
+            case "bundle":
+                bundle.putBundle(key, toBundle(values.getJSONObject(key), null));
+                break;
+            case "json":
+                bundle.putString(key, values.get(key).toString());
+                break;
+            default:
+                if (type.endsWith("[]")) {
+                    putTypedArray(bundle, key, values.getJSONArray(key), type);
+                    break;
+                }
+                throw new JSONException("Unknown extra type '" + type + "' for " + key);
+        }
+    }
+
+    private static void putTypedArray(Bundle bundle, String key, JSONArray array, String type) throws JSONException {
+        int length = array.length();
+        switch (type) {
+            case "string[]": {
+                String[] out = new String[length];
+                for (int i = 0; i < length; i++) {
+                    out[i] = array.isNull(i) ? null : array.get(i).toString();
+                }
+                bundle.putStringArray(key, out);
+                break;
+            }
+            case "int[]": {
+                int[] out = new int[length];
+                for (int i = 0; i < length; i++) {
+                    out[i] = array.getInt(i);
+                }
+                bundle.putIntArray(key, out);
+                break;
+            }
+            case "long[]": {
+                long[] out = new long[length];
+                for (int i = 0; i < length; i++) {
+                    out[i] = array.getLong(i);
+                }
+                bundle.putLongArray(key, out);
+                break;
+            }
+            case "float[]": {
+                float[] out = new float[length];
+                for (int i = 0; i < length; i++) {
+                    out[i] = (float) array.getDouble(i);
+                }
+                bundle.putFloatArray(key, out);
+                break;
+            }
+            case "double[]": {
+                double[] out = new double[length];
+                for (int i = 0; i < length; i++) {
+                    out[i] = array.getDouble(i);
+                }
+                bundle.putDoubleArray(key, out);
+                break;
+            }
+            case "boolean[]": {
+                boolean[] out = new boolean[length];
+                for (int i = 0; i < length; i++) {
+                    out[i] = array.getBoolean(i);
+                }
+                bundle.putBooleanArray(key, out);
+                break;
+            }
+            default:
+                throw new JSONException("Unknown extra type '" + type + "' for " + key);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.itmikes.capacitorintents;
+
+import android.content.Intent;
+import android.os.Bundle;
+import com.getcapacitor.JSArray;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The {@code match} conditions of a subscription, checked against the raw intent before it is
+ * serialized, so broadcasts a subscriber would discard in JS cost a few Bundle lookups instead of
+ * a full JSON conversion and a bridge crossing. All conditions must hold.
+ */
+class IntentPredicate {
+
+    private static final int EXTRA = 0;
+    private static final int CATEGORY = 1;
+    private static final int SCHEME = 2;
+    private static final int TYPE = 3;
+    private static final int PACKAGE = 4;
+
+    /** One compiled condition; exactly one of the operators is set. */
+    private static final class Condition {
+
+        final int field;
+        final String key;
+        final Boolean exists;
+        final Object equals;
+        final List<Object> in;
+        final String prefix;
+
+        Condition(int field, String key, Boolean exists, Object equals, List<Object> in, String prefix) {
+            this.field = field;
+            this.key = key;
+            this.exists = exists;
+            this.equals = equals;
+            this.in = in;
+            this.prefix = prefix;
+        }
+    }
+
+    /** Supplies an intent's extras. {@code getExtras()} copies the Bundle, so callers share one copy. */
+    interface Extras {
+        /** Raw extras, or null; not to be modified. */
+        Bundle extras();
+    }
+
+    private final Condition[] conditions;
+
+    private IntentPredicate(Condition[] conditions) {
+        this.conditions = conditions;
+    }
+
+    /** Returns null when the array is absent or empty, i.e. every intent matches. */
+    static IntentPredicate fromJson(JSArray match) throws JSONException {
+        if (match == null || match.length() == 0) {
+            return null;
+        }
+        Condition[] conditions = new Condition[match.length()];
+        for (int i = 0; i < match.length(); i++) {
+            conditions[i] = compile(match.getJSONObject(i));
+        }
+        return new IntentPredicate(conditions);
+    }
+
+    private static Condition compile(JSONObject spec) throws JSONException {
+        int field;
+        // optString turns an explicit JSON null into "null"
+        String key = spec.isNull("extra") ? null : spec.getString("extra");
+        if (key != null) {
+            field = EXTRA;
+        } else {
+            String name = spec.optString("field", "");
+            switch (name) {
+                case "category":
+                    field = CATEGORY;
+                    break;
+                case "scheme":
+                    field = SCHEME;
+                    break;
+                case "type":
+                    field = TYPE;
+                    break;
+                case "package":
+                    field = PACKAGE;
+                    break;
+                default:
+                    throw new JSONException("match needs 'extra' or a 'field' of category, scheme, type or package: " + spec);
+            }
+        }
+        Boolean exists = spec.has("exists") ? spec.getBoolean("exists") : null;
+        Object equals = spec.has("equals") ? spec.get("equals") : null;
+        List<Object> in = null;
+        if (spec.has("in")) {
+            JSONArray values = spec.getJSONArray("in");
+            in = new ArrayList<>(values.length());
+            for (int i = 0; i < values.length(); i++) {
+                in.add(values.get(i));
+            }
+        }
+        String prefix = spec.has("prefix") ? spec.getString("prefix") : null;
+        int operators = (exists != null ? 1 : 0) + (equals != null ? 1 : 0) + (in != null ? 1 : 0) + (prefix != null ? 1 : 0);
+        if (operators != 1) {
+            throw new JSONException("match needs exactly one of equals, in, exists or prefix: " + spec);
+        }
+        return new Condition(field, key, exists, equals, in, prefix);
+    }
+
+    /** Extras are only fetched if an extra condition is reached, and then once. */
+    boolean matches(Intent intent, Extras source) {
+        Bundle extras = null;
+        boolean extrasRead = false;
+        for (Condition condition : conditions) {
+            boolean holds;
+            switch (condition.field) {
+                case EXTRA: {
+                    if (!extrasRead) {
+                        extras = source.extras();
+                        extrasRead = true;
+                    }
+                    holds = test(condition, extras != null ? extras.get(condition.key) : null);
+                    break;
+                }
+                case CATEGORY:
+                    holds = testCategories(condition, intent.getCategories());
+                    break;
+                case SCHEME:
+                    holds = test(condition, intent.getScheme());
+                    break;
+                case TYPE:
+                    holds = test(condition, intent.getType());
+                    break;
+                default:
+                    holds = test(condition, intent.getPackage());
+                    break;
+            }
+            if (!holds) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** PTT service events only have extras; conditions on intent fields see them as absent. */
+    boolean matches(PttEvent event) {
+        for (Condition condition : conditions) {
+            Object value = condition.field == EXTRA ? event.extras.get(condition.key) : null;
+            boolean holds = condition.field == CATEGORY ? testCategories(condition, null) : test(condition, value);
+            if (!holds) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean testCategories(Condition condition, Set<String> categories) {
+        if (categories == null) {
+            categories = Collections.emptySet();
+        }
+        if (condition.exists != null) {
+            return condition.exists != categories.isEmpty();
+        }
+        for (String category : categories) {
+            if (test(condition, category)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean test(Condition condition, Object value) {
+        if (condition.exists != null) {
+            return condition.exists == (value != null);
+        }
+        if (value == null) {
+            return false;
+        }
+        if (condition.prefix != null) {
+            return value instanceof CharSequence && value.toString().startsWith(condition.prefix);
+        }
+        if (condition.equals != null) {
+            return same(value, condition.equals);
+        }
+        for (Object candidate : condition.in) {
+            if (same(value, candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Compares an extra with a JSON value: numbers by value whatever their width, the rest by their text. */
+    private static boolean same(Object value, Object expected) {
+        if (value instanceof Number && expected instanceof Number) {
+            return ((Number) value).doubleValue() == ((Number) expected).doubleValue();
+        }
+        if (value instanceof Boolean || expected instanceof Boolean) {
+            return value.equals(expected);
+        }
+        return value.toString().equals(expected.toString());
+    }
+}
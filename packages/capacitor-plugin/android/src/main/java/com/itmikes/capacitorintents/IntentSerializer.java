@@ -0,0 +1,229 @@
+package com.itmikes.capacitorintents;
+
+import android.content.ClipData;
+import android.content.ContentResolver;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.webkit.MimeTypeMap;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import java.util.ArrayList;
+import org.json.JSONException;
+
+/**
+ * Converts a received {@link Intent} into the {@link JSObject} handed to JS, in a single pass.
+ *
+ * Output matches the previous {@code JSONObject} + {@code JSObject.fromJSONObject} path key for key:
+ * Integer, Long, Double, Boolean and String values pass through, everything else (Byte, Short,
+ * Character, Float, Uri, ...) is stringified. Primitive arrays are walked without reflection or boxing.
+ */
+class IntentSerializer {
+
+    //  Credit: https://github.com/napolitano/cordova-plugin-intent and
+    //  https://github.com/darryncampbell/darryncampbell-cordova-plugin-intent for the original format
+
+    private static final String[] BYTE_STRINGS = new String[256];
+
+    static {
+        for (int i = 0; i < BYTE_STRINGS.length; i++) {
+            BYTE_STRINGS[i] = String.valueOf((byte) i);
+        }
+    }
+
+    private final ContentResolver contentResolver;
+    private final MimeTypeMap mimeTypeMap;
+
+    IntentSerializer(ContentResolver contentResolver, MimeTypeMap mimeTypeMap) {
+        this.contentResolver = contentResolver;
+        this.mimeTypeMap = mimeTypeMap;
+    }
+
+    JSObject serialize(Intent intent) throws JSONException {
+        return serialize(intent, PayloadShape.FULL);
+    }
+
+    /** Data the shape excludes is never read from the intent, let alone converted. */
+    JSObject serialize(Intent intent, PayloadShape shape) throws JSONException {
+        JSObject result = new JSObject();
+
+        if (shape.includeClipData) {
+            ClipData clipData = intent.getClipData();
+            if (clipData != null) {
+                result.put("clipItems", serializeClipData(clipData));
+            }
+        }
+
+        if (shape.includeMetadata) {
+            result.put("type", intent.getType());
+        }
+        if (shape.includeExtras == null || !shape.includeExtras.isEmpty()) {
+            result.put("extras", serializeExtras(intent.getExtras(), shape));
+        }
+        result.put("action", intent.getAction());
+        if (shape.includeMetadata) {
+            result.put("categories", intent.getCategories());
+            result.put("flags", intent.getFlags());
+            result.put("component", intent.getComponent());
+            result.put("data", intent.getData());
+            result.put("package", intent.getPackage());
+        }
+        result.put("pttType", intent.getStringExtra("originalAction")); // For PTT-specific type
+        return result;
+    }
+
+    /**
+     * Same output as serializing the broadcast the event would otherwise have been sent as; the
+     * metadata an in-process event lacks (type, categories, component, data, package) is null.
+     */
+    JSObject serialize(PttEvent event, PayloadShape shape) throws JSONException {
+        JSObject result = new JSObject();
+        if (shape.includeExtras == null || !shape.includeExtras.isEmpty()) {
+            result.put("extras", serializeExtras(event.extras, shape));
+        }
+        result.put("action", event.action);
+        if (shape.includeMetadata) {
+            result.put("flags", 0);
+        }
+        result.put("pttType", event.extras.getString("originalAction"));
+        return result;
+    }
+
+    private static JSObject serializeExtras(Bundle extras, PayloadShape shape) throws JSONException {
+        if (extras == null) {
+            return null;
+        }
+        if (shape.includeExtras == null) {
+            return (JSObject) toJsonValue(extras, 0, shape);
+        }
+        final JSObject result = new JSObject();
+        for (final String key : shape.includeExtras) {
+            if (extras.containsKey(key)) {
+                result.put(key, toJsonValue(extras.get(key), 1, shape));
+            }
+        }
+        return result;
+    }
+
+    private JSArray serializeClipData(ClipData clipData) {
+        int clipItemCount = clipData.getItemCount();
+        JSArray items = new JSArray();
+        for (int i = 0; i < clipItemCount; i++) {
+            ClipData.Item item = clipData.getItemAt(i);
+            JSObject json = new JSObject();
+            json.put("htmlText", item.getHtmlText());
+            json.put("intent", item.getIntent());
+            json.put("text", item.getText());
+            Uri uri = item.getUri();
+            json.put("uri", uri);
+            if (uri != null) {
+                String type = contentResolver.getType(uri);
+                json.put("type", type);
+                json.put("extension", mimeTypeMap.getExtensionFromMimeType(type));
+            }
+            items.put(json);
+        }
+        return items;
+    }
+
+    /**
+     * {@code depth} is the nesting level of {@code value} below the extras object (which is level 0).
+     * Containers deeper than the shape allows are dropped without being walked.
+     */
+    private static Object toJsonValue(final Object value, final int depth, final PayloadShape shape) throws JSONException {
+        if (value == null) {
+            return null;
+        } else if (value instanceof Bundle) {
+            if (depth > shape.maxDepth) {
+                return null;
+            }
+            final Bundle bundle = (Bundle) value;
+            final JSObject result = new JSObject();
+            for (final String key : bundle.keySet()) {
+                result.put(key, toJsonValue(bundle.get(key), depth + 1, shape));
+            }
+            return result;
+        } else if (value instanceof Object[]) {
+            if (depth > shape.maxDepth) {
+                return null;
+            }
+            final Object[] array = (Object[]) value;
+            final JSArray result = new JSArray();
+            final int length = Math.min(array.length, shape.maxArrayLength);
+            for (int i = 0; i < length; i++) {
+                result.put(toJsonValue(array[i], depth + 1, shape));
+            }
+            return result;
+        } else if (value.getClass().isArray()) {
+            return depth > shape.maxDepth ? null : toJsonArray(value, shape.maxArrayLength);
+        } else if (value instanceof ArrayList<?>) {
+            if (depth > shape.maxDepth) {
+                return null;
+            }
+            final ArrayList<?> arrayList = (ArrayList<?>) value;
+            final JSArray result = new JSArray();
+            final int length = Math.min(arrayList.size(), shape.maxArrayLength);
+            for (int i = 0; i < length; i++) {
+                result.put(toJsonValue(arrayList.get(i), depth + 1, shape));
+            }
+            return result;
+        } else if (
+            value instanceof String ||
+            value instanceof Boolean ||
+            value instanceof Integer ||
+            value instanceof Long ||
+            value instanceof Double
+        ) {
+            return value;
+        } else {
+            return String.valueOf(value);
+        }
+    }
+
+    /** Primitive arrays, specialised per component type and truncated to {@code limit} elements. */
+    private static JSArray toJsonArray(final Object array, final int limit) throws JSONException {
+        final JSArray result = new JSArray();
+        if (array instanceof byte[]) {
+            final byte[] elements = (byte[]) array;
+            for (int i = 0, n = Math.min(elements.length, limit); i < n; i++) {
+                result.put(BYTE_STRINGS[elements[i] & 0xFF]);
+            }
+        } else if (array instanceof int[]) {
+            final int[] elements = (int[]) array;
+            for (int i = 0, n = Math.min(elements.length, limit); i < n; i++) {
+                result.put(elements[i]);
+            }
+        } else if (array instanceof long[]) {
+            final long[] elements = (long[]) array;
+            for (int i = 0, n = Math.min(elements.length, limit); i < n; i++) {
+                result.put(elements[i]);
+            }
+        } else if (array instanceof double[]) {
+            final double[] elements = (double[]) array;
+            for (int i = 0, n = Math.min(elements.length, limit); i < n; i++) {
+                result.put(elements[i]);
+            }
+        } else if (array instanceof boolean[]) {
+            final boolean[] elements = (boolean[]) array;
+            for (int i = 0, n = Math.min(elements.length, limit); i < n; i++) {
+                result.put(elements[i]);
+            }
+        } else if (array instanceof float[]) {
+            final float[] elements = (float[]) array;
+            for (int i = 0, n = Math.min(elements.length, limit); i < n; i++) {
+                result.put(String.valueOf(elements[i]));
+            }
+        } else if (array instanceof short[]) {
+            final short[] elements = (short[]) array;
+            for (int i = 0, n = Math.min(elements.length, limit); i < n; i++) {
+                result.put(String.valueOf(elements[i]));
+            }
+        } else if (array instanceof char[]) {
+            final char[] elements = (char[]) array;
+            for (int i = 0, n = Math.min(elements.length, limit); i < n; i++) {
+                result.put(String.valueOf(elements[i]));
+            }
+        }
+        return result;
+    }
+}
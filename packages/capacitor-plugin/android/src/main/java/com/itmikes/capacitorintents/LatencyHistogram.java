@@ -0,0 +1,94 @@
+package com.itmikes.capacitorintents;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear latency histogram. Values are recorded in microseconds into power-of-two
+ * ranges split into {@link #SUB_BUCKETS} linear sub-buckets, so percentiles are accurate to
+ * within 1/{@link #SUB_BUCKETS} of the value. Recording is a couple of atomic adds, no allocation.
+ */
+class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // 2^40 us is ~12 days; anything longer lands in the last bucket
+    private static final int RANGES = 40;
+
+    private final AtomicLongArray counts = new AtomicLongArray(RANGES * SUB_BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(bucketIndex(micros));
+        total.incrementAndGet();
+        sumMicros.addAndGet(micros);
+        long max;
+        while (micros > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, micros)) {
+            // Retry until our value is stored or a larger one wins
+        }
+    }
+
+    long count() {
+        return total.get();
+    }
+
+    double meanMillis() {
+        long n = total.get();
+        return n == 0 ? 0 : sumMicros.get() / (double) n / 1000.0;
+    }
+
+    double maxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+
+    /** Upper bound of the bucket holding the given percentile (0-100), in milliseconds. */
+    double percentileMillis(double percentile) {
+        long n = total.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * n);
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketUpperMicros(i), maxMicros.get()) / 1000.0;
+            }
+        }
+        return maxMillis();
+    }
+
+    void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        sumMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    private static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int range = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS + 1;
+        if (range >= RANGES) {
+            return RANGES * SUB_BUCKETS - 1;
+        }
+        int sub = (int) (micros >>> (range - 1)) & (SUB_BUCKETS - 1);
+        return range * SUB_BUCKETS + sub;
+    }
+
+    private static long bucketUpperMicros(int index) {
+        int range = index / SUB_BUCKETS;
+        int sub = index % SUB_BUCKETS;
+        if (range == 0) {
+            return sub;
+        }
+        long width = 1L << (range - 1);
+        return ((long) (SUB_BUCKETS + sub) << (range - 1)) + width - 1;
+    }
+}
@@ -0,0 +1,84 @@
+package com.itmikes.capacitorintents;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.PluginCall;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import org.json.JSONException;
+
+/**
+ * Per-subscription limits on what {@link IntentSerializer} walks and emits. Subscriptions with
+ * equal shapes share one serialized payload.
+ */
+class PayloadShape {
+
+    static final PayloadShape FULL = new PayloadShape(null, true, true, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    /** Extras keys to emit, or null for all of them. */
+    final Set<String> includeExtras;
+    final boolean includeClipData;
+    /** type, categories, flags, component, data and package. */
+    final boolean includeMetadata;
+    /** Nesting levels of Bundles / arrays walked below the extras object. */
+    final int maxDepth;
+    final int maxArrayLength;
+
+    PayloadShape(Set<String> includeExtras, boolean includeClipData, boolean includeMetadata, int maxDepth, int maxArrayLength) {
+        this.includeExtras = includeExtras;
+        this.includeClipData = includeClipData;
+        this.includeMetadata = includeMetadata;
+        this.maxDepth = maxDepth;
+        this.maxArrayLength = maxArrayLength;
+    }
+
+    /** This shape, emitting only {@code keys} of the extras; used for {@code deltaMode} updates. */
+    PayloadShape withExtras(Set<String> keys) {
+        return new PayloadShape(keys, includeClipData, includeMetadata, maxDepth, maxArrayLength);
+    }
+
+    static PayloadShape fromCall(PluginCall call) throws JSONException {
+        JSArray keys = call.getArray("includeExtras");
+        Boolean clipData = call.getBoolean("includeClipData");
+        Boolean metadata = call.getBoolean("includeMetadata");
+        Integer maxDepth = call.getInt("maxDepth");
+        Integer maxArrayLength = call.getInt("maxArrayLength");
+        if (keys == null && clipData == null && metadata == null && maxDepth == null && maxArrayLength == null) {
+            return FULL;
+        }
+        Set<String> includeExtras = null;
+        if (keys != null) {
+            includeExtras = new LinkedHashSet<>();
+            for (int i = 0; i < keys.length(); i++) {
+                includeExtras.add(keys.getString(i));
+            }
+        }
+        return new PayloadShape(
+            includeExtras,
+            clipData == null || clipData,
+            metadata == null || metadata,
+            maxDepth != null ? Math.max(0, maxDepth) : Integer.MAX_VALUE,
+            maxArrayLength != null ? Math.max(0, maxArrayLength) : Integer.MAX_VALUE
+        );
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PayloadShape)) return false;
+        PayloadShape other = (PayloadShape) o;
+        return (
+            includeClipData == other.includeClipData &&
+            includeMetadata == other.includeMetadata &&
+            maxDepth == other.maxDepth &&
+            maxArrayLength == other.maxArrayLength &&
+            Objects.equals(includeExtras, other.includeExtras)
+        );
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(new Object[] { includeExtras, includeClipData, includeMetadata, maxDepth, maxArrayLength });
+    }
+}
@@ -0,0 +1,61 @@
+package com.itmikes.capacitorintents;
+
+/**
+ * Fixed-capacity FIFO of 16-bit PCM bytes. Writing past capacity overwrites the oldest audio.
+ * Never allocates after construction; not thread-safe, callers hold their own lock.
+ */
+class PcmRingBuffer {
+
+    private final byte[] data;
+    private int head; // Next write position
+    private int size;
+
+    PcmRingBuffer(int capacity) {
+        this.data = new byte[capacity & ~1]; // Whole samples only
+    }
+
+    int capacity() {
+        return data.length;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void write(byte[] src, int offset, int length) {
+        if (length >= data.length) {
+            // Only the newest capacity bytes survive
+            System.arraycopy(src, offset + length - data.length, data, 0, data.length);
+            head = 0;
+            size = data.length;
+            return;
+        }
+        int first = Math.min(length, data.length - head);
+        System.arraycopy(src, offset, data, head, first);
+        System.arraycopy(src, offset + first, data, 0, length - first);
+        head = (head + length) % data.length;
+        size = Math.min(size + length, data.length);
+    }
+
+    /** Removes up to {@code length} of the oldest bytes into {@code dst}; returns the count. */
+    int read(byte[] dst, int offset, int length) {
+        int count = Math.min(length, size) & ~1;
+        int tail = (head - size + data.length) % data.length;
+        int first = Math.min(count, data.length - tail);
+        System.arraycopy(data, tail, dst, offset, first);
+        System.arraycopy(data, 0, dst, offset + first, count - first);
+        size -= count;
+        return count;
+    }
+
+    /** Drops the oldest bytes so at most {@code maxSize} remain. */
+    void trimTo(int maxSize) {
+        if (size > maxSize) {
+            size = maxSize & ~1;
+        }
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
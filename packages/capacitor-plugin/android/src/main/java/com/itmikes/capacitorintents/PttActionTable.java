@@ -0,0 +1,106 @@
+package com.itmikes.capacitorintents;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Hardware PTT actions compiled once into an action-to-direction table, so each key intent costs
+ * one hash lookup. Built from vendor presets and/or explicit down/up pairs passed to
+ * {@code startPttService}.
+ */
+class PttActionTable {
+
+    enum Direction {
+        DOWN,
+        UP
+    }
+
+    private static final Map<String, String[]> VENDOR_PRESETS = new HashMap<>();
+
+    static {
+        VENDOR_PRESETS.put("android", new String[] { "android.intent.action.PTT.down", "android.intent.action.PTT.up" });
+        VENDOR_PRESETS.put("ulefone", new String[] { "com.ulefone.ptt.key.down", "com.ulefone.ptt.key.up" });
+        VENDOR_PRESETS.put("sonim", new String[] { "com.sonim.intent.action.PTT_KEY_DOWN", "com.sonim.intent.action.PTT_KEY_UP" });
+        VENDOR_PRESETS.put("runbo", new String[] { "com.runbo.ptt.key.down", "com.runbo.ptt.key.up" });
+        VENDOR_PRESETS.put("generic", new String[] { "com.ptt.key.down", "com.ptt.key.up" });
+        VENDOR_PRESETS.put("zello", new String[] { "com.zello.ptt.down", "com.zello.ptt.up" });
+    }
+
+    private final Map<String, Direction> directions;
+
+    private PttActionTable(Map<String, Direction> directions) {
+        this.directions = Collections.unmodifiableMap(directions);
+    }
+
+    /** The actions the service has always listened for. */
+    static PttActionTable defaults() {
+        Map<String, Direction> directions = new HashMap<>();
+        addPreset(directions, "android");
+        return new PttActionTable(directions);
+    }
+
+    /**
+     * Reads {@code pttVendors} (preset names) and {@code pttActions} ({@code [{ down, up }]}).
+     * Unknown vendors are skipped; with neither option the defaults apply.
+     */
+    static PttActionTable fromOptions(JSONObject options) {
+        JSONArray vendors = options.optJSONArray("pttVendors");
+        JSONArray pairs = options.optJSONArray("pttActions");
+        if (vendors == null && pairs == null) {
+            return defaults();
+        }
+        Map<String, Direction> directions = new HashMap<>();
+        if (vendors != null) {
+            for (int i = 0; i < vendors.length(); i++) {
+                addPreset(directions, vendors.optString(i));
+            }
+        }
+        if (pairs != null) {
+            for (int i = 0; i < pairs.length(); i++) {
+                JSONObject pair = pairs.optJSONObject(i);
+                if (pair != null) {
+                    put(directions, pair.optString("down", null), Direction.DOWN);
+                    put(directions, pair.optString("up", null), Direction.UP);
+                }
+            }
+        }
+        return directions.isEmpty() ? defaults() : new PttActionTable(directions);
+    }
+
+    private static void addPreset(Map<String, Direction> directions, String vendor) {
+        String[] actions = VENDOR_PRESETS.get(vendor);
+        if (actions != null) {
+            directions.put(actions[0], Direction.DOWN);
+            directions.put(actions[1], Direction.UP);
+        }
+    }
+
+    private static void put(Map<String, Direction> directions, String action, Direction direction) {
+        if (action != null && !action.isEmpty()) {
+            directions.put(action, direction);
+        }
+    }
+
+    /** Null for actions the table does not know. */
+    Direction direction(String action) {
+        return action == null ? null : directions.get(action);
+    }
+
+    Set<String> actions() {
+        return directions.keySet();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PttActionTable && directions.equals(((PttActionTable) o).directions);
+    }
+
+    @Override
+    public int hashCode() {
+        return directions.hashCode();
+    }
+}
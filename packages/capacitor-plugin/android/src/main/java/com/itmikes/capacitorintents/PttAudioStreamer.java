@@ -0,0 +1,385 @@
+package com.itmikes.capacitorintents;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaRecorder;
+import android.util.Log;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Captures PCM with {@link AudioRecord}, encodes it to AAC-LC (ADTS framed) with
+ * {@link MediaCodec} and hands out fixed-size encoded chunks while PTT is held.
+ * The complete stream is also written to a file so the key-up event still carries the clip.
+ */
+class PttAudioStreamer {
+
+    private static final String TAG = "PttAudioStreamer";
+    private static final int ADTS_HEADER_LENGTH = 7;
+    private static final long CODEC_TIMEOUT_US = 10_000;
+    private static final int MAX_DRAIN_RETRIES = 100;
+    // One AAC frame is 1024 samples; read at most that much so chunks leave promptly
+    static final int PCM_READ_BYTES = 1024 * 2;
+    private static final int[] ADTS_SAMPLE_RATES = {
+        96000, 88200, 64000, 48000, 44100, 32000, 24000, 22050, 16000, 12000, 11025, 8000
+    };
+
+    interface Listener {
+        /** Called on the capture thread; {@code data} is reused after the call returns. */
+        void onChunk(int sequence, long captureTimeMs, byte[] data, int length, boolean last);
+
+        /** Called once on the capture thread when the first PCM buffer has been read. */
+        void onFirstAudio();
+
+        void onError(Exception e);
+    }
+
+    /** Supplies 16-bit mono PCM at the streamer's sample rate, e.g. from {@link PttPreRollCapture}. */
+    interface PcmSource {
+        int read(byte[] buffer, int offset, int length) throws IOException;
+
+        /** Audio still buffered inside the source once capture has stopped; 0 when there is none. */
+        default int flush(byte[] buffer, int offset, int length) {
+            return 0;
+        }
+    }
+
+    /** Splits a long capture into separate ADTS files; every frame is self-contained, so any frame boundary will do. */
+    interface SegmentSink {
+        /** Called on the capture thread; returns the file the next segment is written to. */
+        File nextSegmentFile();
+
+        /** Called on the capture thread once {@code segment} is closed and complete. */
+        void onSegment(File segment, long durationMs);
+    }
+
+    private final int sampleRate;
+    private final int bitRate;
+    private final Listener listener;
+    private final byte[] chunk;
+    private final byte[] adtsHeader = new byte[ADTS_HEADER_LENGTH];
+    private byte[] frame = new byte[2048];
+
+    private AudioRecord audioRecord; // Only set when the streamer owns its microphone
+    private PcmSource source;
+    private MediaCodec codec;
+    private FileOutputStream output;
+    private File outputFile;
+    private long segmentMs;
+    private SegmentSink segmentSink;
+    private long segmentStartMs;
+    private UnaryOperator<PcmSource> pcmFilter;
+    private Thread captureThread;
+    private volatile boolean running;
+    // Guarded by this: a capture thread that outlives stop()'s wait releases the codec itself
+    private boolean loopExited;
+    private boolean releaseOnExit;
+
+    private int chunkLength;
+    private int sequence;
+    private long chunkCaptureTimeMs;
+    private long startTimeMs;
+
+    PttAudioStreamer(int sampleRate, int bitRate, int chunkBytes, Listener listener) {
+        this.sampleRate = sampleRate;
+        this.bitRate = bitRate;
+        this.listener = listener;
+        this.chunk = new byte[chunkBytes];
+    }
+
+    /** Rotates the output file every {@code segmentMs} of captured audio. Call before {@code start}. */
+    void setSegments(long segmentMs, SegmentSink sink) {
+        this.segmentMs = segmentMs;
+        this.segmentSink = sink;
+    }
+
+    /** Puts a stage such as {@link SilenceTrimmer} between the source and the encoder. Call before {@code start}. */
+    void setPcmFilter(UnaryOperator<PcmSource> filter) {
+        this.pcmFilter = filter;
+    }
+
+    void start(File outputFile) throws IOException {
+        start(outputFile, null, 0);
+    }
+
+    /**
+     * Encodes from {@code pcmSource} instead of opening the microphone. {@code leadInMs} is how much
+     * already-captured audio the source starts with, so chunk timestamps stay in capture time.
+     */
+    void start(File outputFile, PcmSource pcmSource, long leadInMs) throws IOException {
+        int minBuffer = AudioRecord.getMinBufferSize(sampleRate, AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        if (pcmSource != null) {
+            source = pcmSource;
+        } else {
+            audioRecord = new AudioRecord(
+                MediaRecorder.AudioSource.VOICE_COMMUNICATION,
+                sampleRate,
+                AudioFormat.CHANNEL_IN_MONO,
+                AudioFormat.ENCODING_PCM_16BIT,
+                Math.max(minBuffer * 2, sampleRate / 5)
+            );
+            if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
+                release();
+                throw new IOException("AudioRecord failed to initialize");
+            }
+            source = audioRecord::read;
+        }
+        if (pcmFilter != null) {
+            source = pcmFilter.apply(source);
+        }
+
+        MediaFormat format = MediaFormat.createAudioFormat(MediaFormat.MIMETYPE_AUDIO_AAC, sampleRate, 1);
+        format.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, bitRate);
+        format.setInteger(MediaFormat.KEY_MAX_INPUT_SIZE, minBuffer * 2);
+        codec = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_AUDIO_AAC);
+        codec.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+
+        output = new FileOutputStream(outputFile);
+        this.outputFile = outputFile;
+        codec.start();
+        if (audioRecord != null) {
+            audioRecord.startRecording();
+        }
+        startTimeMs = System.currentTimeMillis() - leadInMs;
+        chunkCaptureTimeMs = startTimeMs;
+        segmentStartMs = startTimeMs;
+        running = true;
+        synchronized (this) {
+            loopExited = false;
+            releaseOnExit = false;
+        }
+
+        captureThread = new Thread(this::captureLoop, "PttAudioStreamer");
+        captureThread.setPriority(Thread.MAX_PRIORITY);
+        captureThread.start();
+    }
+
+    /**
+     * Stops capture, drains the encoder and emits the final (possibly short) chunk. Blocks until done,
+     * or for 2 s at most; a capture thread still draining then releases the codec when it exits,
+     * never under its feet.
+     */
+    void stop() {
+        running = false;
+        if (captureThread != null) {
+            try {
+                captureThread.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            captureThread = null;
+            synchronized (this) {
+                if (!loopExited) {
+                    Log.w(TAG, "Capture thread still draining after 2 s; it will release the encoder");
+                    releaseOnExit = true;
+                    return;
+                }
+            }
+        }
+        release();
+    }
+
+    /** The file being written; once stopped, the last one written. */
+    File currentFile() {
+        return outputFile;
+    }
+
+    private void captureLoop() {
+        MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+        byte[] pcm = new byte[PCM_READ_BYTES];
+        long totalSamples = 0;
+        // Held across reads that return nothing (the trimmer swallowing silence), so the encoder
+        // never sees empty frames
+        int inIndex = -1;
+        try {
+            while (running) {
+                if (inIndex < 0) {
+                    inIndex = codec.dequeueInputBuffer(CODEC_TIMEOUT_US);
+                }
+                if (inIndex >= 0) {
+                    ByteBuffer in = codec.getInputBuffer(inIndex);
+                    in.clear();
+                    int read = source.read(pcm, 0, Math.min(pcm.length, in.remaining()));
+                    if (read < 0) {
+                        throw new IOException("PCM read failed: " + read);
+                    }
+                    if (read > 0) {
+                        if (totalSamples == 0) {
+                            listener.onFirstAudio();
+                        }
+                        in.put(pcm, 0, read);
+                        codec.queueInputBuffer(inIndex, 0, read, totalSamples * 1_000_000L / sampleRate, 0);
+                        totalSamples += read / 2;
+                        inIndex = -1;
+                    }
+                }
+                drain(info, false);
+            }
+
+            // Audio the source still holds, e.g. speech the trimmer is paying out, goes in before end of stream
+            if (inIndex < 0) {
+                inIndex = codec.dequeueInputBuffer(CODEC_TIMEOUT_US);
+            }
+            while (inIndex >= 0) {
+                ByteBuffer in = codec.getInputBuffer(inIndex);
+                in.clear();
+                int flushed = source.flush(pcm, 0, Math.min(pcm.length, in.remaining()));
+                if (flushed <= 0) {
+                    break;
+                }
+                in.put(pcm, 0, flushed);
+                codec.queueInputBuffer(inIndex, 0, flushed, totalSamples * 1_000_000L / sampleRate, 0);
+                totalSamples += flushed / 2;
+                drain(info, false);
+                inIndex = codec.dequeueInputBuffer(CODEC_TIMEOUT_US);
+            }
+            if (inIndex >= 0) {
+                codec.queueInputBuffer(inIndex, 0, 0, totalSamples * 1_000_000L / sampleRate, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                drain(info, true);
+            }
+            emitChunk(true);
+        } catch (Exception e) {
+            Log.e(TAG, "Streaming capture failed: " + e.getMessage(), e);
+            listener.onError(e);
+        } finally {
+            synchronized (this) {
+                loopExited = true;
+                if (releaseOnExit) {
+                    release();
+                }
+            }
+        }
+    }
+
+    private void drain(MediaCodec.BufferInfo info, boolean endOfStream) throws IOException {
+        int retries = 0;
+        while (true) {
+            int outIndex = codec.dequeueOutputBuffer(info, endOfStream ? CODEC_TIMEOUT_US : 0);
+            if (outIndex == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                if (!endOfStream || ++retries > MAX_DRAIN_RETRIES) {
+                    return;
+                }
+                continue;
+            }
+            if (outIndex < 0) {
+                continue; // Format / buffer changes carry nothing we need for ADTS output
+            }
+            boolean eos = (info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+            if ((info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0 && info.size > 0) {
+                if (frame.length < info.size) {
+                    frame = new byte[info.size];
+                }
+                ByteBuffer out = codec.getOutputBuffer(outIndex);
+                out.position(info.offset);
+                out.limit(info.offset + info.size);
+                out.get(frame, 0, info.size);
+                writeAdtsHeader(info.size);
+                long frameTimeMs = startTimeMs + info.presentationTimeUs / 1000;
+                if (segmentSink != null && frameTimeMs - segmentStartMs >= segmentMs) {
+                    rotate(frameTimeMs);
+                }
+                write(adtsHeader, ADTS_HEADER_LENGTH, frameTimeMs);
+                write(frame, info.size, frameTimeMs);
+            }
+            codec.releaseOutputBuffer(outIndex, false);
+            if (eos) {
+                return;
+            }
+        }
+    }
+
+    private void rotate(long frameTimeMs) throws IOException {
+        File next = segmentSink.nextSegmentFile();
+        File finished = outputFile;
+        output.close();
+        output = new FileOutputStream(next);
+        outputFile = next;
+        segmentSink.onSegment(finished, frameTimeMs - segmentStartMs);
+        segmentStartMs = frameTimeMs;
+    }
+
+    private void write(byte[] data, int length, long frameTimeMs) throws IOException {
+        output.write(data, 0, length);
+        int offset = 0;
+        while (offset < length) {
+            if (chunkLength == 0) {
+                chunkCaptureTimeMs = frameTimeMs;
+            }
+            int count = Math.min(chunk.length - chunkLength, length - offset);
+            System.arraycopy(data, offset, chunk, chunkLength, count);
+            chunkLength += count;
+            offset += count;
+            if (chunkLength == chunk.length) {
+                emitChunk(false);
+            }
+        }
+    }
+
+    private void emitChunk(boolean last) {
+        if (chunkLength == 0 && !last) {
+            return;
+        }
+        listener.onChunk(sequence++, chunkCaptureTimeMs, chunk, chunkLength, last);
+        chunkLength = 0;
+    }
+
+    private void writeAdtsHeader(int payloadLength) {
+        int frameLength = payloadLength + ADTS_HEADER_LENGTH;
+        int profile = 2; // AAC LC
+        int channels = 1;
+        int rateIndex = sampleRateIndex();
+        adtsHeader[0] = (byte) 0xFF;
+        adtsHeader[1] = (byte) 0xF1;
+        adtsHeader[2] = (byte) (((profile - 1) << 6) + (rateIndex << 2) + (channels >> 2));
+        adtsHeader[3] = (byte) (((channels & 3) << 6) + (frameLength >> 11));
+        adtsHeader[4] = (byte) ((frameLength & 0x7FF) >> 3);
+        adtsHeader[5] = (byte) (((frameLength & 7) << 5) + 0x1F);
+        adtsHeader[6] = (byte) 0xFC;
+    }
+
+    private int sampleRateIndex() {
+        for (int i = 0; i < ADTS_SAMPLE_RATES.length; i++) {
+            if (ADTS_SAMPLE_RATES[i] == sampleRate) {
+                return i;
+            }
+        }
+        return 8; // 16 kHz
+    }
+
+    private void release() {
+        if (audioRecord != null) {
+            try {
+                audioRecord.stop();
+            } catch (IllegalStateException e) {
+                // Never started
+            }
+            audioRecord.release();
+            audioRecord = null;
+        }
+        source = null;
+        if (codec != null) {
+            try {
+                codec.stop();
+            } catch (IllegalStateException e) {
+                // Never started
+            }
+            codec.release();
+            codec = null;
+        }
+        if (output != null) {
+            try {
+                output.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to close stream output: " + e.getMessage());
+            }
+            output = null;
+        }
+    }
+}
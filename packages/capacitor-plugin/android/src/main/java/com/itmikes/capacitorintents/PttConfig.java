@@ -0,0 +1,112 @@
+package com.itmikes.capacitorintents;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Options passed from {@code startPttService} to {@link PttForegroundService}.
+ * The plugin forwards the JS options object as a JSON string extra so the
+ * service can be reconfigured without growing the Intent contract for every option.
+ */
+class PttConfig {
+
+    static final String EXTRA_CONFIG = "com.itmikes.ptt.extra.CONFIG";
+    static final String CLIP_DELIVERY_BASE64 = "base64";
+    static final String CLIP_DELIVERY_REFERENCE = "reference";
+    static final String EVENT_TRANSPORT_LOCAL = "local";
+    static final String EVENT_TRANSPORT_BROADCAST = "broadcast";
+
+    // Streaming capture: encoded audio is emitted in fixed-size chunks while PTT is held
+    boolean streaming = false;
+    int streamChunkBytes = 512;
+    int streamSampleRate = 16000;
+    int streamBitRate = 32000;
+
+    // Recorded clip format. When encoding, sampleRate or bitRate is given, streaming reuses the
+    // rate and bitrate for the ADTS encoder (if AAC); otherwise the stream keeps its defaults above.
+    PttEncodingProfile encoding = PttEncodingProfile.defaultProfile();
+
+    // Pre-roll: keep the microphone open and prepend the last preRollMs of audio to each clip.
+    // 0 disables it; larger preRollReadMs means fewer capture wake-ups at the cost of coarser buffering.
+    int preRollMs = 0;
+    int preRollReadMs = 40;
+
+    // Clip cache budget; least recently used clips beyond it are deleted
+    long clipCacheMaxBytes = ClipStore.DEFAULT_MAX_BYTES;
+    int clipCacheMaxCount = ClipStore.DEFAULT_MAX_COUNT;
+
+    // Hardware key handling: which actions mean down/up, and how key chatter is absorbed
+    PttActionTable actions = PttActionTable.defaults();
+    int debounceMs = 20;
+    int minPressMs = 0;
+
+    // Longest clip; a press held past it is treated as a stuck key and released. Also bounds the wake lock.
+    int maxClipMs = 120000;
+
+    // Long presses are cut into clips of this length, each sent as its own segment event while
+    // recording continues, so finalisation memory stays bounded. 0 keeps one clip per press.
+    int segmentMs = 0;
+
+    // How events reach the plugin: the in-process bus, or the legacy global broadcast
+    String eventTransport = EVENT_TRANSPORT_LOCAL;
+
+    // Voice-activity trimming of leading/trailing silence; records through the PCM/AAC path.
+    // hangover is the silence kept around speech, maxHold the longest pause held back before it is kept anyway.
+    boolean trimSilence = false;
+    int vadHangoverMs = 300;
+    int vadMaxHoldMs = 3000;
+    double vadThresholdDb = VoiceActivityDetector.DEFAULT_THRESHOLD_DB;
+
+    // Journal key events while no JS listener is attached, for replayOutbox
+    boolean outbox = false;
+
+    // How finished clips reach JS: inline Base64 (legacy) or a file handle JS fetches and releases
+    String clipDelivery = CLIP_DELIVERY_BASE64;
+
+    // Native clip upload endpoint; null leaves clips to JS. Clips then travel by reference, never as Base64.
+    ClipUploader.Config upload = null;
+
+    static PttConfig fromJson(String json) {
+        PttConfig config = new PttConfig();
+        if (json == null) {
+            return config;
+        }
+        try {
+            JSONObject options = new JSONObject(json);
+            config.streaming = options.optBoolean("streaming", config.streaming);
+            config.streamChunkBytes = Math.max(64, options.optInt("streamChunkBytes", config.streamChunkBytes));
+            config.encoding = PttEncodingProfile.fromOptions(options);
+            // Only an explicit format choice moves the stream off its small 16 kHz / 32 kbps default
+            if (options.has("encoding") || options.has("sampleRate") || options.has("bitRate")) {
+                PttEncodingProfile streamProfile = config.encoding.isAac() ? config.encoding : PttEncodingProfile.voice();
+                config.streamSampleRate = streamProfile.sampleRate;
+                config.streamBitRate = streamProfile.bitRate;
+            }
+            config.preRollMs = Math.max(0, Math.min(5000, options.optInt("preRollMs", config.preRollMs)));
+            config.preRollReadMs = Math.max(10, Math.min(500, options.optInt("preRollReadMs", config.preRollReadMs)));
+            config.clipCacheMaxBytes = Math.max(0, options.optLong("clipCacheMaxBytes", config.clipCacheMaxBytes));
+            config.clipCacheMaxCount = Math.max(0, options.optInt("clipCacheMaxCount", config.clipCacheMaxCount));
+            config.actions = PttActionTable.fromOptions(options);
+            config.debounceMs = Math.max(0, options.optInt("debounceMs", config.debounceMs));
+            config.minPressMs = Math.max(0, options.optInt("minPressMs", config.minPressMs));
+            config.maxClipMs = Math.max(1000, Math.min(30 * 60 * 1000, options.optInt("maxClipMs", config.maxClipMs)));
+            int segmentMs = options.optInt("segmentMs", config.segmentMs);
+            config.segmentMs = segmentMs <= 0 ? 0 : Math.max(1000, segmentMs);
+            config.trimSilence = options.optBoolean("trimSilence", config.trimSilence);
+            config.vadHangoverMs = Math.max(0, Math.min(2000, options.optInt("vadHangoverMs", config.vadHangoverMs)));
+            config.vadMaxHoldMs = Math.max(500, Math.min(10000, options.optInt("vadMaxHoldMs", config.vadMaxHoldMs)));
+            config.vadThresholdDb = Math.max(-90, Math.min(0, options.optDouble("vadThresholdDb", config.vadThresholdDb)));
+            if (EVENT_TRANSPORT_BROADCAST.equals(options.optString("eventTransport"))) {
+                config.eventTransport = EVENT_TRANSPORT_BROADCAST;
+            }
+            config.outbox = options.optBoolean("outbox", config.outbox);
+            if (CLIP_DELIVERY_REFERENCE.equals(options.optString("clipDelivery"))) {
+                config.clipDelivery = CLIP_DELIVERY_REFERENCE;
+            }
+            config.upload = ClipUploader.Config.fromJson(options.optJSONObject("upload"));
+        } catch (JSONException e) {
+            // Malformed options fall back to defaults rather than failing the service start
+        }
+        return config;
+    }
+}
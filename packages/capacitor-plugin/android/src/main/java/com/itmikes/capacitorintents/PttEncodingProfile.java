@@ -0,0 +1,91 @@
+package com.itmikes.capacitorintents;
+
+import android.media.MediaRecorder;
+import android.os.Build;
+import org.json.JSONObject;
+
+/**
+ * Container, codec and rate settings for recorded PTT clips, selected with
+ * {@code startPttService({ encoding })}. Always mono; voice gains nothing from a second channel.
+ */
+class PttEncodingProfile {
+
+    static final String DEFAULT = "default";
+    static final String VOICE = "voice";
+    static final String OPUS = "opus";
+
+    final String name;
+    final int outputFormat;
+    final int audioEncoder;
+    final int sampleRate;
+    final int bitRate;
+    final String mimeType;
+    final String extension;
+
+    PttEncodingProfile(String name, int outputFormat, int audioEncoder, int sampleRate, int bitRate, String mimeType, String extension) {
+        this.name = name;
+        this.outputFormat = outputFormat;
+        this.audioEncoder = audioEncoder;
+        this.sampleRate = sampleRate;
+        this.bitRate = bitRate;
+        this.mimeType = mimeType;
+        this.extension = extension;
+    }
+
+    /** The original recorder settings, now labelled as the MP4 container they actually produce. */
+    static PttEncodingProfile defaultProfile() {
+        return new PttEncodingProfile(DEFAULT, MediaRecorder.OutputFormat.MPEG_4, MediaRecorder.AudioEncoder.AAC, 16000, 128000, "audio/mp4", ".m4a");
+    }
+
+    /** AAC-LC at 24 kbps: about a fifth of the default size and still clear for speech. */
+    static PttEncodingProfile voice() {
+        return new PttEncodingProfile(VOICE, MediaRecorder.OutputFormat.MPEG_4, MediaRecorder.AudioEncoder.AAC, 16000, 24000, "audio/mp4", ".m4a");
+    }
+
+    /** Opus in Ogg at 16 kbps where the platform can record it (API 29+), otherwise {@link #voice()}. */
+    static PttEncodingProfile opus() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            return new PttEncodingProfile(OPUS, MediaRecorder.OutputFormat.OGG, MediaRecorder.AudioEncoder.OPUS, 16000, 16000, "audio/ogg", ".ogg");
+        }
+        return voice();
+    }
+
+    /** Reads {@code encoding} plus optional {@code sampleRate} / {@code bitRate} overrides. */
+    static PttEncodingProfile fromOptions(JSONObject options) {
+        PttEncodingProfile profile;
+        switch (options.optString("encoding", DEFAULT)) {
+            case VOICE:
+                profile = voice();
+                break;
+            case OPUS:
+                profile = opus();
+                break;
+            default:
+                profile = defaultProfile();
+                break;
+        }
+        int sampleRate = options.optInt("sampleRate", profile.sampleRate);
+        int bitRate = options.optInt("bitRate", profile.bitRate);
+        if (sampleRate == profile.sampleRate && bitRate == profile.bitRate) {
+            return profile;
+        }
+        return new PttEncodingProfile(
+            profile.name,
+            profile.outputFormat,
+            profile.audioEncoder,
+            Math.max(8000, sampleRate),
+            Math.max(6000, bitRate),
+            profile.mimeType,
+            profile.extension
+        );
+    }
+
+    boolean isAac() {
+        return audioEncoder == MediaRecorder.AudioEncoder.AAC;
+    }
+
+    /** Whether MediaRecorder can switch output files mid-recording ({@code setNextOutputFile}, MP4 writer only). */
+    boolean supportsSegments() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && outputFormat == MediaRecorder.OutputFormat.MPEG_4;
+    }
+}
@@ -0,0 +1,41 @@
+package com.itmikes.capacitorintents;
+
+import android.content.Intent;
+import android.os.Bundle;
+
+/**
+ * One PTT service event (down, up, audio chunk or upload status). Handed to the plugin as-is over
+ * {@link PttEventBus}; only turned into an {@link Intent} for the broadcast transport.
+ * Free of service types so the serializer benchmark can build it.
+ */
+final class PttEvent {
+
+    static final String ACTION_CHUNK = "com.itmikes.ptt.event.chunk";
+    /** Clip upload progress from {@link ClipUploader}; only ever delivered in-process. */
+    static final String ACTION_UPLOAD = "com.itmikes.ptt.event.upload";
+
+    final String action;
+    /** {@code SystemClock.elapsedRealtimeNanos()} when the triggering key intent arrived, 0 for chunks. */
+    final long receiveNanos;
+    /** The same keys the broadcast carries as extras, so both transports look alike to JS. */
+    final Bundle extras = new Bundle();
+
+    PttEvent(String action, long receiveNanos) {
+        this.action = action;
+        this.receiveNanos = receiveNanos;
+    }
+
+    boolean isChunk() {
+        return ACTION_CHUNK.equals(action);
+    }
+
+    boolean isUploadStatus() {
+        return ACTION_UPLOAD.equals(action);
+    }
+
+    Intent toIntent() {
+        Intent intent = new Intent(action);
+        intent.putExtras(extras);
+        return intent;
+    }
+}
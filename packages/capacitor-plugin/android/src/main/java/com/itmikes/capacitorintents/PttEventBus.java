@@ -0,0 +1,53 @@
+package com.itmikes.capacitorintents;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-process channel from {@link PttForegroundService} to {@link CapacitorIntents}. Events are
+ * handed over by reference: no system_server round trip, no Binder size limit, and nothing another
+ * app can inject, unlike the exported {@code com.itmikes.ptt.event.*} broadcasts.
+ */
+final class PttEventBus {
+
+    interface Listener {
+        /** Called on the publishing thread; implementations should hand off quickly. */
+        void onPttEvent(PttEvent event);
+    }
+
+    private static final CopyOnWriteArrayList<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static volatile boolean broadcastTransport;
+
+    private PttEventBus() {}
+
+    static void subscribe(Listener listener) {
+        LISTENERS.addIfAbsent(listener);
+    }
+
+    static void unsubscribe(Listener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Set by the service whenever it applies a config, before any event goes out under it. Kept for
+     * the process, so a reloaded plugin still knows how the running service delivers its events.
+     */
+    static void setBroadcastTransport(boolean broadcast) {
+        broadcastTransport = broadcast;
+    }
+
+    /** True while the service sends its events as {@code com.itmikes.ptt.event.*} broadcasts instead. */
+    static boolean isBroadcastTransport() {
+        return broadcastTransport;
+    }
+
+    /** Returns false if nobody is listening, i.e. the plugin is not loaded. */
+    static boolean publish(PttEvent event) {
+        if (LISTENERS.isEmpty()) {
+            return false;
+        }
+        for (Listener listener : LISTENERS) {
+            listener.onPttEvent(event);
+        }
+        return true;
+    }
+}
@@ -13,36 +13,107 @@ import android.media.AudioAttributes;
 import android.media.AudioFocusRequest;
 import android.media.AudioManager;
 import android.media.MediaRecorder;
+import android.net.Uri;
 import android.os.Build;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
 import android.os.PowerManager;
+import android.os.Process;
+import android.os.SystemClock;
 import android.os.Build;
 import android.util.Log;
+import android.webkit.MimeTypeMap;
 import androidx.core.app.NotificationCompat;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.util.Arrays;
 import java.util.Base64;
-import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import android.Manifest;
 import java.io.IOException;
+import org.json.JSONException;
 
 public class PttForegroundService extends Service {
+
+    private enum PttState {
+        IDLE,
+        ARMING,
+        RECORDING,
+        FINALISING
+    }
+
     private static final String TAG = "PttService";  // Log tag for easy filtering
     private static final String CHANNEL_ID = "ptt_channel";
     private static final int NOTIFICATION_ID = 1;
     private static final String CUSTOM_ACTION_DOWN = "com.itmikes.ptt.event.down";
     private static final String CUSTOM_ACTION_UP = "com.itmikes.ptt.event.up";
+    private static final String CUSTOM_ACTION_SEGMENT = "com.itmikes.ptt.event.segment";
+    static final String CUSTOM_ACTION_CHUNK = PttEvent.ACTION_CHUNK;
+
+    /** A segment file closed by the capture thread. */
+    private static final class StreamedSegment {
+
+        final File file;
+        final long durationMs;
+
+        StreamedSegment(File file, long durationMs) {
+            this.file = file;
+            this.durationMs = durationMs;
+        }
+    }
+
+    private static final int MAX_PENDING_CLIPS = 8;
+    // Wake lock outlives the stuck-key release by this much, in case the recorder thread is stalled
+    private static final long WAKE_LOCK_GRACE_MS = 5000;
 
     private BroadcastReceiver pttReceiver;
+    private HandlerThread recorderThread;
+    private Handler recorderHandler;
+    private ThreadPoolExecutor clipFinisher;
+    private ClipStore clipStore;
+    private EventOutbox outbox;
+    private IntentSerializer outboxSerializer;
+    private ClipUploader uploader;
     private boolean isRunning = false;
     private AudioManager audioManager;
     private PowerManager.WakeLock wakeLock;
+    // Built once in onCreate and reused for every press
     private AudioFocusRequest audioFocusRequest;
+    // Recorder state below is confined to recorderThread
+    private boolean focusHeld;
+    private long wakeLockTimeoutMs;
+    private Runnable stuckKeyRelease;
     private MediaRecorder mediaRecorder;
+    private MediaRecorder armedRecorder;
+    private String armedRecordingPath;
+    private PttEncodingProfile armedEncoding;
     private String currentRecordingPath;
+    private String currentMimeType;
     private FileOutputStream fos;
+    private volatile PttConfig config = new PttConfig();
+    private PttAudioStreamer audioStreamer;
+    private SilenceTrimmer silenceTrimmer;
+    private ChunkGate<PttEvent> chunkGate;
+    private PttPreRollCapture preRoll;
+    private long pressReceivedNanos;
+    // Segments of the open press, counted on this thread. The PCM path rotates segments on the
+    // capture thread and hands them over through streamedSegments, so capture never waits on us.
+    private long pressId;
+    private int segmentCount;
+    private long segmentedMs;
+    private long segmentStartNanos;
+    private String nextSegmentPath;
+    private final ConcurrentLinkedQueue<StreamedSegment> streamedSegments = new ConcurrentLinkedQueue<>();
+    private PttState state = PttState.IDLE;
+    private Runnable pendingRelease;
+    private long ignoredKeyEvents;
+    // Main thread only
+    private PttActionTable registeredActions;
 
     private boolean isRecording = false;
 
@@ -54,12 +125,49 @@ public class PttForegroundService extends Service {
         super.onCreate();
         Log.d(TAG, "Service created - Setting up notification channel and receiver");
         createNotificationChannel();
+        clipStore = ClipStore.get(this);
+        // The outbox and the uploader re-pin the clips they still point at, so the sweep keeps them
+        outbox = EventOutbox.get(this);
+        outboxSerializer = new IntentSerializer(getContentResolver(), MimeTypeMap.getSingleton());
+        // Resumes uploads a previous process left queued
+        uploader = ClipUploader.get(this);
+        clipStore.sweepOrphans(getCacheDir());
+        recorderThread = new HandlerThread("PttService-recorder", Process.THREAD_PRIORITY_URGENT_AUDIO);
+        recorderThread.start();
+        recorderHandler = new Handler(recorderThread.getLooper());
+        // One finaliser keeps events in press order; a full queue blocks the recorder thread instead of dropping clips
+        clipFinisher = new ThreadPoolExecutor(
+            1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(MAX_PENDING_CLIPS),
+            (task, executor) -> {
+                if (executor.isShutdown()) {
+                    Log.w(TAG, "Clip finaliser shut down - dropping event");
+                    return;
+                }
+                try {
+                    executor.getQueue().put(task);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        );
         pttReceiver = createPttReceiver();
-        registerPttReceiver();
+        registerPttReceiver(config.actions);
         Log.d(TAG, "Receiver registered for PTT intents");
         audioManager = (AudioManager) getSystemService(Context.AUDIO_SERVICE);
         PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
         wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "PTT:WakeLock");
+        wakeLock.setReferenceCounted(false);  // One release always drops it, however many presses acquired it
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            audioFocusRequest = new AudioFocusRequest.Builder(AudioManager.AUDIOFOCUS_GAIN_TRANSIENT)
+                .setAudioAttributes(new AudioAttributes.Builder()
+                    .setUsage(AudioAttributes.USAGE_VOICE_COMMUNICATION)
+                    .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                    .build())
+                .setOnAudioFocusChangeListener(focusChange -> Diagnostics.record(Diagnostics.Event.FOCUS_CHANGED, focusChange), recorderHandler)
+                .build();
+        }
+        PttPowerStats.onServiceStarted(this);
 
         String deviceModel = Build.MODEL.toLowerCase();
         if (deviceModel.contains("armor x12 pro")) {  // Customize for your PTT models
@@ -69,28 +177,115 @@ public class PttForegroundService extends Service {
         } else {
             Log.d(TAG, "Non-PTT device: " + deviceModel + " - Using listening notification");
         }
+    }
 
-        // Initialize MediaRecorder for PTT
-        // initializeMediaRecorder();
+    /**
+     * Keeps one recorder configured and prepared so key-down only has to call start().
+     * Called after onStartCommand and after every finished clip.
+     */
+    private void armMediaRecorder() {
+        if (armedRecorder != null || config.streaming || config.preRollMs > 0 || config.trimSilence) {
+            return;  // The PCM paths own the microphone
+        }
+        PttEncodingProfile encoding = config.encoding;
+        String path = newRecordingPath(encoding.extension);
+        MediaRecorder recorder = new MediaRecorder();
+        try {
+            configureMediaRecorder(recorder, encoding, path);
+            recorder.prepare();
+            armedRecorder = recorder;
+            armedRecordingPath = path;
+            armedEncoding = encoding;
+            Diagnostics.record(Diagnostics.Event.RECORDER_ARMED);
+        } catch (Exception e) {
+            Diagnostics.record(Diagnostics.Event.ARM_FAILED);
+            recorder.release();
+            clipStore.discard(path);
+        }
     }
 
-    private void initializeMediaRecorder() {
-        if (mediaRecorder != null) {
-            mediaRecorder.release();
+    private void disarmMediaRecorder() {
+        if (armedRecorder != null) {
+            armedRecorder.release();
+            armedRecorder = null;
+            clipStore.discard(armedRecordingPath);
+            armedRecordingPath = null;
+            armedEncoding = null;
+        }
+    }
+
+    private void configureMediaRecorder(MediaRecorder recorder, PttEncodingProfile encoding, String path) {
+        recorder.setAudioSource(MediaRecorder.AudioSource.VOICE_COMMUNICATION);
+        recorder.setOutputFormat(encoding.outputFormat);
+        recorder.setAudioEncoder(encoding.audioEncoder);
+        recorder.setAudioChannels(1);
+        recorder.setAudioSamplingRate(encoding.sampleRate);
+        recorder.setAudioEncodingBitRate(encoding.bitRate);
+        recorder.setOutputFile(path);
+        if (config.segmentMs > 0 && encoding.supportsSegments()) {
+            // The recorder only switches files on its size limit, so the segment length becomes bytes at the encoder bitrate
+            recorder.setMaxFileSize(Math.max(16 * 1024L, (long) encoding.bitRate / 8 * config.segmentMs / 1000));
+            recorder.setOnInfoListener(this::onRecorderInfo);
+        }
+    }
+
+    private String newRecordingPath(String extension) {
+        return clipStore.newClip(extension).getAbsolutePath();
+    }
+
+    /** Starts, restarts or stops pre-roll capture to match the current config. Recorder thread only. */
+    private void updatePreRoll() {
+        PttConfig current = config;
+        if (preRoll != null) {
+            if (current.preRollMs == preRoll.preRollMs
+                && current.preRollReadMs == preRoll.readMs
+                && current.streamSampleRate == preRoll.sampleRate
+                && preRoll.isRunning()) {
+                return;
+            }
+            preRoll.stop();
+            preRoll = null;
+        }
+        if (current.preRollMs <= 0) {
+            return;
+        }
+        PttPreRollCapture capture = new PttPreRollCapture(current.streamSampleRate, current.preRollMs, current.preRollReadMs);
+        try {
+            capture.start();
+            preRoll = capture;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to start pre-roll capture: " + e.getMessage(), e);
+            capture.stop();
         }
-        mediaRecorder = new MediaRecorder();
-        mediaRecorder.setAudioSource(MediaRecorder.AudioSource.VOICE_COMMUNICATION);
-        mediaRecorder.setOutputFormat(MediaRecorder.OutputFormat.MPEG_4);
-        mediaRecorder.setAudioEncoder(MediaRecorder.AudioEncoder.AAC);
-        mediaRecorder.setAudioSamplingRate(16000);
-        mediaRecorder.setAudioEncodingBitRate(128000);
-        mediaRecorder.reset();  // Ensure clean state
-        Log.d(TAG, "MediaRecorder reinitialized");
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         Log.d(TAG, "onStartCommand called - Starting foreground mode");
+        if (intent != null && intent.hasExtra(PttConfig.EXTRA_CONFIG)) {
+            final PttConfig newConfig = PttConfig.fromJson(intent.getStringExtra(PttConfig.EXTRA_CONFIG));
+            clipStore.setBudget(newConfig.clipCacheMaxBytes, newConfig.clipCacheMaxCount);
+            outbox.setEnabled(newConfig.outbox);
+            uploader.configure(newConfig.upload);
+            recorderHandler.post(() -> {
+                config = newConfig;
+                PttEventBus.setBroadcastTransport(PttConfig.EVENT_TRANSPORT_BROADCAST.equals(config.eventTransport));
+                Diagnostics.record(
+                    Diagnostics.Event.CONFIG_APPLIED,
+                    config.streaming ? 1 : 0,
+                    config.streaming ? config.streamSampleRate : config.encoding.sampleRate
+                );
+                // The armed recorder was prepared with the previous profile; re-armed below
+                disarmMediaRecorder();
+                updatePreRoll();
+            });
+            if (!newConfig.actions.equals(registeredActions)) {
+                // New vendor set: swap the filter once here; the config post above is queued ahead
+                // of any intent the new filter lets through, so the lookup table always matches
+                unregisterReceiver(pttReceiver);
+                registerPttReceiver(newConfig.actions);
+            }
+        }
         if (!isRunning) {
             try {
                 int res = checkSelfPermission(Manifest.permission.POST_NOTIFICATIONS);
@@ -103,6 +298,7 @@ public class PttForegroundService extends Service {
                 Log.e(TAG, "Failed to start foreground: " + e.getMessage(), e);
             }
         }
+        recorderHandler.post(this::armMediaRecorder);
         return START_STICKY;  // Restart if killed by system
     }
 
@@ -119,8 +315,37 @@ public class PttForegroundService extends Service {
         }
         stopForeground(true);
         isRunning = false;
-                if (audioFocusRequest != null) {
-            audioManager.abandonAudioFocusRequest(audioFocusRequest);
+        // Recorder state belongs to the recorder thread; tear it down there after any pending key events
+        recorderHandler.post(this::releaseRecorders);
+        recorderThread.quitSafely();
+        super.onDestroy();
+    }
+
+    private void releaseRecorders() {
+        if (pendingRelease != null) {
+            recorderHandler.removeCallbacks(pendingRelease);
+            pendingRelease = null;
+        }
+        cancelStuckKeyRelease();
+        state = PttState.IDLE;
+        if (ignoredKeyEvents > 0) {
+            Diagnostics.record(Diagnostics.Event.KEYS_IGNORED, ignoredKeyEvents);
+        }
+        if (audioStreamer != null) {
+            audioStreamer.stop();
+            currentRecordingPath = audioStreamer.currentFile().getAbsolutePath();
+            audioStreamer = null;
+            emitStreamedSegments();  // Earlier segments go out; only the open one is discarded
+            silenceTrimmer = null;
+            isRecording = false;
+        }
+        if (nextSegmentPath != null) {
+            clipStore.discard(nextSegmentPath);
+            nextSegmentPath = null;
+        }
+        if (preRoll != null) {
+            preRoll.stop();
+            preRoll = null;
         }
         try {
             if (isRecording) {
@@ -135,53 +360,29 @@ public class PttForegroundService extends Service {
             mediaRecorder.release();
             mediaRecorder = null;
         }
-        if (audioFocusRequest != null) {
-            audioManager.abandonAudioFocusRequest(audioFocusRequest);
-        }
-        if (wakeLock != null && wakeLock.isHeld()) {
-            wakeLock.release();
-        }
+        disarmMediaRecorder();
+        PttPowerStats.onMicClosed();
+        abandonAudioFocus();
+        releaseWakeLock();
         if (currentRecordingPath != null) {
-            new File(currentRecordingPath).delete();  // Cleanup
+            clipStore.discard(currentRecordingPath);  // Unfinished clip
+            currentRecordingPath = null;
         }
-        super.onDestroy();
+        clipFinisher.shutdown();
     }
 
-    private void registerPttReceiver() {
+    private void registerPttReceiver(PttActionTable actions) {
         IntentFilter filter = new IntentFilter();
         filter.setPriority(1000);
-        // Hardcoded for Ulefone (add others as needed; could pass via intent extras for generality)
-        // filter.addAction("com.ulefone.ptt.key.down");
-        // filter.addAction("com.ulefone.ptt.key.up");
-        filter.addAction("android.intent.action.PTT.down");
-        filter.addAction("android.intent.action.PTT.up");
-        // filter.addAction("com.sonim.intent.action.PTT_KEY_DOWN");
-        // filter.addAction("com.sonim.intent.action.PTT_KEY_UP");
-        // filter.addAction("com.runbo.ptt.key.down");
-        // filter.addAction("com.runbo.ptt.key.up");
-        // filter.addAction("com.ptt.key.down");
-        // filter.addAction("com.ptt.key.up");
-        // filter.addAction("com.zello.ptt.down");
-        // filter.addAction("com.zello.ptt.up");
+        for (String action : actions.actions()) {
+            filter.addAction(action);
+        }
+        registeredActions = actions;
         try {
-            registerReceiver(pttReceiver, filter, Context.RECEIVER_EXPORTED);
-            
-            // Build string of actions for logging
-            String actionList = "none";
-            Iterator<String> actionsIt = filter.actionsIterator();
-            if (actionsIt != null) {
-                StringBuilder sb = new StringBuilder();
-                while (actionsIt.hasNext()) {
-                    sb.append(actionsIt.next()).append(", ");
-                }
-                if (sb.length() > 0) {
-                    sb.setLength(sb.length() - 2);  // Remove trailing ", "
-                    actionList = sb.toString();
-                }
-            }
-            
-            Log.d(TAG, "PTT receiver registered with filters: " + actionList);
+            registerReceiver(pttReceiver, filter, null, recorderHandler, Context.RECEIVER_EXPORTED);
+            Diagnostics.record(Diagnostics.Event.RECEIVER_REGISTERED, filter.countActions());
         } catch (Exception e) {
+            Diagnostics.record(Diagnostics.Event.RECEIVER_FAILED);
             Log.e(TAG, "Failed to register PTT receiver: " + e.getMessage(), e);
         }
     }
@@ -190,134 +391,610 @@ public class PttForegroundService extends Service {
         return new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                String action = intent.getAction();
-                Log.d(TAG, "PTT intent received: " + action + " - Forwarding as custom event");
-
-                boolean isDown = action.contains("down");
-                String customAction = isDown ? CUSTOM_ACTION_DOWN : CUSTOM_ACTION_UP;
-                Intent localIntent = new Intent(customAction);
-                localIntent.putExtra("originalAction", action);
-                localIntent.putExtra("timestamp", System.currentTimeMillis());
-                if (intent.getExtras() != null) {
-                    localIntent.putExtras(intent.getExtras());
-                }
+                onPttKey(intent, SystemClock.elapsedRealtimeNanos());
+            }
+        };
+    }
 
-                // Manage audio focus and wake lock (existing)
-                if (isDown) {
-                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                        audioFocusRequest = new AudioFocusRequest.Builder(AudioManager.AUDIOFOCUS_GAIN_TRANSIENT)
-                            .setAudioAttributes(new AudioAttributes.Builder()
-                                .setUsage(AudioAttributes.USAGE_VOICE_COMMUNICATION)
-                                .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
-                                .build())
-                            .setOnAudioFocusChangeListener(focusChange -> Log.d(TAG, "Audio focus changed: " + focusChange))
-                            .build();
-                        int result = audioManager.requestAudioFocus(audioFocusRequest);
-                        Log.d(TAG, "Audio focus requested (transient): " + (result == AudioManager.AUDIOFOCUS_REQUEST_GRANTED ? "GRANTED" : "DENIED"));
-                    } else {
-                        int result = audioManager.requestAudioFocus(null, AudioManager.STREAM_VOICE_CALL, AudioManager.AUDIOFOCUS_GAIN_TRANSIENT);
-                        Log.d(TAG, "Audio focus requested (legacy): " + (result == AudioManager.AUDIOFOCUS_REQUEST_GRANTED ? "GRANTED" : "DENIED"));
-                    }
+    /**
+     * Recorder-thread state machine: IDLE -> ARMING -> RECORDING -> FINALISING -> IDLE.
+     * Repeated downs while recording and ups while idle are dropped. An up is held back for the
+     * debounce window, and until the press reaches its minimum duration, so down/up/down chatter
+     * from the key collapses into one press instead of rebuilding the recorder each time.
+     */
+    private void onPttKey(Intent intent, long receiveNanos) {
+        String action = intent.getAction();
+        PttActionTable.Direction direction = config.actions.direction(action);
+        if (direction == null) {
+            Diagnostics.record(Diagnostics.Event.KEY_UNMAPPED);
+            return;
+        }
+        Diagnostics.record(Diagnostics.Event.KEY_RECEIVED, direction == PttActionTable.Direction.DOWN ? 1 : 0, state.ordinal());
+        if (direction == PttActionTable.Direction.DOWN) {
+            if (pendingRelease != null) {
+                // The key came back down before the release settled; keep the current recording
+                recorderHandler.removeCallbacks(pendingRelease);
+                pendingRelease = null;
+                ignoredKeyEvents++;
+                Diagnostics.record(Diagnostics.Event.RELEASE_DEBOUNCED);
+            } else if (state == PttState.IDLE) {
+                press(intent, receiveNanos);
+            } else {
+                ignoredKeyEvents++;
+                Diagnostics.record(Diagnostics.Event.DUPLICATE_DOWN);
+            }
+            return;
+        }
+        if (state != PttState.RECORDING || pendingRelease != null) {
+            ignoredKeyEvents++;
+            Diagnostics.record(Diagnostics.Event.UNPAIRED_UP);
+            return;
+        }
+        long heldMs = (receiveNanos - pressReceivedNanos) / 1_000_000L;
+        long delayMs = Math.max(config.debounceMs, config.minPressMs - heldMs);
+        if (delayMs <= 0) {
+            release(intent, receiveNanos, receiveNanos);
+            return;
+        }
+        pendingRelease = () -> {
+            pendingRelease = null;
+            release(intent, receiveNanos, SystemClock.elapsedRealtimeNanos());
+        };
+        recorderHandler.postDelayed(pendingRelease, delayMs);
+    }
 
-                    if (!wakeLock.isHeld()) {
-                        wakeLock.acquire(30 * 60 * 1000L);  // 30 min
-                        Log.d(TAG, "Wake lock acquired for PTT");
-                    }
+    private PttEvent buildEvent(String customAction, Intent intent, long receiveNanos) {
+        PttEvent event = new PttEvent(customAction, receiveNanos);
+        if (intent.getAction() != null) {
+            event.extras.putString("originalAction", intent.getAction());
+        }
+        event.extras.putLong("timestamp", System.currentTimeMillis());
+        if (intent.getExtras() != null) {
+            event.extras.putAll(intent.getExtras());
+        }
+        // Monotonic receive stamp so the plugin can measure key-to-JS latency
+        event.extras.putLong("receiveNanos", receiveNanos);
+        event.extras.putLong("receiveTimestamp", System.currentTimeMillis());
+        return event;
+    }
 
-                    // Start native recording
-                    try {
-                        if (mediaRecorder != null) {
-                            mediaRecorder.release();
-                        }
-                        mediaRecorder = new MediaRecorder();
-                        mediaRecorder.setAudioSource(MediaRecorder.AudioSource.VOICE_COMMUNICATION);
-                        mediaRecorder.setOutputFormat(MediaRecorder.OutputFormat.MPEG_4);
-                        mediaRecorder.setAudioEncoder(MediaRecorder.AudioEncoder.AAC);
-                        mediaRecorder.setAudioSamplingRate(16000);
-                        mediaRecorder.setAudioEncodingBitRate(128000);
-                        File dir = getCacheDir();
-                        if (!dir.exists()) dir.mkdirs();
-                        currentRecordingPath = new File(dir, "ptt_" + System.currentTimeMillis() + ".aac").getAbsolutePath();
-                        mediaRecorder.setOutputFile(currentRecordingPath);
-                        mediaRecorder.prepare();
-                        mediaRecorder.start();
-                        isRecording = true;
-                        Log.d(TAG, "Native recording started at: " + currentRecordingPath);
-                        } catch (Exception e) {
-                        Log.e(TAG, "Failed to start native recording: " + e.getMessage(), e);
-                        isRecording = false;
-                        if (mediaRecorder != null) {
-                            mediaRecorder.release();
-                            mediaRecorder = null;
-                        }
-                    }
+    private void press(Intent intent, long receiveNanos) {
+        state = PttState.ARMING;
+        PttEvent event = buildEvent(CUSTOM_ACTION_DOWN, intent, receiveNanos);
+        pressId = System.currentTimeMillis();
+        segmentCount = 0;
+        segmentedMs = 0;
+        event.extras.putLong("pressId", pressId);
+
+        requestAudioFocus();
+        acquireWakeLock(config.maxClipMs + WAKE_LOCK_GRACE_MS);
+
+        // Start native recording
+        pressReceivedNanos = receiveNanos;
+        boolean prewarmed = false;
+        if (preRoll != null && preRoll.isRunning()) {
+            // The microphone is already open; the clip starts with the buffered audio
+            prewarmed = true;
+            event.extras.putLong("preRollMs", startStreaming(receiveNanos, preRoll));
+        } else if (config.streaming || config.trimSilence) {
+            startStreaming(receiveNanos, null);
+        } else {
+            prewarmed = startMediaRecorder();
+        }
+        if (isRecording) {
+            long capturedNanos = SystemClock.elapsedRealtimeNanos();
+            segmentStartNanos = capturedNanos;
+            PttMetrics.record(PttMetrics.Stage.PRESS_TO_CAPTURE, receiveNanos, capturedNanos);
+            long captureLatencyMs = (capturedNanos - receiveNanos) / 1_000_000L;
+            event.extras.putLong("captureLatencyMs", captureLatencyMs);
+            event.extras.putBoolean("prewarmed", prewarmed);
+            Diagnostics.record(Diagnostics.Event.CAPTURE_STARTED, captureLatencyMs, prewarmed ? 1 : 0);
+            PttPowerStats.onMicOpened();
+        } else {
+            // Nothing to keep the CPU up for until the up arrives
+            abandonAudioFocus();
+            releaseWakeLock();
+        }
+        // Held even if capture failed, so the matching up still closes the press
+        state = PttState.RECORDING;
+        stuckKeyRelease = this::releaseStuckKey;
+        recorderHandler.postDelayed(stuckKeyRelease, config.maxClipMs);
+        // Chunks captured meanwhile are held until the down has gone out
+        ChunkGate<PttEvent> gate = chunkGate;
+        chunkGate = null;
+        dispatchEvent(event, null, null, 0, receiveNanos, gate != null ? gate::open : null);
+    }
+
+    /** {@code stopRequestedNanos} is later than {@code receiveNanos} when the release was debounced. */
+    private void release(Intent intent, long receiveNanos, long stopRequestedNanos) {
+        cancelStuckKeyRelease();
+        state = PttState.FINALISING;
+        PttEvent event = buildEvent(CUSTOM_ACTION_UP, intent, receiveNanos);
+        event.extras.putLong("pressId", pressId);
+        String clipPath = null;
+        String clipMimeType = null;
+        long durationMs = 0;
+
+        // Stop native recording
+        boolean captured = false;
+        boolean stopFailed = false;
+        if (audioStreamer != null) {
+            audioStreamer.stop();  // Blocks until the last chunk has been emitted
+            currentRecordingPath = audioStreamer.currentFile().getAbsolutePath();  // The final segment
+            audioStreamer = null;
+            emitStreamedSegments();  // Closed during the drain; they go out before the up
+            if (silenceTrimmer != null) {
+                event.extras.putLong("originalDurationMs", silenceTrimmer.originalMs());
+                event.extras.putLong("trimmedDurationMs", silenceTrimmer.keptMs());
+                silenceTrimmer = null;
+            }
+            if (preRoll != null) {
+                preRoll.release();  // Back to buffering for the next press
+            }
+            isRecording = false;
+            captured = true;
+            Diagnostics.record(Diagnostics.Event.RECORDING_STOPPED, 1);
+        } else if (mediaRecorder != null && isRecording) {
+            try {
+                mediaRecorder.stop();
+                isRecording = false;
+                Diagnostics.record(Diagnostics.Event.RECORDING_STOPPED, 0);
+            } catch (RuntimeException e) {
+                // e.g. -1007 when no valid audio arrived: the file is unusable, so the up carries an empty clip.
+                // Never rethrown, as that would take the process down on the recorder thread mid-press
+                Diagnostics.record(Diagnostics.Event.STOP_FAILED);
+                isRecording = false;
+                stopFailed = true;
+                clipStore.discard(currentRecordingPath);
+            }
+            captured = true;
+            if (nextSegmentPath != null) {
+                if (!stopFailed && new File(nextSegmentPath).length() > 0) {
+                    // The recorder switched files just before stopping; its notice is still queued
+                    finishSegment();
                 } else {
-                    // Stop native recording
-                    if (mediaRecorder != null && isRecording) {
-                        try {
-                            mediaRecorder.stop();
-                            isRecording = false;
-                            Log.d(TAG, "Native recording stopped at: " + currentRecordingPath);
-                        } catch (RuntimeException e) {
-                            if (e.getMessage().contains("stop failed.")) {
-                            Log.w(TAG, "Stop failed (-1007 IO error) - forcing release, possible empty clip");
-                            } else {
-                            throw e;
-                            }
-                            isRecording = false;
-                        }
-
-                        // Always try Base64 if file exists
-                        File audioFile = new File(currentRecordingPath);
-                        if (audioFile.exists()) {
-                            long fileSize = audioFile.length();
-                            Log.d(TAG, "Clip file size: " + fileSize + " bytes");
-                            if (fileSize > 0) {
-                            byte[] audioBytes = new byte[(int) audioFile.length()];
-                            try (FileInputStream fis = new FileInputStream(currentRecordingPath)) {
-                            fis.read(audioBytes);
-                            } catch (IOException e) {
-                            Log.e(TAG, "IO error reading clip file: " + e.getMessage(), e);
-                            return;  // Skip Base64 if IO fails
-                            }
-                            String base64Audio = Base64.getEncoder().encodeToString(audioBytes);
-                            localIntent.putExtra("audioBase64", base64Audio);
-                            localIntent.putExtra("audioPath", currentRecordingPath);
-                            localIntent.putExtra("mimeType", "audio/aac");
-                            long startTime = intent.getLongExtra("timestamp", 0);
-                            localIntent.putExtra("durationMs", System.currentTimeMillis() - startTime);
-                            Log.d(TAG, "Clip processed: " + audioBytes.length + " bytes");
-                            } else {
-                            Log.w(TAG, "Empty clip file - skipping Base64");
-                            }
-                        } else {
-                            Log.w(TAG, "No clip file created");
-                        }
-                    } else {
-                    Log.w(TAG, "Not recording - no clip to process");
-                    }
+                    clipStore.discard(nextSegmentPath);
+                    nextSegmentPath = null;
+                }
+            }
+        }
 
-                    if (mediaRecorder != null) {
-                        mediaRecorder.release();
-                        mediaRecorder = null;
-                    }
+        if (captured) {
+            PttPowerStats.onMicClosed();
+            PttMetrics.record(PttMetrics.Stage.RELEASE_TO_STOP, stopRequestedNanos, SystemClock.elapsedRealtimeNanos());
+            durationMs = (receiveNanos - pressReceivedNanos) / 1_000_000L;
+            if (segmentCount > 0) {
+                // The clip on this event is only the final segment
+                event.extras.putInt("segmentIndex", segmentCount);
+                event.extras.putInt("segments", segmentCount + 1);
+                event.extras.putLong("pressDurationMs", durationMs);
+                durationMs = Math.max(0, durationMs - segmentedMs);
+            }
+            clipPath = currentRecordingPath;
+            clipMimeType = currentMimeType;
+            currentRecordingPath = null;  // The clip store owns it from here
+        } else {
+            Diagnostics.record(Diagnostics.Event.NOT_RECORDING);
+        }
 
-                    // Release focus/wake
-                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                        audioManager.abandonAudioFocusRequest(audioFocusRequest);
-                    } else {
-                        audioManager.abandonAudioFocus(null);
-                    }
-                    if (wakeLock.isHeld()) {
-                        wakeLock.release();
-                        Log.d(TAG, "Wake lock released");
+        if (mediaRecorder != null) {
+            mediaRecorder.release();
+            mediaRecorder = null;
+        }
+        armMediaRecorder();  // Ready for the next press
+
+        abandonAudioFocus();
+        releaseWakeLock();
+        pressReceivedNanos = 0;
+        state = PttState.IDLE;
+        dispatchEvent(event, clipPath, clipMimeType, durationMs, receiveNanos, null);
+    }
+
+    /** MediaRecorder segment rotation, delivered on the recorder thread. */
+    private void onRecorderInfo(MediaRecorder recorder, int what, int extra) {
+        if (recorder != mediaRecorder || !isRecording) {
+            return;  // A recorder we already stopped
+        }
+        if (what == MediaRecorder.MEDIA_RECORDER_INFO_MAX_FILESIZE_APPROACHING) {
+            queueNextSegment();
+        } else if (what == MediaRecorder.MEDIA_RECORDER_INFO_NEXT_OUTPUT_FILE_STARTED) {
+            finishSegment();
+        } else if (what == MediaRecorder.MEDIA_RECORDER_INFO_MAX_FILESIZE_REACHED) {
+            restartSegment();
+        }
+    }
+
+    private void queueNextSegment() {
+        if (nextSegmentPath != null || Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+        String path = newRecordingPath(currentRecordingPath.substring(currentRecordingPath.lastIndexOf('.')));
+        try {
+            mediaRecorder.setNextOutputFile(new File(path));
+            nextSegmentPath = path;
+        } catch (IOException | IllegalStateException e) {
+            Diagnostics.record(Diagnostics.Event.SEGMENT_FAILED, segmentCount);
+            clipStore.discard(path);
+        }
+    }
+
+    /** The recorder moved on to the queued file; the previous one is complete. */
+    private void finishSegment() {
+        String finished = currentRecordingPath;
+        currentRecordingPath = nextSegmentPath;
+        nextSegmentPath = null;
+        long now = SystemClock.elapsedRealtimeNanos();
+        long durationMs = (now - segmentStartNanos) / 1_000_000L;
+        segmentStartNanos = now;
+        emitSegment(finished, currentMimeType, durationMs);
+    }
+
+    /** The recorder hit the segment size without a next file and stopped; continue in a fresh one. */
+    private void restartSegment() {
+        String finished = currentRecordingPath;
+        String mimeType = currentMimeType;
+        currentRecordingPath = null;
+        if (nextSegmentPath != null) {
+            clipStore.discard(nextSegmentPath);
+            nextSegmentPath = null;
+        }
+        mediaRecorder.release();
+        mediaRecorder = null;
+        isRecording = false;
+        long now = SystemClock.elapsedRealtimeNanos();
+        long durationMs = (now - segmentStartNanos) / 1_000_000L;
+        segmentStartNanos = now;
+        emitSegment(finished, mimeType, durationMs);
+        startMediaRecorder();
+        if (!isRecording) {
+            Diagnostics.record(Diagnostics.Event.SEGMENT_FAILED, segmentCount - 1);
+        }
+    }
+
+    /** Sends a finished segment of the open press as its own event; recording carries on. */
+    private void emitSegment(String path, String mimeType, long durationMs) {
+        PttEvent event = new PttEvent(CUSTOM_ACTION_SEGMENT, 0);
+        event.extras.putLong("pressId", pressId);
+        event.extras.putInt("segmentIndex", segmentCount++);
+        event.extras.putLong("timestamp", System.currentTimeMillis());
+        segmentedMs += durationMs;
+        dispatchEvent(event, path, mimeType, durationMs, 0, null);
+    }
+
+    /** Recorder thread. Emits segments the capture thread has closed, oldest first. */
+    private void emitStreamedSegments() {
+        StreamedSegment segment;
+        while ((segment = streamedSegments.poll()) != null) {
+            emitSegment(segment.file.getAbsolutePath(), "audio/aac", segment.durationMs);
+        }
+    }
+
+    /** No up arrived within maxClipMs (missed broadcast, jammed key); close the press ourselves. */
+    private void releaseStuckKey() {
+        stuckKeyRelease = null;
+        if (state != PttState.RECORDING) {
+            return;
+        }
+        if (pendingRelease != null) {
+            recorderHandler.removeCallbacks(pendingRelease);
+            pendingRelease = null;
+        }
+        Diagnostics.record(Diagnostics.Event.STUCK_KEY_RELEASED, config.maxClipMs);
+        PttPowerStats.onStuckKeyReleased();
+        long now = SystemClock.elapsedRealtimeNanos();
+        // No key event behind this up, so no originalAction. The real up, if it ever comes, is then
+        // dropped as unpaired
+        release(new Intent().putExtra("autoReleased", true), now, now);
+    }
+
+    private void cancelStuckKeyRelease() {
+        if (stuckKeyRelease != null) {
+            recorderHandler.removeCallbacks(stuckKeyRelease);
+            stuckKeyRelease = null;
+        }
+    }
+
+    private void requestAudioFocus() {
+        if (focusHeld) {
+            return;
+        }
+        int result;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            result = audioManager.requestAudioFocus(audioFocusRequest);
+        } else {
+            result = audioManager.requestAudioFocus(null, AudioManager.STREAM_VOICE_CALL, AudioManager.AUDIOFOCUS_GAIN_TRANSIENT);
+        }
+        focusHeld = result == AudioManager.AUDIOFOCUS_REQUEST_GRANTED;
+        PttPowerStats.onFocusRequested(focusHeld);
+        Diagnostics.record(Diagnostics.Event.FOCUS_REQUESTED, focusHeld ? 1 : 0);
+    }
+
+    private void abandonAudioFocus() {
+        if (!focusHeld) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            audioManager.abandonAudioFocusRequest(audioFocusRequest);
+        } else {
+            audioManager.abandonAudioFocus(null);
+        }
+        focusHeld = false;
+    }
+
+    /** Bounded by the clip length, so a lost release costs minutes of CPU at most, not half an hour. */
+    private void acquireWakeLock(long timeoutMs) {
+        wakeLock.acquire(timeoutMs);
+        wakeLockTimeoutMs = timeoutMs;
+        PttPowerStats.onWakeLockAcquired();
+    }
+
+    private void releaseWakeLock() {
+        if (wakeLock.isHeld()) {
+            wakeLock.release();
+            Diagnostics.record(Diagnostics.Event.WAKE_LOCK_RELEASED, wakeLockTimeoutMs);
+        }
+        PttPowerStats.onWakeLockReleased(wakeLockTimeoutMs);
+    }
+
+    /**
+     * Recorder state is only touched on the recorder thread; clip I/O and handing the event to its
+     * transport run on the single finaliser thread so events leave in order. {@code published} runs
+     * on that thread right after the event has been handed over.
+     */
+    private void dispatchEvent(
+        PttEvent event,
+        String clipPath,
+        String mimeType,
+        long durationMs,
+        long receiveNanos,
+        Runnable published
+    ) {
+        final PttConfig clipConfig = config;
+        clipFinisher.execute(() -> {
+            if (clipPath != null) {
+                // Also on after a restart with no config, as the uploader keeps its endpoint
+                boolean upload = uploader.isEnabled();
+                boolean attached = attachClip(event, clipPath, mimeType, clipConfig, durationMs, upload);
+                if (attached && PttConfig.CLIP_DELIVERY_REFERENCE.equals(event.extras.getString("clipDelivery"))) {
+                    clipStore.pin(clipPath, ClipStore.Owner.JS);  // JS has only the path; pinned until releasePttClip
+                }
+                if (upload && attached && new File(clipPath).length() > 0) {
+                    uploader.enqueue(clipPath, mimeType, durationMs);  // Pinned until uploaded
+                }
+                if (!attached) {
+                    clipStore.unpin(clipPath, ClipStore.Owner.RECORDER);
+                    return;  // Skip the event if the clip could not be read
+                }
+            }
+            long sendStart = SystemClock.elapsedRealtimeNanos();
+            publish(event, clipConfig);
+            long sendEnd = SystemClock.elapsedRealtimeNanos();
+            if (clipPath != null) {
+                // Handed over, and journaled if nobody was listening; the other owners hold it from here
+                clipStore.unpin(clipPath, ClipStore.Owner.RECORDER);
+            }
+            PttMetrics.record(PttMetrics.Stage.BROADCAST_SEND, sendStart, sendEnd);
+            if (receiveNanos > 0) {
+                PttMetrics.record(PttMetrics.Stage.KEY_TO_BROADCAST, receiveNanos, sendEnd);
+            }
+            if (published != null) {
+                published.run();
+            }
+        });
+    }
+
+    /** Hands an event to the in-process bus, or to a system broadcast when configured for compatibility. */
+    private void publish(PttEvent event, PttConfig eventConfig) {
+        if (PttConfig.EVENT_TRANSPORT_BROADCAST.equals(eventConfig.eventTransport)) {
+            Intent intent = event.toIntent();
+            if (event.isChunk()) {
+                intent.setPackage(getPackageName());  // Chunks never leave the app
+            }
+            sendBroadcast(intent);
+        } else if (!PttEventBus.publish(event)) {
+            if (outbox.isEnabled() && !event.isChunk()) {
+                journal(event);
+            } else {
+                Diagnostics.record(Diagnostics.Event.EVENT_DROPPED);
+            }
+        }
+    }
+
+    /** The plugin is not loaded (e.g. the WebView was killed); keep the event for replay. */
+    private void journal(PttEvent event) {
+        try {
+            long seq = outbox.append(outboxSerializer.serialize(event, PayloadShape.FULL));
+            Diagnostics.record(Diagnostics.Event.EVENT_JOURNALED, seq);
+        } catch (JSONException e) {
+            Diagnostics.record(Diagnostics.Event.JOURNAL_FAILED);
+            Log.e(TAG, "Could not journal event: " + e.getMessage(), e);
+        }
+    }
+
+    /** Runs on the finaliser thread. Returns false if the clip exists but could not be read. */
+    private boolean attachClip(PttEvent event, String clipPath, String mimeType, PttConfig clipConfig, long durationMs, boolean upload) {
+        // Always try Base64 if file exists
+        File audioFile = new File(clipPath);
+        if (!audioFile.exists()) {
+            Diagnostics.record(Diagnostics.Event.CLIP_EMPTY);
+            return true;
+        }
+        long fileSize = audioFile.length();
+        if (fileSize == 0) {
+            Diagnostics.record(Diagnostics.Event.CLIP_EMPTY);
+            return true;
+        }
+        if (upload || PttConfig.CLIP_DELIVERY_REFERENCE.equals(clipConfig.clipDelivery)) {
+            // Only the handle travels; JS fetches the bytes and calls releasePttClip, or the uploader sends them
+            event.extras.putString("audioPath", clipPath);
+            event.extras.putString("audioUri", Uri.fromFile(audioFile).toString());
+            event.extras.putLong("audioSize", fileSize);
+            event.extras.putString("clipDelivery", PttConfig.CLIP_DELIVERY_REFERENCE);
+            if (upload) {
+                event.extras.putBoolean("uploading", true);
+            }
+            event.extras.putString("mimeType", mimeType);
+            event.extras.putLong("durationMs", durationMs);
+            Diagnostics.record(Diagnostics.Event.CLIP_READY, fileSize, 1);
+            return true;
+        }
+        String base64Audio;
+        long encodeStart = SystemClock.elapsedRealtimeNanos();
+        try {
+            base64Audio = ClipEncoder.readBase64(audioFile);
+        } catch (IOException e) {
+            Diagnostics.record(Diagnostics.Event.CLIP_READ_FAILED, fileSize);
+            Log.e(TAG, "IO error reading clip file: " + e.getMessage(), e);
+            return false;
+        }
+        PttMetrics.record(PttMetrics.Stage.CLIP_ENCODE, encodeStart, SystemClock.elapsedRealtimeNanos());
+        event.extras.putString("audioBase64", base64Audio);
+        event.extras.putString("audioPath", clipPath);
+        event.extras.putString("mimeType", mimeType);
+        event.extras.putLong("durationMs", durationMs);
+        Diagnostics.record(Diagnostics.Event.CLIP_READY, fileSize, 0);
+        return true;
+    }
+
+    /** Starts the armed recorder if there is one, otherwise builds one from scratch. Returns true if armed. */
+    private boolean startMediaRecorder() {
+        if (mediaRecorder != null) {
+            mediaRecorder.release();
+            mediaRecorder = null;
+        }
+        if (armedRecorder != null) {
+            mediaRecorder = armedRecorder;
+            currentRecordingPath = armedRecordingPath;
+            currentMimeType = armedEncoding.mimeType;
+            armedRecorder = null;
+            armedRecordingPath = null;
+            armedEncoding = null;
+            try {
+                mediaRecorder.start();
+                isRecording = true;
+                return true;
+            } catch (Exception e) {
+                Diagnostics.record(Diagnostics.Event.ARM_FAILED);  // Rebuilt below
+                mediaRecorder.release();
+                mediaRecorder = null;
+                clipStore.discard(currentRecordingPath);
+            }
+        }
+        try {
+            PttEncodingProfile encoding = config.encoding;
+            mediaRecorder = new MediaRecorder();
+            currentRecordingPath = newRecordingPath(encoding.extension);
+            currentMimeType = encoding.mimeType;
+            configureMediaRecorder(mediaRecorder, encoding, currentRecordingPath);
+            mediaRecorder.prepare();
+            mediaRecorder.start();
+            isRecording = true;
+        } catch (Exception e) {
+            Diagnostics.record(Diagnostics.Event.CAPTURE_FAILED, 0);
+            Log.e(TAG, "Failed to start native recording: " + e.getMessage(), e);
+            isRecording = false;
+            if (mediaRecorder != null) {
+                mediaRecorder.release();
+                mediaRecorder = null;
+            }
+            clipStore.discard(currentRecordingPath);
+            currentRecordingPath = null;
+        }
+        return false;
+    }
+
+    /**
+     * Encodes to an ADTS clip on a PCM path, emitting chunks when streaming is enabled. With a
+     * pre-roll capture the buffered audio leads the clip; returns how many ms of it were included.
+     */
+    private long startStreaming(final long pressNanos, PttPreRollCapture preRollSource) {
+        final PttConfig chunkConfig = config;
+        final boolean emitChunks = chunkConfig.streaming;
+        final long streamId = System.currentTimeMillis();
+        currentRecordingPath = newRecordingPath(".aac");
+        currentMimeType = "audio/aac";  // Raw ADTS frames, no container
+        final ChunkGate<PttEvent> gate = new ChunkGate<>(chunk -> publish(chunk, chunkConfig));
+        chunkGate = emitChunks ? gate : null;
+        audioStreamer = new PttAudioStreamer(
+            config.streamSampleRate,
+            config.streamBitRate,
+            config.streamChunkBytes,
+            new PttAudioStreamer.Listener() {
+                @Override
+                public void onChunk(int sequence, long captureTimeMs, byte[] data, int length, boolean last) {
+                    if (!emitChunks) {
+                        return;  // Clip only (pre-roll or silence trimming)
                     }
+                    PttEvent chunk = new PttEvent(CUSTOM_ACTION_CHUNK, 0);
+                    chunk.extras.putLong("streamId", streamId);
+                    chunk.extras.putInt("sequence", sequence);
+                    chunk.extras.putLong("timestamp", captureTimeMs);
+                    chunk.extras.putBoolean("last", last);
+                    chunk.extras.putString("mimeType", "audio/aac");
+                    chunk.extras.putString("chunkBase64", Base64.getEncoder().encodeToString(Arrays.copyOf(data, length)));
+                    gate.submit(chunk);  // Never ahead of this press's down event
+                }
+
+                @Override
+                public void onFirstAudio() {
+                    PttMetrics.record(PttMetrics.Stage.PRESS_TO_FIRST_AUDIO, pressNanos, SystemClock.elapsedRealtimeNanos());
                 }
 
-                sendBroadcast(localIntent);
-                localIntent.putExtra("receiveTimestamp", System.currentTimeMillis());
+                @Override
+                public void onError(Exception e) {
+                    Diagnostics.record(Diagnostics.Event.STREAM_ERROR);
+                    Log.e(TAG, "Streaming capture error: " + e.getMessage(), e);
+                }
             }
-        };
+        );
+        if (chunkConfig.trimSilence) {
+            audioStreamer.setPcmFilter(source -> silenceTrimmer = new SilenceTrimmer(
+                source,
+                new VoiceActivityDetector(chunkConfig.streamSampleRate, chunkConfig.vadThresholdDb),
+                chunkConfig.streamSampleRate,
+                chunkConfig.vadHangoverMs,
+                chunkConfig.vadMaxHoldMs,
+                PttAudioStreamer.PCM_READ_BYTES
+            ));
+        }
+        if (chunkConfig.segmentMs > 0) {
+            audioStreamer.setSegments(chunkConfig.segmentMs, new PttAudioStreamer.SegmentSink() {
+                @Override
+                public File nextSegmentFile() {
+                    return clipStore.newClip(".aac");
+                }
+
+                @Override
+                public void onSegment(File segment, long durationMs) {
+                    // Capture thread: dispatching can block on a full finaliser queue, so hand over
+                    streamedSegments.add(new StreamedSegment(segment, durationMs));
+                    recorderHandler.post(PttForegroundService.this::emitStreamedSegments);
+                }
+            });
+        }
+        long leadInMs = 0;
+        try {
+            if (preRollSource != null) {
+                leadInMs = preRollSource.bufferedMs();
+                audioStreamer.start(new File(currentRecordingPath), preRollSource.claim(), leadInMs);
+            } else {
+                audioStreamer.start(new File(currentRecordingPath));
+            }
+            isRecording = true;
+        } catch (Exception e) {
+            Diagnostics.record(Diagnostics.Event.CAPTURE_FAILED, 1);
+            Log.e(TAG, "Failed to start streaming capture: " + e.getMessage(), e);
+            audioStreamer.stop();
+            audioStreamer = null;
+            silenceTrimmer = null;
+            isRecording = false;
+            clipStore.discard(currentRecordingPath);
+            currentRecordingPath = null;
+            if (preRollSource != null) {
+                preRollSource.release();
+            }
+        }
+        return leadInMs;
     }
 
     private Notification createNotification() {
@@ -0,0 +1,73 @@
+package com.itmikes.capacitorintents;
+
+import com.getcapacitor.JSObject;
+
+/**
+ * Process-wide PTT latency histograms, fed by {@link PttForegroundService} and {@link CapacitorIntents}
+ * with {@code SystemClock.elapsedRealtimeNanos()} stamps and read by {@code getPttMetrics()}.
+ */
+final class PttMetrics {
+
+    enum Stage {
+        /** Key-down received until the recorder is running. */
+        PRESS_TO_CAPTURE("pressToCapture"),
+        /** Key-down received until the first PCM buffer is read (streaming capture only). */
+        PRESS_TO_FIRST_AUDIO("pressToFirstAudio"),
+        /** Key-up received until the recorder has stopped. */
+        RELEASE_TO_STOP("releaseToStop"),
+        /** Reading and Base64-encoding a finished clip, in one streaming pass. */
+        CLIP_ENCODE("clipEncode"),
+        /** Handing the outgoing event to its transport (in-process bus or sendBroadcast). */
+        BROADCAST_SEND("broadcastSend"),
+        /** Key event received until its outgoing event has been handed to the transport. */
+        KEY_TO_BROADCAST("keyToBroadcast"),
+        /** Key event received until the event is handed to the bridge for JS. */
+        KEY_TO_JS("keyToJs");
+
+        final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final LatencyHistogram[] HISTOGRAMS = new LatencyHistogram[Stage.values().length];
+
+    static {
+        for (int i = 0; i < HISTOGRAMS.length; i++) {
+            HISTOGRAMS[i] = new LatencyHistogram();
+        }
+    }
+
+    private PttMetrics() {}
+
+    static void record(Stage stage, long startNanos, long endNanos) {
+        if (startNanos > 0 && endNanos >= startNanos) {
+            HISTOGRAMS[stage.ordinal()].recordNanos(endNanos - startNanos);
+        }
+    }
+
+    static JSObject toJSObject() {
+        JSObject stages = new JSObject();
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = HISTOGRAMS[stage.ordinal()];
+            JSObject stats = new JSObject();
+            stats.put("count", histogram.count());
+            stats.put("meanMs", histogram.meanMillis());
+            stats.put("p50Ms", histogram.percentileMillis(50));
+            stats.put("p95Ms", histogram.percentileMillis(95));
+            stats.put("p99Ms", histogram.percentileMillis(99));
+            stats.put("maxMs", histogram.maxMillis());
+            stages.put(stage.key, stats);
+        }
+        JSObject result = new JSObject();
+        result.put("stages", stages);
+        return result;
+    }
+
+    static void reset() {
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.itmikes.capacitorintents;
+
+import android.content.Context;
+import android.os.BatteryManager;
+import android.os.SystemClock;
+import com.getcapacitor.JSObject;
+
+/**
+ * Process-wide power counters for the PTT service, read by {@code getPttPowerStats()}.
+ * Updated from the service's recorder thread; all methods are synchronized.
+ */
+final class PttPowerStats {
+
+    private static long serviceStartedAt;
+    private static long chargeCounterAtStartUah = Long.MIN_VALUE;
+
+    private static long wakeLockAcquisitions;
+    private static long wakeLockHeldMs;
+    private static long longestWakeLockMs;
+    private static long wakeLockAcquiredAt;
+
+    private static long micOpenMs;
+    private static long micOpenedAt;
+
+    private static long focusRequests;
+    private static long focusDenied;
+    private static long stuckKeyReleases;
+
+    private PttPowerStats() {}
+
+    static synchronized void onServiceStarted(Context context) {
+        serviceStartedAt = SystemClock.elapsedRealtime();
+        chargeCounterAtStartUah = chargeCounter(context);
+    }
+
+    static synchronized void onWakeLockAcquired() {
+        if (wakeLockAcquiredAt == 0) {
+            wakeLockAcquisitions++;
+            wakeLockAcquiredAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    /** {@code timeoutMs} caps the held time in case the lock expired on its own before release. */
+    static synchronized void onWakeLockReleased(long timeoutMs) {
+        if (wakeLockAcquiredAt == 0) {
+            return;
+        }
+        long held = Math.min(SystemClock.elapsedRealtime() - wakeLockAcquiredAt, timeoutMs);
+        wakeLockAcquiredAt = 0;
+        wakeLockHeldMs += held;
+        longestWakeLockMs = Math.max(longestWakeLockMs, held);
+    }
+
+    static synchronized void onMicOpened() {
+        if (micOpenedAt == 0) {
+            micOpenedAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    static synchronized void onMicClosed() {
+        if (micOpenedAt != 0) {
+            micOpenMs += SystemClock.elapsedRealtime() - micOpenedAt;
+            micOpenedAt = 0;
+        }
+    }
+
+    static synchronized void onFocusRequested(boolean granted) {
+        focusRequests++;
+        if (!granted) {
+            focusDenied++;
+        }
+    }
+
+    static synchronized void onStuckKeyReleased() {
+        stuckKeyReleases++;
+    }
+
+    static synchronized JSObject toJSObject(Context context) {
+        long now = SystemClock.elapsedRealtime();
+        JSObject result = new JSObject();
+        result.put("serviceUptimeMs", serviceStartedAt == 0 ? 0 : now - serviceStartedAt);
+        result.put("wakeLockAcquisitions", wakeLockAcquisitions);
+        result.put("wakeLockHeldMs", wakeLockHeldMs + (wakeLockAcquiredAt == 0 ? 0 : now - wakeLockAcquiredAt));
+        result.put("longestWakeLockMs", longestWakeLockMs);
+        result.put("wakeLockHeld", wakeLockAcquiredAt != 0);
+        result.put("micOpenMs", micOpenMs + (micOpenedAt == 0 ? 0 : now - micOpenedAt));
+        result.put("focusRequests", focusRequests);
+        result.put("focusDenied", focusDenied);
+        result.put("stuckKeyReleases", stuckKeyReleases);
+        // Battery charge drawn since the service started, where the fuel gauge reports it
+        long chargeNow = chargeCounter(context);
+        if (chargeCounterAtStartUah != Long.MIN_VALUE && chargeNow != Long.MIN_VALUE) {
+            result.put("batteryDrainUah", chargeCounterAtStartUah - chargeNow);
+        }
+        return result;
+    }
+
+    private static long chargeCounter(Context context) {
+        BatteryManager batteryManager = (BatteryManager) context.getSystemService(Context.BATTERY_SERVICE);
+        if (batteryManager == null) {
+            return Long.MIN_VALUE;
+        }
+        long charge = batteryManager.getLongProperty(BatteryManager.BATTERY_PROPERTY_CHARGE_COUNTER);
+        return charge > 0 ? charge : Long.MIN_VALUE;
+    }
+}
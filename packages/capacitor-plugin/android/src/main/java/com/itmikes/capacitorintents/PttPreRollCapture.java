@@ -0,0 +1,160 @@
+package com.itmikes.capacitorintents;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.util.Log;
+import java.io.IOException;
+
+/**
+ * Keeps the microphone open and the last {@code preRollMs} of PCM in a {@link PcmRingBuffer}, so
+ * a clip can start with the words spoken while the key was still travelling.
+ *
+ * One thread owns the {@link AudioRecord}. While idle it trims the ring to the pre-roll window;
+ * once {@link #claim()}ed it keeps everything and the encoder drains the ring through the returned
+ * {@link PttAudioStreamer.PcmSource}, so the hand-over never blocks key-down.
+ */
+class PttPreRollCapture {
+
+    private static final String TAG = "PttPreRoll";
+    // Room for the encoder to fall behind while it is being set up after key-down
+    private static final int CLAIMED_SLACK_MS = 1000;
+    private static final long READ_WAIT_MS = 50;
+
+    final int sampleRate;
+    final int preRollMs;
+    final int readMs;
+
+    private final int preRollBytes;
+    private final byte[] readBuffer;
+    private final PcmRingBuffer ring;
+    private final Object lock = new Object();
+
+    private AudioRecord audioRecord;
+    private Thread captureThread;
+    private volatile boolean running;
+    private boolean claimed;
+
+    PttPreRollCapture(int sampleRate, int preRollMs, int readMs) {
+        this.sampleRate = sampleRate;
+        this.preRollMs = preRollMs;
+        this.readMs = readMs;
+        this.preRollBytes = bytesFor(preRollMs);
+        this.readBuffer = new byte[bytesFor(readMs)];
+        this.ring = new PcmRingBuffer(preRollBytes + bytesFor(CLAIMED_SLACK_MS));
+    }
+
+    void start() throws IOException {
+        int minBuffer = AudioRecord.getMinBufferSize(sampleRate, AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        audioRecord = new AudioRecord(
+            MediaRecorder.AudioSource.VOICE_COMMUNICATION,
+            sampleRate,
+            AudioFormat.CHANNEL_IN_MONO,
+            AudioFormat.ENCODING_PCM_16BIT,
+            Math.max(minBuffer, readBuffer.length * 2)
+        );
+        if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
+            audioRecord.release();
+            audioRecord = null;
+            throw new IOException("AudioRecord failed to initialize");
+        }
+        audioRecord.startRecording();
+        running = true;
+        captureThread = new Thread(this::captureLoop, "PttPreRoll");
+        captureThread.setPriority(Thread.MAX_PRIORITY);
+        captureThread.start();
+        Diagnostics.record(Diagnostics.Event.PRE_ROLL_STARTED, preRollMs, readMs);
+    }
+
+    void stop() {
+        running = false;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        if (captureThread != null) {
+            try {
+                captureThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            captureThread = null;
+        }
+        if (audioRecord != null) {
+            try {
+                audioRecord.stop();
+            } catch (IllegalStateException e) {
+                // Never started
+            }
+            audioRecord.release();
+            audioRecord = null;
+        }
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    /** Stops trimming and hands the buffered pre-roll plus live audio to the returned source. */
+    PttAudioStreamer.PcmSource claim() {
+        synchronized (lock) {
+            claimed = true;
+        }
+        return this::read;
+    }
+
+    /** Milliseconds of audio currently buffered, i.e. the pre-roll a claim made now would get. */
+    long bufferedMs() {
+        synchronized (lock) {
+            return ring.size() * 1000L / (sampleRate * 2L);
+        }
+    }
+
+    /** Back to idle; anything the encoder did not consume is dropped. */
+    void release() {
+        synchronized (lock) {
+            claimed = false;
+            ring.clear();
+            lock.notifyAll();
+        }
+    }
+
+    private int read(byte[] buffer, int offset, int length) throws IOException {
+        synchronized (lock) {
+            if (ring.size() == 0 && claimed && running) {
+                try {
+                    lock.wait(READ_WAIT_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted waiting for pre-roll audio");
+                }
+            }
+            if (!running) {
+                throw new IOException("Pre-roll capture stopped");
+            }
+            return ring.read(buffer, offset, length);
+        }
+    }
+
+    private void captureLoop() {
+        while (running) {
+            int read = audioRecord.read(readBuffer, 0, readBuffer.length);
+            if (read < 0) {
+                Log.e(TAG, "AudioRecord read failed: " + read);
+                running = false;
+                break;
+            }
+            synchronized (lock) {
+                ring.write(readBuffer, 0, read);
+                if (claimed) {
+                    lock.notifyAll();
+                } else {
+                    ring.trimTo(preRollBytes);
+                }
+            }
+        }
+    }
+
+    private int bytesFor(int ms) {
+        return (int) ((long) sampleRate * ms / 1000) * 2;
+    }
+}
@@ -0,0 +1,419 @@
+package com.itmikes.capacitorintents;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.SystemClock;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.json.JSONException;
+
+/**
+ * Multiplexes every {@code registerBroadcastReceiver} subscription onto a few shared system receivers.
+ *
+ * The filter grows incrementally: a receiver is registered only for actions no live receiver covers
+ * yet, and one is unregistered only once none of its actions has a subscriber. Adding a subscriber
+ * to an action that is already watched costs nothing system-side, and re-subscribing never swaps
+ * out a receiver that intents are already queued on, so no subscriber loses an in-flight event
+ * and no action is covered twice. Each received intent
+ * is queued on each matching subscription through an action-to-subscribers index and serialized
+ * once per payload shape when the queues drain. Subscriptions with {@code match} conditions are
+ * tested on the raw intent first, and events dropped by a full {@link SubscriptionQueue} are never
+ * serialized at all.
+ */
+class ReceiverRegistry {
+
+    private static final String PTT_EVENT_PREFIX = "com.itmikes.ptt.event.";
+    private static final int DRAIN_BATCH = 32;
+
+    interface EventDecorator {
+        void decorate(JSObject event) throws JSONException;
+    }
+
+    private final Context context;
+    private final Handler handler;
+    private final IntentSerializer serializer;
+    private final EventDecorator decorator;
+
+    private final Map<String, BroadcastSubscription> subscriptions = new ConcurrentHashMap<>();
+    private final Map<String, CopyOnWriteArrayList<BroadcastSubscription>> subscribersByAction = new ConcurrentHashMap<>();
+    /** The live receiver covering each action; an action may outlive its subscribers here. Guarded by this. */
+    private final Map<String, ActionReceiver> receiverByAction = new HashMap<>();
+
+    ReceiverRegistry(Context context, Handler handler, IntentSerializer serializer, EventDecorator decorator) {
+        this.context = context;
+        this.handler = handler;
+        this.serializer = serializer;
+        this.decorator = decorator;
+    }
+
+    synchronized void add(BroadcastSubscription subscription) {
+        subscription.drainTask = () -> drain(subscription);
+        subscriptions.put(subscription.id, subscription);
+        Set<String> uncovered = null;
+        for (String action : subscription.actions) {
+            CopyOnWriteArrayList<BroadcastSubscription> subscribers = subscribersByAction.get(action);
+            if (subscribers == null) {
+                subscribers = new CopyOnWriteArrayList<>();
+                subscribersByAction.put(action, subscribers);
+            }
+            subscribers.addIfAbsent(subscription);
+            if (!receiverByAction.containsKey(action)) {
+                if (uncovered == null) {
+                    uncovered = new HashSet<>();
+                }
+                uncovered.add(action);
+            }
+        }
+        if (uncovered != null) {
+            register(uncovered);
+        }
+    }
+
+    /** Returns the removed subscription, or null if the id is unknown. */
+    synchronized BroadcastSubscription remove(String id) {
+        BroadcastSubscription subscription = subscriptions.remove(id);
+        if (subscription == null) {
+            return null;
+        }
+        for (String action : subscription.actions) {
+            List<BroadcastSubscription> subscribers = subscribersByAction.get(action);
+            if (subscribers != null) {
+                subscribers.remove(subscription);
+                if (subscribers.isEmpty()) {
+                    subscribersByAction.remove(action);
+                    ActionReceiver receiver = receiverByAction.get(action);
+                    if (receiver != null && !watchesAny(receiver.actions)) {
+                        unregister(receiver);
+                    }
+                }
+            }
+        }
+        return subscription;
+    }
+
+    synchronized void clear() {
+        for (BroadcastSubscription subscription : subscriptions.values()) {
+            subscription.queue.clear();  // The WebView is going away; nothing left to deliver to
+            subscription.close();
+        }
+        subscriptions.clear();
+        subscribersByAction.clear();
+        for (ActionReceiver receiver : new HashSet<>(receiverByAction.values())) {
+            unregister(receiver);
+        }
+    }
+
+    /** A system receiver for a fixed set of actions, none of which another live receiver covers. */
+    private final class ActionReceiver extends BroadcastReceiver {
+
+        final List<String> actions;
+        volatile boolean registered = true;
+
+        ActionReceiver(Set<String> actions) {
+            this.actions = new ArrayList<>(actions);
+        }
+
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            // Only unwatched actions can still be queued for an unregistered receiver
+            if (registered) {
+                dispatch(intent);
+            }
+        }
+    }
+
+    private void register(Set<String> actions) {
+        IntentFilter filter = new IntentFilter();
+        for (String action : actions) {
+            filter.addAction(action);
+        }
+        ActionReceiver receiver = new ActionReceiver(actions);
+        for (String action : actions) {
+            receiverByAction.put(action, receiver);
+        }
+        context.registerReceiver(receiver, filter, null, handler, Context.RECEIVER_EXPORTED);
+    }
+
+    private void unregister(ActionReceiver receiver) {
+        receiver.registered = false;
+        for (String action : receiver.actions) {
+            receiverByAction.remove(action);
+        }
+        context.unregisterReceiver(receiver);
+    }
+
+    private boolean watchesAny(List<String> actions) {
+        for (String action : actions) {
+            if (subscribersByAction.containsKey(action)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs on the receiver thread. Unless the running PTT service itself sends broadcasts, any
+     * {@code com.itmikes.ptt.event.*} broadcast is foreign and dropped.
+     */
+    private void dispatch(Intent intent) {
+        String action = intent.getAction();
+        if (action != null && action.startsWith(PTT_EVENT_PREFIX) && !PttEventBus.isBroadcastTransport()) {
+            Diagnostics.record(Diagnostics.Event.FOREIGN_BROADCAST_DROPPED);
+            return;
+        }
+        fanOut(action, new EventSource() {
+            // getExtras() copies the Bundle; one copy serves every lookup
+            private Bundle extras;
+            private boolean extrasRead;
+
+            @Override
+            public boolean matches(IntentPredicate predicate) {
+                return predicate.matches(intent, this);
+            }
+
+            @Override
+            public Bundle extras() {
+                if (!extrasRead) {
+                    extras = intent.getExtras();
+                    extrasRead = true;
+                }
+                return extras;
+            }
+
+            @Override
+            public JSObject serialize(PayloadShape shape) throws JSONException {
+                return serializer.serialize(intent, shape);
+            }
+        }, intent.getLongExtra("receiveNanos", 0));
+    }
+
+    /**
+     * Fans an in-process PTT service event out to the subscribers of its action. Receiver thread
+     * only. Returns false if no subscription accepted it, so the caller can journal it instead.
+     */
+    boolean dispatch(PttEvent event) {
+        return fanOut(event.action, new EventSource() {
+            @Override
+            public boolean matches(IntentPredicate predicate) {
+                return predicate.matches(event);
+            }
+
+            @Override
+            public Bundle extras() {
+                return event.extras;
+            }
+
+            @Override
+            public JSObject serialize(PayloadShape shape) throws JSONException {
+                return serializer.serialize(event, shape);
+            }
+        }, event.receiveNanos);
+    }
+
+    private interface EventSource extends IntentPredicate.Extras {
+        boolean matches(IntentPredicate predicate);
+
+        JSObject serialize(PayloadShape shape) throws JSONException;
+    }
+
+    /**
+     * Queues the event on every matching subscription; nothing is serialized here. Returns false
+     * if no subscription took the event: nobody subscribes to the action, or every {@code match}
+     * rejected it.
+     */
+    private boolean fanOut(String action, EventSource source, long receiveNanos) {
+        List<BroadcastSubscription> subscribers = action != null ? subscribersByAction.get(action) : null;
+        if (subscribers == null || subscribers.isEmpty()) {
+            return false;
+        }
+        Envelope envelope = null;
+        for (BroadcastSubscription subscription : subscribers) {
+            if (subscription.predicate != null && !source.matches(subscription.predicate)) {
+                continue;
+            }
+            if (envelope == null) {
+                envelope = new Envelope(action, source, receiveNanos);
+            }
+            SubscriptionQueue<Envelope> queue = subscription.queue;
+            String key = queue.conflates() ? conflationKey(action, queue.conflateKey, source) : null;
+            if (queue.offer(envelope, key) && !subscription.drainPosted) {
+                subscription.drainPosted = true;
+                handler.post(subscription.drainTask);
+            }
+        }
+        return envelope != null;
+    }
+
+    private static String conflationKey(String action, String extraKey, EventSource source) {
+        if (extraKey == null) {
+            return action;
+        }
+        Bundle extras = source.extras();
+        return action + '\u0000' + (extras != null ? extras.get(extraKey) : null);
+    }
+
+    /**
+     * Serializes and delivers up to {@link #DRAIN_BATCH} queued events, then yields so intents
+     * waiting on the receiver thread get queued (and dropped or conflated) before the next round.
+     * Receiver thread only.
+     */
+    private void drain(BroadcastSubscription subscription) {
+        subscription.drainPosted = false;
+        if (subscription.closed) {
+            return;
+        }
+        for (int i = 0; i < DRAIN_BATCH; i++) {
+            Envelope envelope = subscription.queue.poll();
+            if (envelope == null) {
+                return;
+            }
+            deliver(subscription, envelope);
+        }
+        if (!subscription.queue.isEmpty()) {
+            subscription.drainPosted = true;
+            handler.post(subscription.drainTask);
+        }
+    }
+
+    /** Delivers everything still queued and flushes the batcher; the call must not be used afterwards. Receiver thread only. */
+    void close(BroadcastSubscription subscription) {
+        Envelope envelope;
+        while ((envelope = subscription.queue.poll()) != null) {
+            deliver(subscription, envelope);
+        }
+        subscription.close();
+    }
+
+    private void deliver(BroadcastSubscription subscription, Envelope envelope) {
+        JSObject event = subscription.delta != null ? deltaEventFor(subscription, envelope) : envelope.eventFor(subscription.shape);
+        if (event == null) {
+            return;
+        }
+        subscription.deliver(event);
+        // PTT service events carry their key receive time; measure how long the press took to reach JS
+        if (envelope.receiveNanos > 0 && !envelope.measured) {
+            envelope.measured = true;
+            PttMetrics.record(PttMetrics.Stage.KEY_TO_JS, envelope.receiveNanos, SystemClock.elapsedRealtimeNanos());
+        }
+    }
+
+    /**
+     * {@code deltaMode}: the full event on a sync, otherwise only the changed extras plus
+     * {@code removedExtras}; null when nothing changed. Serialized for this subscription alone,
+     * as the {@code deltaSync} marker must not leak into events other subscriptions share.
+     */
+    private JSObject deltaEventFor(BroadcastSubscription subscription, Envelope envelope) {
+        PayloadShape shape = subscription.shape;
+        DeltaTracker.Delta delta = subscription.delta.diff(
+            envelope.action,
+            envelope.source.extras(),
+            shape.includeExtras,
+            SystemClock.elapsedRealtime()
+        );
+        if (delta == null) {
+            return null;
+        }
+        JSObject event = serialize(envelope.source, delta.isFull() ? shape : shape.withExtras(delta.changed));
+        if (event == null) {
+            return null;
+        }
+        if (!event.has("extras")) {
+            event.put("extras", new JSObject());  // Only removals; keep the shape JS merges into
+        }
+        event.put("deltaSync", delta.isFull() ? "full" : "delta");
+        if (!delta.isFull()) {
+            JSArray removed = new JSArray();
+            for (String key : delta.removed) {
+                removed.put(key);
+            }
+            event.put("removedExtras", removed);
+        }
+        return event;
+    }
+
+    /** Per-subscription queue counters for {@code getBroadcastReceiverStats}. */
+    JSArray stats() {
+        JSArray result = new JSArray();
+        for (BroadcastSubscription subscription : subscriptions.values()) {
+            JSObject stats = subscription.queue.stats();
+            stats.put("id", subscription.id);
+            JSArray actions = new JSArray();
+            for (String action : subscription.actions) {
+                actions.put(action);
+            }
+            stats.put("actions", actions);
+            if (subscription.delta != null) {
+                stats.put("delta", subscription.delta.stats());
+            }
+            result.put(stats);
+        }
+        return result;
+    }
+
+    /**
+     * One received event, shared by every subscription it was queued on. Serialized lazily, at
+     * most once per distinct {@link PayloadShape}; most intents only ever need one.
+     */
+    final class Envelope {
+
+        final String action;
+        final EventSource source;
+        final long receiveNanos;
+        boolean measured;
+        private PayloadShape lastShape;
+        private JSObject lastEvent;
+        private Map<PayloadShape, JSObject> events;
+
+        Envelope(String action, EventSource source, long receiveNanos) {
+            this.action = action;
+            this.source = source;
+            this.receiveNanos = receiveNanos;
+        }
+
+        JSObject eventFor(PayloadShape shape) {
+            if (shape.equals(lastShape)) {
+                return lastEvent;
+            }
+            JSObject event = events != null ? events.get(shape) : null;
+            if (event == null) {
+                event = serialize(source, shape);
+                if (event == null) {
+                    return null;
+                }
+                if (lastShape != null) {
+                    if (events == null) {
+                        events = new HashMap<>();
+                        events.put(lastShape, lastEvent);
+                    }
+                    events.put(shape, event);
+                }
+            }
+            lastShape = shape;
+            lastEvent = event;
+            return event;
+        }
+    }
+
+    private JSObject serialize(EventSource source, PayloadShape shape) {
+        try {
+            JSObject event = source.serialize(shape);
+            decorator.decorate(event);
+            return event;
+        } catch (JSONException e) {
+            Diagnostics.record(Diagnostics.Event.SERIALIZE_FAILED);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.itmikes.capacitorintents;
+
+import java.io.IOException;
+
+/**
+ * Sits between a PCM source and the encoder and drops leading and trailing silence.
+ *
+ * Before the first speech only the last {@code hangoverMs} of audio is kept, and goes out ahead of
+ * the speech. After speech, the first {@code hangoverMs} of a pause pass straight through and the
+ * rest is held back: if speech resumes the held pause is released, so pauses inside the clip stay
+ * intact, and whatever is still held when capture stops is the trimmed tail. A pause longer than
+ * {@code maxHoldMs} is released from its oldest end, so the buffers never exceed a fixed budget.
+ *
+ * Every read pulls one read's worth from the source and passes on at most as much, so capture keeps
+ * pace with the microphone: released audio drains over the following reads, never as one burst.
+ *
+ * Read from the capture thread only.
+ */
+class SilenceTrimmer implements PttAudioStreamer.PcmSource {
+
+    private final PttAudioStreamer.PcmSource source;
+    private final VoiceActivityDetector detector;
+    private final int sampleRate;
+    private final int hangoverBytes;
+
+    private final byte[] input;
+    private final byte[] frame;
+    private final byte[] scratch;
+    private int frameFill;
+    private final PcmRingBuffer lead;
+    private final PcmRingBuffer hold;
+    private final PcmRingBuffer out;
+
+    private boolean speechSeen;
+    // The source's end-of-stream or error code, returned once the buffered output has drained
+    private int endCode;
+    private int silenceBytes;
+    private long originalBytes;
+    private long keptBytes;
+
+    SilenceTrimmer(PttAudioStreamer.PcmSource source, VoiceActivityDetector detector, int sampleRate, int hangoverMs, int maxHoldMs, int readBytes) {
+        this.source = source;
+        this.detector = detector;
+        this.sampleRate = sampleRate;
+        this.hangoverBytes = bytesFor(hangoverMs);
+        this.input = new byte[readBytes];
+        this.frame = new byte[detector.frameBytes()];
+        this.scratch = new byte[frame.length];
+        this.lead = new PcmRingBuffer(Math.max(hangoverBytes, 2));
+        this.hold = new PcmRingBuffer(Math.max(bytesFor(maxHoldMs), frame.length));
+        // Output drains no faster than input arrives, so the lead and a full held pause may both wait
+        // here on top of the frames one read completes
+        this.out = new PcmRingBuffer(lead.capacity() + hold.capacity() + readBytes + 2 * frame.length);
+    }
+
+    /** Returns 0 while the input is being trimmed, like a source that has nothing buffered yet. */
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int max = Math.min(input.length, length);
+        if (endCode == 0) {
+            int read = source.read(input, 0, max);
+            if (read < 0) {
+                endCode = read;
+            } else if (read > 0) {
+                originalBytes += read;
+                consume(read);
+            }
+        }
+        if (endCode != 0 && out.size() == 0) {
+            return endCode;
+        }
+        int count = out.read(buffer, offset, max);
+        keptBytes += count;
+        return count;
+    }
+
+    /** Capture has stopped: pays out what was already released. The held tail stays trimmed. */
+    @Override
+    public int flush(byte[] buffer, int offset, int length) {
+        int count = out.read(buffer, offset, Math.min(input.length, length));
+        keptBytes += count;
+        return count;
+    }
+
+    private void consume(int length) {
+        int offset = 0;
+        while (offset < length) {
+            int count = Math.min(frame.length - frameFill, length - offset);
+            System.arraycopy(input, offset, frame, frameFill, count);
+            frameFill += count;
+            offset += count;
+            if (frameFill == frame.length) {
+                frameFill = 0;
+                onFrame(detector.isSpeech(frame, 0));
+            }
+        }
+    }
+
+    private void onFrame(boolean speech) {
+        if (!speechSeen) {
+            if (!speech) {
+                lead.write(frame, 0, frame.length);
+                return;
+            }
+            speechSeen = true;
+            move(lead, out, lead.size());
+        }
+        if (speech) {
+            move(hold, out, hold.size());  // The pause was internal after all
+            silenceBytes = 0;
+            out.write(frame, 0, frame.length);
+            return;
+        }
+        silenceBytes += frame.length;
+        if (silenceBytes <= hangoverBytes) {
+            out.write(frame, 0, frame.length);
+            return;
+        }
+        int overflow = hold.size() + frame.length - hold.capacity();
+        if (overflow > 0) {
+            move(hold, out, overflow);
+        }
+        hold.write(frame, 0, frame.length);
+    }
+
+    /** Moves the oldest {@code length} bytes of {@code from} to {@code to}, a frame at a time. */
+    private void move(PcmRingBuffer from, PcmRingBuffer to, int length) {
+        while (length > 0) {
+            int count = from.read(scratch, 0, Math.min(length, scratch.length));
+            if (count == 0) {
+                break;
+            }
+            to.write(scratch, 0, count);
+            length -= count;
+        }
+    }
+
+    /** Audio captured from the source so far. */
+    long originalMs() {
+        return originalBytes * 1000 / (sampleRate * 2L);
+    }
+
+    /** Audio passed on to the encoder so far. */
+    long keptMs() {
+        return keptBytes * 1000 / (sampleRate * 2L);
+    }
+
+    private int bytesFor(int ms) {
+        return (int) ((long) sampleRate * ms / 1000) * 2;
+    }
+}
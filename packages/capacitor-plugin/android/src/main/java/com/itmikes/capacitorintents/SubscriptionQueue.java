@@ -0,0 +1,157 @@
+package com.itmikes.capacitorintents;
+
+import com.getcapacitor.JSObject;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bounded queue between the shared receiver and one subscription's callback. Receiving only
+ * enqueues; serialization and delivery happen when the queue is drained, so a flood on one action
+ * costs at most {@code capacity} pending events per subscription, and the ones the overflow
+ * policy drops are never serialized.
+ *
+ * With {@code conflateLatest} a queued event is replaced in place by a newer one with the same
+ * key (the action, plus the value of {@code conflateKey} when set), so JS only sees the latest state.
+ */
+class SubscriptionQueue<T> {
+
+    static final int DEFAULT_CAPACITY = 1000;
+
+    enum Overflow {
+        DROP_OLDEST("dropOldest"),
+        DROP_NEWEST("dropNewest"),
+        CONFLATE_LATEST("conflateLatest");
+
+        final String jsName;
+
+        Overflow(String jsName) {
+            this.jsName = jsName;
+        }
+
+        static Overflow fromJs(String name) {
+            for (Overflow overflow : values()) {
+                if (overflow.jsName.equals(name)) {
+                    return overflow;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class Slot<T> {
+
+        T item;
+        final String key;
+
+        Slot(T item, String key) {
+            this.item = item;
+            this.key = key;
+        }
+    }
+
+    final int capacity;
+    final Overflow overflow;
+    /** Extras key whose value splits conflation per action, or null for per action only. */
+    final String conflateKey;
+
+    private final ArrayDeque<Slot<T>> slots = new ArrayDeque<>();
+    private final Map<String, Slot<T>> slotsByKey;
+
+    private long offered;
+    private long delivered;
+    private long dropped;
+    private long conflated;
+    private int maxDepth;
+
+    SubscriptionQueue(int capacity, Overflow overflow, String conflateKey) {
+        this.capacity = Math.max(1, capacity);
+        this.overflow = overflow;
+        this.conflateKey = conflateKey;
+        this.slotsByKey = overflow == Overflow.CONFLATE_LATEST ? new HashMap<>() : null;
+    }
+
+    boolean conflates() {
+        return slotsByKey != null;
+    }
+
+    /**
+     * Queues {@code item}; {@code key} is only used when conflating. Returns true if the queue was
+     * empty, i.e. the caller has to schedule a drain.
+     */
+    synchronized boolean offer(T item, String key) {
+        offered++;
+        boolean wasEmpty = slots.isEmpty();
+        if (slotsByKey != null) {
+            Slot<T> queued = slotsByKey.get(key);
+            if (queued != null) {
+                queued.item = item;
+                conflated++;
+                return false;
+            }
+        }
+        if (slots.size() >= capacity) {
+            if (overflow == Overflow.DROP_NEWEST) {
+                dropped++;
+                return false;
+            }
+            removeOldest();
+            dropped++;
+        }
+        Slot<T> slot = new Slot<>(item, key);
+        slots.addLast(slot);
+        if (slotsByKey != null) {
+            slotsByKey.put(key, slot);
+        }
+        maxDepth = Math.max(maxDepth, slots.size());
+        return wasEmpty;
+    }
+
+    /** Returns the oldest queued item, or null when empty. */
+    synchronized T poll() {
+        Slot<T> slot = removeOldest();
+        if (slot == null) {
+            return null;
+        }
+        delivered++;
+        return slot.item;
+    }
+
+    synchronized boolean isEmpty() {
+        return slots.isEmpty();
+    }
+
+    synchronized int size() {
+        return slots.size();
+    }
+
+    /** Empties the queue without delivering, e.g. when the subscription goes away with the plugin. */
+    synchronized void clear() {
+        dropped += slots.size();
+        slots.clear();
+        if (slotsByKey != null) {
+            slotsByKey.clear();
+        }
+    }
+
+    private Slot<T> removeOldest() {
+        Slot<T> slot = slots.pollFirst();
+        if (slot != null && slotsByKey != null) {
+            slotsByKey.remove(slot.key);
+        }
+        return slot;
+    }
+
+    synchronized JSObject stats() {
+        JSObject result = new JSObject();
+        result.put("capacity", capacity);
+        result.put("overflow", overflow.jsName);
+        result.put("depth", slots.size());
+        result.put("maxDepth", maxDepth);
+        result.put("received", offered);
+        result.put("delivered", delivered);
+        result.put("dropped", dropped);
+        result.put("conflated", conflated);
+        return result;
+    }
+}
@@ -0,0 +1,167 @@
+package com.itmikes.capacitorintents;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import android.webkit.MimeTypeMap;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import java.util.Collections;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+/**
+ * Soak harness: floods subscribed actions with real broadcasts and checks that queued work toward
+ * JS stays bounded. Prints throughput, queue depth and heap once per simulated second.
+ *
+ * Skipped unless {@code -Dsoak.seconds} is set; it then runs that long at {@code -Dsoak.rate}
+ * intents per second (default 5000), e.g. {@code ./gradlew test -Dsoak.seconds=60}.
+ *
+ * This bypasses {@link CapacitorIntents}: the plugin needs a live Bridge, so the harness drives
+ * {@link ReceiverRegistry}, the receiver path behind {@code registerBroadcastReceiver}, with calls
+ * that only count what reaches them.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class BroadcastSoakTest {
+
+    private static final String ACTION = "com.example.vendor.SCAN";
+    private static final int SECONDS = Integer.getInteger("soak.seconds", 0);
+    private static final int RATE = Integer.getInteger("soak.rate", 5000);
+    private static final int TICKS_PER_SECOND = 10;
+    private static final int QUEUE_MAX = 256;
+    private static final int DEVICES = 8;
+
+    /** Counts results instead of posting them to a WebView. */
+    private static final class CountingCall extends PluginCall {
+
+        long resolved;
+
+        CountingCall(String callbackId) {
+            super(null, "CapacitorIntentsPlugin", callbackId, "registerBroadcastReceiver", new JSObject());
+        }
+
+        @Override
+        public void resolve(JSObject data) {
+            resolved++;
+        }
+    }
+
+    @Test
+    public void floodStaysWithinQueueBudget() {
+        Assume.assumeTrue("soak.seconds not set", SECONDS > 0);
+        Context context = RuntimeEnvironment.getApplication();
+        Looper looper = Looper.getMainLooper();
+        ReceiverRegistry registry = new ReceiverRegistry(
+            context,
+            new Handler(looper),
+            new IntentSerializer(context.getContentResolver(), MimeTypeMap.getSingleton()),
+            event -> {}
+        );
+
+        CountingCall oldestCall = new CountingCall("soak-oldest");
+        CountingCall newestCall = new CountingCall("soak-newest");
+        CountingCall latestCall = new CountingCall("soak-latest");
+        BroadcastSubscription dropOldest = subscribe(registry, oldestCall, SubscriptionQueue.Overflow.DROP_OLDEST, null);
+        BroadcastSubscription dropNewest = subscribe(registry, newestCall, SubscriptionQueue.Overflow.DROP_NEWEST, null);
+        BroadcastSubscription conflate = subscribe(registry, latestCall, SubscriptionQueue.Overflow.CONFLATE_LATEST, "deviceId");
+
+        Runtime runtime = Runtime.getRuntime();
+        int perTick = Math.max(1, RATE / TICKS_PER_SECOND);
+        long sent = 0;
+        long started = System.nanoTime();
+        for (int second = 1; second <= SECONDS; second++) {
+            long secondStarted = System.nanoTime();
+            int peak = 0;
+            for (int tick = 0; tick < TICKS_PER_SECOND; tick++) {
+                for (int i = 0; i < perTick; i++) {
+                    Intent intent = new Intent(ACTION);
+                    intent.putExtra("deviceId", "dev-" + (sent % DEVICES));
+                    intent.putExtra("seq", sent);
+                    intent.putExtra("barcode", "0123456789012");
+                    context.sendBroadcast(intent);
+                    sent++;
+                }
+                // Every broadcast of the tick is received (and queued) before the first drain runs
+                shadowOf(looper).idle();
+                peak = Math.max(peak, maxDepth(dropOldest, dropNewest, conflate));
+                assertQueueBounded(dropOldest);
+                assertQueueBounded(dropNewest);
+                assertQueueBounded(conflate);
+            }
+            double elapsed = (System.nanoTime() - secondStarted) / 1e9;
+            System.out.printf(
+                "soak t=%ds sent=%d wall=%.0f/s delivered oldest=%d newest=%d latest=%d maxDepth=%d heapMb=%d%n",
+                second,
+                sent,
+                perTick * TICKS_PER_SECOND / elapsed,
+                oldestCall.resolved,
+                newestCall.resolved,
+                latestCall.resolved,
+                peak,
+                (runtime.totalMemory() - runtime.freeMemory()) >> 20
+            );
+        }
+        System.out.printf("soak total sent=%d in %.1fs%n", sent, (System.nanoTime() - started) / 1e9);
+
+        for (BroadcastSubscription subscription : new BroadcastSubscription[] { dropOldest, dropNewest, conflate }) {
+            JSObject stats = subscription.queue.stats();
+            assertEquals(0, stats.optInt("depth"));
+            assertEquals(sent, stats.optLong("received"));
+            assertTrue(stats.optInt("maxDepth") <= QUEUE_MAX);
+            // Every received event was delivered, dropped or folded into a newer one
+            assertEquals(sent, stats.optLong("delivered") + stats.optLong("dropped") + stats.optLong("conflated"));
+        }
+        assertEquals(dropOldest.queue.stats().optLong("delivered"), oldestCall.resolved);
+        assertEquals(dropNewest.queue.stats().optLong("delivered"), newestCall.resolved);
+        assertEquals(conflate.queue.stats().optLong("delivered"), latestCall.resolved);
+        if (perTick > QUEUE_MAX) {
+            assertTrue(dropOldest.queue.stats().optLong("dropped") > 0);
+            assertTrue(dropNewest.queue.stats().optLong("dropped") > 0);
+        }
+        // One pending event per device at most
+        assertTrue(conflate.queue.stats().optInt("maxDepth") <= DEVICES);
+        assertEquals(0, conflate.queue.stats().optLong("dropped"));
+
+        registry.clear();
+    }
+
+    private static BroadcastSubscription subscribe(
+        ReceiverRegistry registry,
+        PluginCall call,
+        SubscriptionQueue.Overflow overflow,
+        String conflateKey
+    ) {
+        BroadcastSubscription subscription = new BroadcastSubscription(
+            call,
+            Collections.singletonList(ACTION),
+            PayloadShape.FULL,
+            null,
+            new SubscriptionQueue<>(QUEUE_MAX, overflow, conflateKey),
+            null,
+            null
+        );
+        registry.add(subscription);
+        return subscription;
+    }
+
+    private static int maxDepth(BroadcastSubscription... subscriptions) {
+        int depth = 0;
+        for (BroadcastSubscription subscription : subscriptions) {
+            depth = Math.max(depth, subscription.queue.stats().optInt("maxDepth"));
+        }
+        return depth;
+    }
+
+    private static void assertQueueBounded(BroadcastSubscription subscription) {
+        assertTrue(subscription.queue.size() <= QUEUE_MAX);
+    }
+}
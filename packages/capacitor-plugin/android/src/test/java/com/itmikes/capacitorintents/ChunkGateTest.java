@@ -0,0 +1,61 @@
+package com.itmikes.capacitorintents;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+/** A press's chunks never reach JS ahead of its down event. */
+public class ChunkGateTest {
+
+    private static final int DOWN = -1;
+
+    @Test
+    public void chunksWaitForTheDownEvent() {
+        List<Integer> published = new ArrayList<>();
+        ChunkGate<Integer> gate = new ChunkGate<>(published::add);
+        gate.submit(0);
+        gate.submit(1);
+        assertTrue(published.isEmpty());
+
+        published.add(DOWN);
+        gate.open();
+        gate.submit(2);
+        assertEquals(List.of(DOWN, 0, 1, 2), published);
+    }
+
+    @Test
+    public void openIsIdempotent() {
+        List<Integer> published = new ArrayList<>();
+        ChunkGate<Integer> gate = new ChunkGate<>(published::add);
+        gate.submit(0);
+        gate.open();
+        gate.open();
+        assertEquals(List.of(0), published);
+    }
+
+    @Test
+    public void orderHoldsWhileCaptureRacesTheOpen() throws Exception {
+        for (int round = 0; round < 200; round++) {
+            List<Integer> published = Collections.synchronizedList(new ArrayList<>());
+            ChunkGate<Integer> gate = new ChunkGate<>(published::add);
+            Thread capture = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    gate.submit(i);
+                }
+            });
+            capture.start();
+            published.add(DOWN);  // The finaliser publishes the down, then opens
+            gate.open();
+            capture.join();
+
+            assertEquals(501, published.size());
+            assertEquals(Integer.valueOf(DOWN), published.get(0));
+            for (int i = 1; i < published.size(); i++) {
+                assertEquals(Integer.valueOf(i - 1), published.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.itmikes.capacitorintents;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Clip ownership, eviction and the startup sweep. */
+public class ClipStoreTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File dir;
+    private ClipStore clipStore;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = temp.newFolder("clips");
+        clipStore = new ClipStore(dir);
+    }
+
+    @Test
+    public void releaseWithoutOtherOwnersDeletesAtOnce() throws Exception {
+        File clip = recorded(ClipStore.Owner.JS);
+
+        assertTrue(clipStore.release(clip.getPath(), ClipStore.Owner.JS));
+        assertFalse(clip.exists());
+        assertEquals(1, clipStore.stats().getInt("releasedCount"));
+        assertEquals(0, clipStore.stats().getInt("count"));
+    }
+
+    @Test
+    public void jsReleaseWaitsForTheUpload() throws Exception {
+        File clip = recorded(ClipStore.Owner.JS, ClipStore.Owner.UPLOAD);
+
+        assertTrue(clipStore.release(clip.getPath(), ClipStore.Owner.JS));
+        assertTrue(clip.exists());
+        // deleteAfterUpload off: the upload only lets go, and the pending release deletes it
+        clipStore.unpin(clip.getPath(), ClipStore.Owner.UPLOAD);
+        assertFalse(clip.exists());
+        assertEquals(0, clipStore.stats().getInt("bytes"));
+    }
+
+    @Test
+    public void uploadReleaseWaitsForTheJournalAndJs() throws Exception {
+        File clip = recorded(ClipStore.Owner.JOURNAL, ClipStore.Owner.JS, ClipStore.Owner.UPLOAD);
+
+        assertTrue(clipStore.release(clip.getPath(), ClipStore.Owner.UPLOAD));
+        clipStore.unpin(clip.getPath(), ClipStore.Owner.JOURNAL);
+        assertTrue(clip.exists());
+        clipStore.unpin(clip.getPath(), ClipStore.Owner.JS);
+        assertFalse(clip.exists());
+    }
+
+    @Test
+    public void onlyClipsNoOwnerHoldsAreEvicted() throws Exception {
+        File journaled = recorded(ClipStore.Owner.JOURNAL);
+        File free = recorded();
+        File uploading = recorded(ClipStore.Owner.UPLOAD);
+
+        clipStore.setBudget(Long.MAX_VALUE, 1);
+        assertTrue(journaled.exists());
+        assertFalse(free.exists());
+        assertTrue(uploading.exists());
+        assertEquals(1, clipStore.stats().getInt("evictedCount"));
+
+        // Repeated pins by one owner count once
+        clipStore.pin(uploading.getPath(), ClipStore.Owner.UPLOAD);
+        clipStore.unpin(uploading.getPath(), ClipStore.Owner.UPLOAD);
+        assertFalse(uploading.exists());
+        assertTrue(journaled.exists());
+    }
+
+    @Test
+    public void sweepKeepsAdoptedClips() throws Exception {
+        File legacyDir = temp.newFolder("cache");
+        File adopted = write(new File(dir, ClipStore.CLIP_PREFIX + "100.aac"));
+        File orphan = write(new File(dir, ClipStore.CLIP_PREFIX + "200.aac"));
+
+        clipStore.adopt(Collections.singleton(adopted.getPath()), ClipStore.Owner.JOURNAL);
+        clipStore.sweepOrphans(legacyDir);
+
+        assertTrue(adopted.exists());
+        assertFalse(orphan.exists());
+        assertEquals(1, clipStore.stats().getInt("sweptCount"));
+        // Still pinned for the journal
+        clipStore.setBudget(Long.MAX_VALUE, 0);
+        assertTrue(adopted.exists());
+    }
+
+    @Test
+    public void legacySweepOnlyTouchesOldClipNames() throws Exception {
+        File legacyDir = temp.newFolder("cache");
+        File oldClip = write(new File(legacyDir, "ptt_1700000000000.aac"));
+        File hostFile = write(new File(legacyDir, "ptt_settings.json"));
+        File hostClip = write(new File(legacyDir, "ptt_1700000000000.aac.bak"));
+
+        clipStore.sweepOrphans(legacyDir);
+
+        assertFalse(oldClip.exists());
+        assertTrue(hostFile.exists());
+        assertTrue(hostClip.exists());
+        assertEquals(1, clipStore.stats().getInt("sweptCount"));
+    }
+
+    /** A finished clip, handed from the recorder to {@code owners}. */
+    private File recorded(ClipStore.Owner... owners) throws IOException {
+        File clip = write(clipStore.newClip(".aac"));
+        for (ClipStore.Owner owner : owners) {
+            clipStore.pin(clip.getPath(), owner);
+        }
+        clipStore.unpin(clip.getPath(), ClipStore.Owner.RECORDER);
+        return clip;
+    }
+
+    private static File write(File file) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[64]);
+        }
+        return file;
+    }
+}
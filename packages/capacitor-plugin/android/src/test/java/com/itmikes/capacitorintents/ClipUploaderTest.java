@@ -0,0 +1,294 @@
+package com.itmikes.capacitorintents;
+
+import static org.junit.Assert.*;
+
+import android.os.Bundle;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/** The native clip uploader against a local mock endpoint. */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class ClipUploaderTest {
+
+    private static final long TIMEOUT_MS = 10000;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private MockEndpoint endpoint;
+    private ClipStore clipStore;
+    private File stateFile;
+    private final BlockingQueue<Bundle> statuses = new LinkedBlockingQueue<>();
+    private final List<Bundle> seen = new ArrayList<>();
+    private final List<ClipUploader> uploaders = new ArrayList<>();
+
+    /** Answers with the queued status codes, then 200; records every request. */
+    private static final class MockEndpoint {
+
+        final HttpServer server;
+        final Deque<Integer> responses = new ArrayDeque<>();
+        final List<String> bodies = Collections.synchronizedList(new ArrayList<>());
+        final List<String> contentTypes = Collections.synchronizedList(new ArrayList<>());
+        final List<String> transferEncodings = Collections.synchronizedList(new ArrayList<>());
+        final List<String> authorizations = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        volatile long delayMs;
+
+        MockEndpoint() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.createContext("/clips", exchange -> {
+                int now = inFlight.incrementAndGet();
+                maxInFlight.accumulateAndGet(now, Math::max);
+                try {
+                    ByteArrayOutputStream body = new ByteArrayOutputStream();
+                    try (InputStream in = exchange.getRequestBody()) {
+                        byte[] buffer = new byte[4096];
+                        int read;
+                        while ((read = in.read(buffer)) != -1) {
+                            body.write(buffer, 0, read);
+                        }
+                    }
+                    bodies.add(body.toString(StandardCharsets.ISO_8859_1.name()));
+                    contentTypes.add(exchange.getRequestHeaders().getFirst("Content-Type"));
+                    transferEncodings.add(exchange.getRequestHeaders().getFirst("Transfer-Encoding"));
+                    authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+                    if (delayMs > 0) {
+                        Thread.sleep(delayMs);
+                    }
+                    Integer status;
+                    synchronized (responses) {
+                        status = responses.poll();
+                    }
+                    exchange.sendResponseHeaders(status != null ? status : 200, -1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlight.decrementAndGet();
+                    exchange.close();
+                }
+            });
+            server.start();
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + server.getAddress().getPort() + "/clips";
+        }
+
+        void respond(Integer... statuses) {
+            synchronized (responses) {
+                Collections.addAll(responses, statuses);
+            }
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        endpoint = new MockEndpoint();
+        clipStore = new ClipStore(temp.newFolder("clips"));
+        stateFile = new File(temp.getRoot(), "uploads.json");
+    }
+
+    @After
+    public void tearDown() {
+        for (ClipUploader uploader : uploaders) {
+            uploader.shutdown();
+        }
+        endpoint.server.stop(0);
+    }
+
+    @Test
+    public void uploadsBatchesAsChunkedMultipart() throws Exception {
+        ClipUploader uploader = newUploader();
+        File first = clip("first-clip-bytes");
+        File second = clip("second-clip-bytes");
+        File third = clip("third-clip-bytes");
+        // Queued before there is an endpoint, so the first request can take a full batch
+        uploader.enqueue(first.getPath(), "audio/mp4", 1000);
+        uploader.enqueue(second.getPath(), "audio/mp4", 2000);
+        uploader.enqueue(third.getPath(), "audio/mp4", 3000);
+        uploader.configure(config(new JSONObject().put("batchSize", 2).put("concurrency", 1)));
+
+        awaitStatus(ClipUploader.STATUS_UPLOADED, 3);
+        assertEquals(2, endpoint.bodies.size());
+        String batch = endpoint.bodies.get(0);
+        assertTrue(batch.contains("filename=\"" + first.getName() + "\""));
+        assertTrue(batch.contains("first-clip-bytes"));
+        assertTrue(batch.contains("second-clip-bytes"));
+        assertFalse(batch.contains("third-clip-bytes"));
+        assertTrue(batch.contains("Content-Type: audio/mp4"));
+        assertTrue(endpoint.contentTypes.get(0).startsWith("multipart/form-data; boundary="));
+        assertEquals("chunked", endpoint.transferEncodings.get(0));
+        assertEquals("Bearer token", endpoint.authorizations.get(0));
+        // Uploaded clips are deleted by default
+        assertFalse(first.exists());
+        assertFalse(third.exists());
+        JSONObject stats = uploader.stats();
+        assertEquals(0, stats.getInt("queued"));
+        assertEquals(3, stats.getInt("uploaded"));
+        assertEquals(2, stats.getInt("requests"));
+    }
+
+    @Test
+    public void deletionWaitsForTheOtherOwners() throws Exception {
+        ClipUploader uploader = newUploader();
+        uploader.configure(config(new JSONObject()));
+        File journaled = clip("still-journaled");
+        clipStore.pin(journaled.getPath(), ClipStore.Owner.JOURNAL);
+        uploader.enqueue(journaled.getPath(), "audio/mp4", 500);
+
+        awaitStatus(ClipUploader.STATUS_UPLOADED, 1);
+        // The outbox still points at it; deleted once its record is acknowledged
+        assertTrue(journaled.exists());
+        clipStore.unpin(journaled.getPath(), ClipStore.Owner.JOURNAL);
+        assertFalse(journaled.exists());
+    }
+
+    @Test
+    public void retriesServerErrorsWithBackoff() throws Exception {
+        endpoint.respond(503, 500);
+        ClipUploader uploader = newUploader();
+        uploader.configure(config(new JSONObject()));
+        uploader.enqueue(clip("retry-me").getPath(), "audio/mp4", 500);
+
+        Bundle uploaded = awaitStatus(ClipUploader.STATUS_UPLOADED, 1);
+        assertEquals(3, uploaded.getInt("attempts"));
+        assertEquals(3, endpoint.bodies.size());
+        assertEquals(2, uploader.stats().getInt("retries"));
+        assertEquals(2, count(ClipUploader.STATUS_RETRYING));
+    }
+
+    @Test
+    public void clientErrorsAreNotRetried() throws Exception {
+        endpoint.respond(400);
+        ClipUploader uploader = newUploader();
+        uploader.configure(config(new JSONObject()));
+        File rejected = clip("rejected");
+        uploader.enqueue(rejected.getPath(), "audio/mp4", 500);
+
+        Bundle failed = awaitStatus(ClipUploader.STATUS_FAILED, 1);
+        assertEquals(400, failed.getInt("httpStatus"));
+        assertEquals(1, endpoint.bodies.size());
+        // Left for JS and the cache budget rather than deleted
+        assertTrue(rejected.exists());
+        assertEquals(0, uploader.stats().getInt("queued"));
+    }
+
+    @Test
+    public void staysWithinTheConcurrencyLimit() throws Exception {
+        endpoint.delayMs = 150;
+        ClipUploader uploader = newUploader();
+        for (int i = 0; i < 6; i++) {
+            uploader.enqueue(clip("clip-" + i).getPath(), "audio/mp4", 100);
+        }
+        uploader.configure(config(new JSONObject().put("concurrency", 2)));
+
+        awaitStatus(ClipUploader.STATUS_UPLOADED, 6);
+        assertEquals(6, endpoint.bodies.size());
+        assertEquals(2, endpoint.maxInFlight.get());
+    }
+
+    @Test
+    public void resumesTheQueueAfterARestart() throws Exception {
+        endpoint.respond(503);
+        ClipUploader before = newUploader();
+        before.configure(config(new JSONObject().put("backoffMs", 300).put("maxBackoffMs", 300)));
+        File pending = clip("survives-a-restart");
+        before.enqueue(pending.getPath(), "audio/mp4", 700);
+        awaitStatus(ClipUploader.STATUS_RETRYING, 1);
+        before.shutdown();
+        assertTrue(before.clipPaths().contains(pending.getPath()));
+
+        // A new process: endpoint and queue come back from the state file
+        ClipUploader after = newUploader();
+        assertTrue(after.isEnabled());
+        assertTrue(after.clipPaths().contains(pending.getPath()));
+        Bundle uploaded = awaitStatus(ClipUploader.STATUS_UPLOADED, 1);
+        assertEquals(pending.getPath(), uploaded.getString("audioPath"));
+        assertEquals(2, uploaded.getInt("attempts"));
+        assertFalse(pending.exists());
+    }
+
+    private ClipUploader newUploader() {
+        ClipUploader uploader = new ClipUploader(stateFile, clipStore, event -> statuses.add(event.extras));
+        uploaders.add(uploader);
+        return uploader;
+    }
+
+    private ClipUploader.Config config(JSONObject options) throws Exception {
+        options.put("url", endpoint.url());
+        options.put("headers", new JSONObject().put("Authorization", "Bearer token"));
+        if (!options.has("backoffMs")) {
+            options.put("backoffMs", 20);
+        }
+        return ClipUploader.Config.fromJson(options);
+    }
+
+    private File clip(String content) throws IOException {
+        File file = clipStore.newClip(".m4a");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        clipStore.unpin(file.getPath(), ClipStore.Owner.RECORDER);  // Recorded; the uploader pins it on enqueue
+        return file;
+    }
+
+    /** Waits for the {@code n}th status of a kind and returns it. */
+    private Bundle awaitStatus(String status, int n) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (true) {
+            List<Bundle> matching = new ArrayList<>();
+            for (Bundle bundle : seen) {
+                if (status.equals(bundle.getString("status"))) {
+                    matching.add(bundle);
+                }
+            }
+            if (matching.size() >= n) {
+                return matching.get(n - 1);
+            }
+            long left = deadline - System.currentTimeMillis();
+            Bundle next = left > 0 ? statuses.poll(left, TimeUnit.MILLISECONDS) : null;
+            if (next == null) {
+                fail("Timed out waiting for " + n + " '" + status + "' statuses; saw " + seen.size() + " statuses");
+            }
+            seen.add(next);
+        }
+    }
+
+    private int count(String status) {
+        int count = 0;
+        for (Bundle bundle : seen) {
+            if (status.equals(bundle.getString("status"))) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,117 @@
+package com.itmikes.capacitorintents;
+
+import static org.junit.Assert.*;
+
+import android.os.Bundle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/** Snapshot diffing behind {@code deltaMode}. */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class DeltaTrackerTest {
+
+    private static final String BATTERY = "com.example.vendor.BATTERY_STATUS";
+    private static final String RADIO = "com.example.vendor.RADIO_STATUS";
+
+    @Test
+    public void firstEventPerActionIsFull() {
+        DeltaTracker tracker = new DeltaTracker(0);
+        assertTrue(tracker.diff(BATTERY, status(80, "good"), null, 0).isFull());
+        assertTrue(tracker.diff(RADIO, status(80, "good"), null, 0).isFull());
+        assertFalse(tracker.diff(BATTERY, status(79, "good"), null, 0).isFull());
+    }
+
+    @Test
+    public void unchangedEventsAreSuppressed() {
+        DeltaTracker tracker = new DeltaTracker(0);
+        tracker.diff(BATTERY, status(80, "good"), null, 0);
+        assertNull(tracker.diff(BATTERY, status(80, "good"), null, 1000));
+    }
+
+    @Test
+    public void onlyChangedAndAddedKeysAreSent() {
+        DeltaTracker tracker = new DeltaTracker(0);
+        tracker.diff(BATTERY, status(80, "good"), null, 0);
+        Bundle next = status(79, "good");
+        next.putBoolean("charging", true);
+        DeltaTracker.Delta delta = tracker.diff(BATTERY, next, null, 1000);
+        assertEquals(new LinkedHashSet<>(Arrays.asList("level", "charging")), delta.changed);
+        assertTrue(delta.removed.isEmpty());
+    }
+
+    @Test
+    public void removedKeysAreReported() {
+        DeltaTracker tracker = new DeltaTracker(0);
+        Bundle first = status(80, "good");
+        first.putString("alert", "overheat");
+        tracker.diff(BATTERY, first, null, 0);
+        DeltaTracker.Delta delta = tracker.diff(BATTERY, status(80, "good"), null, 1000);
+        assertTrue(delta.changed.isEmpty());
+        assertEquals(Collections.singletonList("alert"), delta.removed);
+    }
+
+    @Test
+    public void fullSyncRecursOnSchedule() {
+        DeltaTracker tracker = new DeltaTracker(10000);
+        tracker.diff(BATTERY, status(80, "good"), null, 0);
+        assertFalse(tracker.diff(BATTERY, status(79, "good"), null, 9999).isFull());
+        // Even an unchanged event is resent in full once the sync is due
+        assertTrue(tracker.diff(BATTERY, status(79, "good"), null, 10000).isFull());
+        assertNull(tracker.diff(BATTERY, status(79, "good"), null, 12000));
+    }
+
+    @Test
+    public void onlyIncludedKeysAreTracked() {
+        DeltaTracker tracker = new DeltaTracker(0);
+        LinkedHashSet<String> include = new LinkedHashSet<>(Collections.singletonList("health"));
+        tracker.diff(BATTERY, status(80, "good"), include, 0);
+        assertNull(tracker.diff(BATTERY, status(50, "good"), include, 1000));
+        assertEquals(Collections.singleton("health"), tracker.diff(BATTERY, status(50, "cold"), include, 2000).changed);
+    }
+
+    @Test
+    public void containersCompareByContent() {
+        DeltaTracker tracker = new DeltaTracker(0);
+        tracker.diff(RADIO, radio(new int[] { -70, -85 }, "LTE", new ArrayList<>(Arrays.asList("a", "b"))), null, 0);
+        assertNull(tracker.diff(RADIO, radio(new int[] { -70, -85 }, "LTE", new ArrayList<>(Arrays.asList("a", "b"))), null, 1000));
+        DeltaTracker.Delta delta = tracker.diff(RADIO, radio(new int[] { -70, -90 }, "NR", new ArrayList<>(Arrays.asList("a", "b"))), null, 2000);
+        assertEquals(new LinkedHashSet<>(Arrays.asList("rssi", "cell")), delta.changed);
+    }
+
+    @Test
+    public void statsCountWhatWasSkipped() throws Exception {
+        DeltaTracker tracker = new DeltaTracker(0);
+        tracker.diff(BATTERY, status(80, "good"), null, 0);
+        tracker.diff(BATTERY, status(80, "good"), null, 1);
+        tracker.diff(BATTERY, status(79, "good"), null, 2);
+        assertEquals(1, tracker.stats().getInt("fullEvents"));
+        assertEquals(1, tracker.stats().getInt("unchangedEvents"));
+        assertEquals(1, tracker.stats().getInt("deltaEvents"));
+        assertEquals(3, tracker.stats().getInt("keysSent"));
+        assertEquals(3, tracker.stats().getInt("keysSkipped"));
+    }
+
+    private static Bundle status(int level, String health) {
+        Bundle extras = new Bundle();
+        extras.putInt("level", level);
+        extras.putString("health", health);
+        return extras;
+    }
+
+    private static Bundle radio(int[] rssi, String technology, ArrayList<String> neighbours) {
+        Bundle cell = new Bundle();
+        cell.putString("technology", technology);
+        Bundle extras = new Bundle();
+        extras.putIntArray("rssi", rssi);
+        extras.putBundle("cell", cell);
+        extras.putStringArrayList("neighbours", neighbours);
+        return extras;
+    }
+}
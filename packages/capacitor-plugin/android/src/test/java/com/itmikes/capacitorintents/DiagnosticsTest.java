@@ -0,0 +1,86 @@
+package com.itmikes.capacitorintents;
+
+import static org.junit.Assert.*;
+
+import com.getcapacitor.JSObject;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/** The diagnostic event ring behind {@code getDiagnostics()}. */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class DiagnosticsTest {
+
+    @Before
+    public void setUp() {
+        Diagnostics.clear();
+    }
+
+    @After
+    public void tearDown() {
+        Diagnostics.setLevel("info", false);
+        Diagnostics.clear();
+    }
+
+    @Test
+    public void eventsAboveTheLevelAreNotRecorded() throws Exception {
+        Diagnostics.record(Diagnostics.Event.KEY_RECEIVED, 1, 0);
+        Diagnostics.record(Diagnostics.Event.CAPTURE_STARTED, 42, 1);
+        JSONArray events = Diagnostics.toJSObject(false).getJSONArray("events");
+        assertEquals(1, events.length());
+        assertEquals("captureStarted", events.getJSONObject(0).getString("event"));
+
+        assertTrue(Diagnostics.setLevel("debug", false));
+        Diagnostics.record(Diagnostics.Event.KEY_RECEIVED, 1, 0);
+        assertEquals(2, Diagnostics.toJSObject(false).getJSONArray("events").length());
+
+        assertTrue(Diagnostics.setLevel("off", false));
+        Diagnostics.record(Diagnostics.Event.RECEIVER_FAILED);
+        assertEquals(2, Diagnostics.toJSObject(false).getInt("recorded"));
+    }
+
+    @Test
+    public void argumentsAreExportedUnderTheirNames() throws Exception {
+        Diagnostics.record(Diagnostics.Event.CAPTURE_STARTED, 42, 1);
+        Diagnostics.record(Diagnostics.Event.NOT_RECORDING, 7, 9);
+        JSONArray events = Diagnostics.toJSObject(false).getJSONArray("events");
+        JSONObject started = events.getJSONObject(0);
+        assertEquals("info", started.getString("level"));
+        assertEquals(42, started.getLong("latencyMs"));
+        assertEquals(1, started.getLong("prewarmed"));
+        assertTrue(Math.abs(System.currentTimeMillis() - started.getLong("timestamp")) < 1000);
+        // Unused arguments are not exported
+        assertEquals(3, events.getJSONObject(1).length());
+    }
+
+    @Test
+    public void theRingKeepsTheNewestEvents() throws Exception {
+        int total = Diagnostics.CAPACITY + 10;
+        for (int i = 0; i < total; i++) {
+            Diagnostics.record(Diagnostics.Event.CLIP_READY, i, 0);
+        }
+        JSObject exported = Diagnostics.toJSObject(true);
+        JSONArray events = exported.getJSONArray("events");
+        assertEquals(Diagnostics.CAPACITY, events.length());
+        assertEquals(total, exported.getLong("recorded"));
+        assertEquals(10, exported.getLong("overwritten"));
+        assertEquals(10, events.getJSONObject(0).getLong("bytes"));
+        assertEquals(total - 1, events.getJSONObject(events.length() - 1).getLong("bytes"));
+
+        // Cleared by the export
+        assertEquals(0, Diagnostics.toJSObject(false).getJSONArray("events").length());
+    }
+
+    @Test
+    public void unknownLevelsAreRejected() throws Exception {
+        assertFalse(Diagnostics.setLevel("verbose", false));
+        assertFalse(Diagnostics.setLevel(null, false));
+        assertEquals("info", Diagnostics.toJSObject(false).getString("level"));
+    }
+}
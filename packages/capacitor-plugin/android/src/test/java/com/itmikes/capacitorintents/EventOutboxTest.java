@@ -0,0 +1,238 @@
+package com.itmikes.capacitorintents;
+
+import static org.junit.Assert.*;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/** The PTT event journal: recovery on open, sequence numbers, clip pins and replay. */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class EventOutboxTest {
+
+    private static final long TIMEOUT_MS = 10000;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File clipDir;
+    private File journal;
+    private ClipStore clipStore;
+    private final List<EventOutbox> outboxes = new ArrayList<>();
+
+    /** One {@link EventOutbox.BatchSink#deliver} call. */
+    private static final class Batch {
+
+        final JSArray events;
+        final boolean done;
+
+        Batch(JSArray events, boolean done) {
+            this.events = events;
+            this.done = done;
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        clipDir = temp.newFolder("clips");
+        journal = new File(temp.getRoot(), "outbox.journal");
+        clipStore = new ClipStore(clipDir);
+    }
+
+    @After
+    public void tearDown() {
+        for (EventOutbox outbox : outboxes) {
+            outbox.shutdown();
+        }
+    }
+
+    @Test
+    public void tornTailIsCutOffOnOpen() throws Exception {
+        EventOutbox before = newOutbox();
+        for (int i = 0; i < 3; i++) {
+            before.append(event(i, null));
+        }
+        before.shutdown();
+        long complete = journal.length();
+
+        // A crash in the middle of writing the fourth record
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(journal, true))) {
+            out.writeInt(64);
+            out.writeLong(4);
+            out.write(new byte[10]);
+        }
+
+        EventOutbox after = newOutbox();
+        assertEquals(complete, journal.length());
+        assertEquals(3, after.size());
+        // Appended past the cut, so it is readable rather than stuck behind the torn record
+        assertEquals(4, after.append(event(3, null)));
+        assertEquals(List.of(1L, 2L, 3L, 4L), seqs(replay(after, 100)));
+    }
+
+    @Test
+    public void seqsContinueAcrossCompactionAndReopen() throws Exception {
+        EventOutbox first = newOutbox();
+        for (int i = 0; i < 3; i++) {
+            first.append(event(i, null));
+        }
+        acknowledge(first, 2);
+        assertEquals(1, first.size());
+        first.shutdown();
+
+        EventOutbox second = newOutbox();
+        assertEquals(1, second.size());
+        assertEquals(4, second.append(event(3, null)));
+        assertEquals(List.of(3L, 4L), seqs(replay(second, 100)));
+
+        // Once everything is acknowledged only the header's first sequence number is left
+        acknowledge(second, 4);
+        second.shutdown();
+        EventOutbox third = newOutbox();
+        assertEquals(0, third.size());
+        assertEquals(5, third.append(event(4, null)));
+    }
+
+    @Test
+    public void acknowledgingUnpinsJournaledClips() throws Exception {
+        File acked = recordedClip();
+        File kept = recordedClip();
+        EventOutbox outbox = newOutbox();
+        long ackedSeq = outbox.append(event(0, acked));
+        outbox.append(event(1, kept));
+        clipStore.unpin(acked.getPath(), ClipStore.Owner.RECORDER);
+        clipStore.unpin(kept.getPath(), ClipStore.Owner.RECORDER);
+
+        clipStore.setBudget(Long.MAX_VALUE, 0);
+        assertTrue(acked.exists());
+        assertTrue(kept.exists());
+
+        acknowledge(outbox, ackedSeq);
+        assertFalse(acked.exists());
+        assertTrue(kept.exists());
+    }
+
+    @Test
+    public void journaledClipsStayPinnedAcrossARestart() throws Exception {
+        File clip = recordedClip();
+        EventOutbox before = newOutbox();
+        long seq = before.append(event(0, clip));
+        clipStore.unpin(clip.getPath(), ClipStore.Owner.RECORDER);
+        before.shutdown();
+
+        // A new process: a fresh store that only learns about the clip from the journal
+        clipStore = new ClipStore(clipDir);
+        EventOutbox after = newOutbox();
+        clipStore.sweepOrphans(temp.newFolder("cache"));
+        clipStore.setBudget(Long.MAX_VALUE, 0);
+        assertTrue(clip.exists());
+
+        acknowledge(after, seq);
+        assertFalse(clip.exists());
+    }
+
+    @Test
+    public void replayStreamsInBatches() throws Exception {
+        EventOutbox outbox = newOutbox();
+        for (int i = 0; i < 5; i++) {
+            outbox.append(event(i, null));
+        }
+
+        // Not flushed yet; replay writes them out first
+        List<Batch> batches = replay(outbox, 2);
+        assertEquals(3, batches.size());
+        assertEquals(2, batches.get(0).events.length());
+        assertFalse(batches.get(0).done);
+        assertEquals(2, batches.get(1).events.length());
+        assertFalse(batches.get(1).done);
+        assertEquals(1, batches.get(2).events.length());
+        assertTrue(batches.get(2).done);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), seqs(batches));
+        JSONObject last = batches.get(2).events.getJSONObject(0).getJSONObject("event");
+        assertEquals(4, last.getJSONObject("extras").getInt("n"));
+        assertTrue(last.getBoolean("replayed"));
+
+        // A full last batch is followed by an empty final one
+        batches = replay(outbox, 5);
+        assertEquals(2, batches.size());
+        assertEquals(5, batches.get(0).events.length());
+        assertEquals(0, batches.get(1).events.length());
+        assertTrue(batches.get(1).done);
+    }
+
+    private EventOutbox newOutbox() {
+        EventOutbox outbox = new EventOutbox(journal, clipStore);
+        outboxes.add(outbox);
+        return outbox;
+    }
+
+    /** A clip the recorder still holds, as when the service journals its event. */
+    private File recordedClip() throws IOException {
+        File clip = clipStore.newClip(".aac");
+        try (FileOutputStream out = new FileOutputStream(clip)) {
+            out.write(new byte[64]);
+        }
+        return clip;
+    }
+
+    private static JSObject event(int n, File clip) {
+        JSObject extras = new JSObject();
+        extras.put("n", n);
+        if (clip != null) {
+            extras.put("audioPath", clip.getPath());
+            extras.put("audioBase64", "AAAA");
+        }
+        JSObject event = new JSObject();
+        event.put("actionName", "com.itmikes.ptt.event.up");
+        event.put("extras", extras);
+        return event;
+    }
+
+    private static void acknowledge(EventOutbox outbox, long seq) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        outbox.acknowledge(seq, done::countDown);
+        assertTrue("Acknowledge timed out", done.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    }
+
+    private static List<Batch> replay(EventOutbox outbox, int batchSize) throws InterruptedException {
+        BlockingQueue<Batch> delivered = new LinkedBlockingQueue<>();
+        outbox.replay(batchSize, event -> event.put("replayed", true), (events, done) -> delivered.add(new Batch(events, done)));
+        List<Batch> batches = new ArrayList<>();
+        while (batches.isEmpty() || !batches.get(batches.size() - 1).done) {
+            Batch batch = delivered.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            assertNotNull("Replay timed out", batch);
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    private static List<Long> seqs(List<Batch> batches) throws JSONException {
+        List<Long> seqs = new ArrayList<>();
+        for (Batch batch : batches) {
+            for (int i = 0; i < batch.events.length(); i++) {
+                seqs.add(batch.events.getJSONObject(i).getLong("seq"));
+            }
+        }
+        return seqs;
+    }
+}
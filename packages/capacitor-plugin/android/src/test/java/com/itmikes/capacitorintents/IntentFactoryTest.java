@@ -0,0 +1,188 @@
+package com.itmikes.capacitorintents;
+
+import static org.junit.Assert.*;
+
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/** Outgoing intents built from the JS description used by {@code sendBroadcastIntents}. */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class IntentFactoryTest {
+
+    private static final String ACTION = "com.example.vendor.COMMAND";
+
+    @Test
+    public void inferredExtrasKeepTheirTypes() throws Exception {
+        JSONObject extras = new JSONObject()
+            .put("name", "scanner")
+            .put("enabled", true)
+            .put("count", 5)
+            .put("whole", 3.0)
+            .put("big", 1L << 40)
+            .put("ratio", 1.5)
+            .put("nothing", JSONObject.NULL)
+            .put("nested", new JSONObject().put("level", 2).put("inner", new JSONObject().put("id", "x")));
+        Bundle bundle = fromJson(spec().put("extras", extras)).getExtras();
+
+        assertEquals("scanner", bundle.get("name"));
+        assertEquals(Boolean.TRUE, bundle.get("enabled"));
+        assertEquals(Integer.valueOf(5), bundle.get("count"));
+        assertEquals(Integer.valueOf(3), bundle.get("whole"));
+        assertEquals(Long.valueOf(1L << 40), bundle.get("big"));
+        assertEquals(Double.valueOf(1.5), bundle.get("ratio"));
+        assertTrue(bundle.containsKey("nothing"));
+        assertNull(bundle.get("nothing"));
+        Bundle nested = bundle.getBundle("nested");
+        assertEquals(2, nested.getInt("level"));
+        assertEquals("x", nested.getBundle("inner").getString("id"));
+    }
+
+    @Test
+    public void inferredArraysTakeTheWidestElementType() throws Exception {
+        JSONObject extras = new JSONObject()
+            .put("strings", new JSONArray().put("a").put("b"))
+            .put("booleans", new JSONArray().put(true).put(false))
+            .put("ints", new JSONArray().put(1).put(2.0))
+            .put("longs", new JSONArray().put(1).put(1L << 40))
+            .put("doubles", new JSONArray().put(1).put(0.5))
+            .put("empty", new JSONArray())
+            .put("mixed", new JSONArray().put(1).put("a"));
+        Bundle bundle = fromJson(spec().put("extras", extras)).getExtras();
+
+        assertArrayEquals(new String[] { "a", "b" }, bundle.getStringArray("strings"));
+        assertArrayEquals(new boolean[] { true, false }, bundle.getBooleanArray("booleans"));
+        assertArrayEquals(new int[] { 1, 2 }, bundle.getIntArray("ints"));
+        assertArrayEquals(new long[] { 1, 1L << 40 }, bundle.getLongArray("longs"));
+        assertArrayEquals(new double[] { 1, 0.5 }, bundle.getDoubleArray("doubles"), 0);
+        assertArrayEquals(new String[0], bundle.getStringArray("empty"));
+        assertEquals("[1,\"a\"]", bundle.getString("mixed"));
+    }
+
+    @Test
+    public void extraTypesOverrideTheGuess() throws Exception {
+        JSONObject extras = new JSONObject()
+            .put("small", 7)
+            .put("ratio", 0.25)
+            .put("code", 42)
+            .put("config", new JSONObject().put("mode", "fast"))
+            .put("settings", new JSONObject().put("volume", 3))
+            .put("levels", new JSONArray().put(1).put(2))
+            .put("weights", new JSONArray().put(0.5).put(1))
+            .put("labels", new JSONArray().put(1).put("two"))
+            .put("guessed", 9);
+        JSONObject types = new JSONObject()
+            .put("small", "long")
+            .put("ratio", "float")
+            .put("code", "string")
+            .put("config", "json")
+            .put("settings", "bundle")
+            .put("levels", "long[]")
+            .put("weights", "float[]")
+            .put("labels", "string[]")
+            .put("guessed", JSONObject.NULL);
+        Bundle bundle = fromJson(spec().put("extras", extras).put("extraTypes", types)).getExtras();
+
+        assertEquals(Long.valueOf(7), bundle.get("small"));
+        assertEquals(Float.valueOf(0.25f), bundle.get("ratio"));
+        assertEquals("42", bundle.get("code"));
+        assertEquals("{\"mode\":\"fast\"}", bundle.get("config"));
+        assertEquals(3, bundle.getBundle("settings").getInt("volume"));
+        assertArrayEquals(new long[] { 1, 2 }, bundle.getLongArray("levels"));
+        assertArrayEquals(new float[] { 0.5f, 1f }, bundle.getFloatArray("weights"), 0);
+        assertArrayEquals(new String[] { "1", "two" }, bundle.getStringArray("labels"));
+        // A null type falls back to the guess
+        assertEquals(Integer.valueOf(9), bundle.get("guessed"));
+    }
+
+    @Test
+    public void unknownExtraTypesAreRejected() throws Exception {
+        assertRejected(spec().put("extras", new JSONObject().put("a", 1)).put("extraTypes", new JSONObject().put("a", "short")));
+        assertRejected(spec().put("extras", new JSONObject().put("a", new JSONArray())).put("extraTypes", new JSONObject().put("a", "char[]")));
+    }
+
+    @Test
+    public void targetingFieldsAndFlags() throws Exception {
+        JSONObject spec = spec()
+            .put("package", "com.example.app")
+            .put("component", "com.example.app/.CommandReceiver")
+            .put("categories", new JSONArray().put("com.example.CATEGORY"))
+            .put("data", "content://com.example/items/1")
+            .put("type", "text/plain")
+            .put("flags", Intent.FLAG_RECEIVER_FOREGROUND);
+        Intent intent = fromJson(spec);
+
+        assertEquals(ACTION, intent.getAction());
+        assertEquals("com.example.app", intent.getPackage());
+        assertEquals("com.example.app.CommandReceiver", intent.getComponent().getClassName());
+        assertTrue(intent.hasCategory("com.example.CATEGORY"));
+        // setData and setType would each clear the other
+        assertEquals(Uri.parse("content://com.example/items/1"), intent.getData());
+        assertEquals("text/plain", intent.getType());
+        assertTrue((intent.getFlags() & Intent.FLAG_RECEIVER_FOREGROUND) != 0);
+
+        assertEquals("text/plain", fromJson(spec().put("type", "text/plain")).getType());
+        assertEquals(Uri.parse("file:///sdcard/a"), fromJson(spec().put("data", "file:///sdcard/a")).getData());
+    }
+
+    @Test
+    public void explicitNullsLeaveTheIntentUntargeted() throws Exception {
+        JSONObject spec = spec()
+            .put("package", JSONObject.NULL)
+            .put("component", JSONObject.NULL)
+            .put("data", JSONObject.NULL)
+            .put("type", JSONObject.NULL)
+            .put("flags", JSONObject.NULL)
+            .put("extras", JSONObject.NULL);
+        Intent intent = fromJson(spec);
+
+        assertNull(intent.getPackage());
+        assertNull(intent.getComponent());
+        assertNull(intent.getData());
+        assertNull(intent.getType());
+        assertEquals(0, intent.getFlags());
+        assertNull(intent.getExtras());
+    }
+
+    @Test
+    public void legacyValueIsOneJsonStringExtra() throws Exception {
+        JSONObject value = new JSONObject().put("command", "beep").put("times", 2);
+        Intent intent = fromJson(spec().put("value", value).put("extras", new JSONObject().put("id", 1)));
+
+        assertEquals(value.toString(), intent.getStringExtra("value"));
+        assertEquals(1, intent.getIntExtra("id", 0));
+    }
+
+    @Test
+    public void malformedSpecsAreRejected() throws Exception {
+        assertRejected(new JSONObject());
+        assertRejected(new JSONObject().put("action", ""));
+        assertRejected(new JSONObject().put("action", JSONObject.NULL));
+        assertRejected(spec().put("component", "no-slash"));
+    }
+
+    private static JSONObject spec() throws JSONException {
+        return new JSONObject().put("action", ACTION);
+    }
+
+    private static Intent fromJson(JSONObject spec) throws JSONException {
+        return IntentFactory.fromJson(spec);
+    }
+
+    private static void assertRejected(JSONObject spec) {
+        try {
+            IntentFactory.fromJson(spec);
+            fail("Accepted " + spec);
+        } catch (JSONException expected) {
+            // Rejected
+        }
+    }
+}
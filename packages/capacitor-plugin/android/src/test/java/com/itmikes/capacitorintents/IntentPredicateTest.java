@@ -0,0 +1,192 @@
+package com.itmikes.capacitorintents;
+
+import static org.junit.Assert.*;
+
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import com.getcapacitor.JSArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/** The {@code match} conditions of {@code registerBroadcastReceiver}. */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class IntentPredicateTest {
+
+    /** Counts how often the extras Bundle is copied out of the intent. */
+    private static final class CountingExtras implements IntentPredicate.Extras {
+
+        final Intent intent;
+        int copies;
+
+        CountingExtras(Intent intent) {
+            this.intent = intent;
+        }
+
+        @Override
+        public Bundle extras() {
+            copies++;
+            return intent.getExtras();
+        }
+    }
+
+    @Test
+    public void equalsComparesNumbersByValueAndTheRestByText() throws Exception {
+        Intent intent = new Intent("com.example.SCAN")
+            .putExtra("count", 5)
+            .putExtra("big", 5L)
+            .putExtra("ratio", 0.5f)
+            .putExtra("code", "5")
+            .putExtra("on", true);
+
+        assertTrue(matches(intent, extra("count").put("equals", 5)));
+        assertTrue(matches(intent, extra("big").put("equals", 5.0)));
+        assertTrue(matches(intent, extra("ratio").put("equals", 0.5)));
+        assertTrue(matches(intent, extra("code").put("equals", 5)));
+        assertTrue(matches(intent, extra("on").put("equals", true)));
+        assertFalse(matches(intent, extra("on").put("equals", "true")));
+        assertFalse(matches(intent, extra("count").put("equals", 6)));
+        assertFalse(matches(intent, extra("missing").put("equals", 5)));
+    }
+
+    @Test
+    public void inMatchesAnyListedValue() throws Exception {
+        Intent intent = new Intent("com.example.SCAN").putExtra("symbology", "EAN13").putExtra("count", 2);
+
+        assertTrue(matches(intent, extra("symbology").put("in", new JSArray().put("QR").put("EAN13"))));
+        assertTrue(matches(intent, extra("count").put("in", new JSArray().put(1).put(2L))));
+        assertFalse(matches(intent, extra("symbology").put("in", new JSArray().put("QR"))));
+        assertFalse(matches(intent, extra("symbology").put("in", new JSArray())));
+    }
+
+    @Test
+    public void existsTestsPresence() throws Exception {
+        Intent intent = new Intent("com.example.SCAN").putExtra("barcode", "123").putExtra("empty", (String) null);
+
+        assertTrue(matches(intent, extra("barcode").put("exists", true)));
+        assertFalse(matches(intent, extra("barcode").put("exists", false)));
+        assertTrue(matches(intent, extra("missing").put("exists", false)));
+        // A null extra counts as absent
+        assertFalse(matches(intent, extra("empty").put("exists", true)));
+        // No extras at all
+        assertTrue(matches(new Intent("com.example.SCAN"), extra("barcode").put("exists", false)));
+    }
+
+    @Test
+    public void prefixOnlyMatchesStrings() throws Exception {
+        Intent intent = new Intent("com.example.SCAN").putExtra("barcode", "978-3-16").putExtra("number", 978);
+
+        assertTrue(matches(intent, extra("barcode").put("prefix", "978")));
+        assertFalse(matches(intent, extra("barcode").put("prefix", "979")));
+        assertFalse(matches(intent, extra("number").put("prefix", "97")));
+    }
+
+    @Test
+    public void categoriesMatchWhenAnyCategoryDoes() throws Exception {
+        Intent intent = new Intent("com.example.SCAN").addCategory("com.example.A").addCategory("com.example.B");
+        Intent none = new Intent("com.example.SCAN");
+
+        assertTrue(matches(intent, field("category").put("equals", "com.example.B")));
+        assertTrue(matches(intent, field("category").put("prefix", "com.example.")));
+        assertFalse(matches(intent, field("category").put("equals", "com.example.C")));
+        assertTrue(matches(intent, field("category").put("exists", true)));
+        assertTrue(matches(none, field("category").put("exists", false)));
+        assertFalse(matches(none, field("category").put("in", new JSArray().put("com.example.A"))));
+    }
+
+    @Test
+    public void schemeTypeAndPackageFields() throws Exception {
+        Intent intent = new Intent("com.example.SCAN")
+            .setDataAndType(Uri.parse("content://com.example/items/1"), "image/png")
+            .setPackage("com.example.app");
+
+        assertTrue(matches(intent, field("scheme").put("equals", "content")));
+        assertFalse(matches(intent, field("scheme").put("equals", "file")));
+        assertTrue(matches(intent, field("type").put("prefix", "image/")));
+        assertTrue(matches(intent, field("package").put("in", new JSArray().put("com.example.app"))));
+        assertFalse(matches(new Intent("com.example.SCAN"), field("package").put("exists", true)));
+    }
+
+    @Test
+    public void everyConditionMustHold() throws Exception {
+        Intent intent = new Intent("com.example.SCAN").setPackage("com.example.app").putExtra("count", 1);
+        IntentPredicate both = predicate(extra("count").put("equals", 1), field("package").put("equals", "com.example.app"));
+        IntentPredicate oneFails = predicate(extra("count").put("equals", 1), field("package").put("equals", "com.other"));
+
+        assertTrue(both.matches(intent, intent::getExtras));
+        assertFalse(oneFails.matches(intent, intent::getExtras));
+    }
+
+    @Test
+    public void extrasAreCopiedAtMostOncePerMatch() throws Exception {
+        Intent intent = new Intent("com.example.SCAN").setPackage("com.example.app").putExtra("a", 1).putExtra("b", "x");
+        IntentPredicate extras = predicate(
+            extra("a").put("equals", 1),
+            extra("b").put("prefix", "x"),
+            extra("c").put("exists", false)
+        );
+        IntentPredicate fieldsOnly = predicate(field("package").put("exists", true));
+
+        CountingExtras source = new CountingExtras(intent);
+        assertTrue(extras.matches(intent, source));
+        assertEquals(1, source.copies);
+
+        source = new CountingExtras(intent);
+        assertTrue(fieldsOnly.matches(intent, source));
+        assertEquals(0, source.copies);
+    }
+
+    @Test
+    public void pttEventsOnlyHaveExtras() throws Exception {
+        PttEvent event = new PttEvent("com.itmikes.ptt.event.down", 0);
+        event.extras.putString("deviceId", "headset-1");
+
+        assertTrue(predicate(extra("deviceId").put("equals", "headset-1")).matches(event));
+        assertFalse(predicate(field("package").put("exists", true)).matches(event));
+        assertTrue(predicate(field("category").put("exists", false)).matches(event));
+    }
+
+    @Test
+    public void malformedConditionsAreRejected() throws Exception {
+        assertNull(IntentPredicate.fromJson(null));
+        assertNull(IntentPredicate.fromJson(new JSArray()));
+        assertRejected(new JSONObject().put("field", "action").put("equals", "x"));
+        assertRejected(new JSONObject().put("extra", JSONObject.NULL).put("equals", "x"));
+        assertRejected(extra("a"));
+        assertRejected(extra("a").put("equals", 1).put("prefix", "1"));
+    }
+
+    private static JSONObject extra(String key) throws JSONException {
+        return new JSONObject().put("extra", key);
+    }
+
+    private static JSONObject field(String name) throws JSONException {
+        return new JSONObject().put("field", name);
+    }
+
+    private static IntentPredicate predicate(JSONObject... conditions) throws JSONException {
+        JSArray match = new JSArray();
+        for (JSONObject condition : conditions) {
+            match.put(condition);
+        }
+        return IntentPredicate.fromJson(match);
+    }
+
+    private static boolean matches(Intent intent, JSONObject condition) throws JSONException {
+        return predicate(condition).matches(intent, intent::getExtras);
+    }
+
+    private static void assertRejected(JSONObject condition) {
+        try {
+            predicate(condition);
+            fail("Accepted " + condition);
+        } catch (JSONException expected) {
+            // Rejected
+        }
+    }
+}
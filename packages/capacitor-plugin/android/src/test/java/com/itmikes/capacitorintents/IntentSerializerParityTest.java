@@ -0,0 +1,130 @@
+package com.itmikes.capacitorintents;
+
+import static org.junit.Assert.*;
+
+import android.content.ClipData;
+import android.content.ComponentName;
+import android.content.ContentResolver;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.webkit.MimeTypeMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+/** IntentSerializer's full payload is the pre-serializer {@code getIntentJson} output, key order included. */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class IntentSerializerParityTest {
+
+    private ContentResolver contentResolver;
+    private MimeTypeMap mimeTypeMap;
+    private IntentSerializer serializer;
+
+    @Before
+    public void setUp() {
+        contentResolver = RuntimeEnvironment.getApplication().getContentResolver();
+        mimeTypeMap = MimeTypeMap.getSingleton();
+        serializer = new IntentSerializer(contentResolver, mimeTypeMap);
+    }
+
+    @Test
+    public void noExtras() throws Exception {
+        assertSameJson(new Intent("com.example.vendor.SCAN"));
+        assertSameJson(new Intent());
+    }
+
+    @Test
+    public void scalarExtras() throws Exception {
+        Intent intent = new Intent("com.example.vendor.SCAN");
+        intent.putExtra("string", "0123456789012");
+        intent.putExtra("int", 42);
+        intent.putExtra("long", 1L << 40);
+        intent.putExtra("double", 2.5);
+        intent.putExtra("boolean", true);
+        // Stringified by both
+        intent.putExtra("byte", (byte) -3);
+        intent.putExtra("short", (short) 7);
+        intent.putExtra("char", 'x');
+        intent.putExtra("float", 1.25f);
+        intent.putExtra("uri", Uri.parse("content://com.example/items/1"));
+        intent.putExtra("nullString", (String) null);
+        assertSameJson(intent);
+    }
+
+    @Test
+    public void primitiveAndObjectArrays() throws Exception {
+        Intent intent = new Intent("com.example.vendor.SCAN");
+        intent.putExtra("bytes", new byte[] { 0, 1, -1, 127, -128 });
+        intent.putExtra("ints", new int[] { 1, -2, Integer.MAX_VALUE });
+        intent.putExtra("longs", new long[] { 0L, Long.MIN_VALUE });
+        intent.putExtra("doubles", new double[] { 0.5, -1e300 });
+        intent.putExtra("booleans", new boolean[] { true, false });
+        intent.putExtra("floats", new float[] { 0.1f, 3f });
+        intent.putExtra("shorts", new short[] { -1, 300 });
+        intent.putExtra("chars", new char[] { 'a', '\u00e9' });
+        intent.putExtra("strings", new String[] { "a", null, "c" });
+        intent.putExtra("empty", new int[0]);
+        intent.putIntegerArrayListExtra("intList", new ArrayList<>(Arrays.asList(1, 2, 3)));
+        intent.putStringArrayListExtra("stringList", new ArrayList<>(Arrays.asList("x", "y")));
+        assertSameJson(intent);
+    }
+
+    @Test
+    public void nestedBundlesAndArrays() throws Exception {
+        Bundle innermost = new Bundle();
+        innermost.putIntArray("levels", new int[] { 1, 2 });
+        innermost.putString("name", "deep");
+        Bundle inner = new Bundle();
+        inner.putBundle("innermost", innermost);
+        inner.putLong("at", 123L);
+        inner.putStringArray("tags", new String[] { "t1", "t2" });
+        Bundle first = new Bundle();
+        first.putString("id", "first");
+        Bundle second = new Bundle();
+        second.putBundle("child", inner);
+
+        Intent intent = new Intent("com.example.vendor.SCAN");
+        intent.putExtra("bundle", inner);
+        intent.putExtra("bundles", new Bundle[] { first, second });
+        intent.putExtra("matrix", new int[][] { { 1, 2 }, { 3 } });
+        intent.putExtra("emptyBundle", new Bundle());
+        assertSameJson(intent);
+    }
+
+    @Test
+    public void metadataAndClipData() throws Exception {
+        Intent intent = new Intent("com.example.vendor.SHARE");
+        intent.setDataAndType(Uri.parse("content://com.example/items/7"), "image/png");
+        intent.addCategory(Intent.CATEGORY_DEFAULT);
+        intent.addCategory("com.example.CATEGORY");
+        intent.setComponent(new ComponentName("com.example", "com.example.Receiver"));
+        intent.setPackage("com.example");
+        intent.addFlags(Intent.FLAG_INCLUDE_STOPPED_PACKAGES | Intent.FLAG_RECEIVER_FOREGROUND);
+        intent.putExtra("originalAction", "com.example.vendor.PTT_DOWN");
+
+        ClipData clipData = new ClipData(
+            "shared",
+            new String[] { "image/png", "text/plain" },
+            new ClipData.Item(Uri.parse("content://com.example/items/7"))
+        );
+        clipData.addItem(new ClipData.Item("plain text"));
+        clipData.addItem(new ClipData.Item("text", "<b>html</b>"));
+        clipData.addItem(new ClipData.Item(new Intent("com.example.vendor.NESTED")));
+        clipData.addItem(new ClipData.Item(Uri.parse("file:///sdcard/clip.aac")));
+        intent.setClipData(clipData);
+        assertSameJson(intent);
+    }
+
+    private void assertSameJson(Intent intent) throws Exception {
+        String expected = LegacyIntentJson.serialize(intent, contentResolver, mimeTypeMap).toString();
+        assertEquals(expected, serializer.serialize(intent).toString());
+        assertEquals(expected, serializer.serialize(intent, PayloadShape.FULL).toString());
+    }
+}
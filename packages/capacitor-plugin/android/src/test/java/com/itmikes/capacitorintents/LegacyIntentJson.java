@@ -0,0 +1,100 @@
+package com.itmikes.capacitorintents;
+
+import android.content.ClipData;
+import android.content.ContentResolver;
+import android.content.Intent;
+import android.os.Bundle;
+import android.webkit.MimeTypeMap;
+import com.getcapacitor.JSObject;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The reflective JSONObject path CapacitorIntents used before IntentSerializer, kept as the
+ * reference IntentSerializerParityTest compares against and the baseline of the serializer benchmark.
+ */
+final class LegacyIntentJson {
+
+    private LegacyIntentJson() {}
+
+    static JSObject serialize(Intent intent, ContentResolver cR, MimeTypeMap mime) throws JSONException {
+        JSONObject[] items = null;
+        ClipData clipData = intent.getClipData();
+        if (clipData != null) {
+            int clipItemCount = clipData.getItemCount();
+            items = new JSONObject[clipItemCount];
+            for (int i = 0; i < clipItemCount; i++) {
+                ClipData.Item item = clipData.getItemAt(i);
+                items[i] = new JSONObject();
+                items[i].put("htmlText", item.getHtmlText());
+                items[i].put("intent", item.getIntent());
+                items[i].put("text", item.getText());
+                items[i].put("uri", item.getUri());
+                if (item.getUri() != null) {
+                    String type = cR.getType(item.getUri());
+                    String extension = mime.getExtensionFromMimeType(cR.getType(item.getUri()));
+                    items[i].put("type", type);
+                    items[i].put("extension", extension);
+                }
+            }
+        }
+        JSONObject intentJSON = new JSONObject();
+        if (items != null) {
+            intentJSON.put("clipItems", new JSONArray(items));
+        }
+        intentJSON.put("type", intent.getType());
+        intentJSON.put("extras", toJsonValue(intent.getExtras()));
+        intentJSON.put("action", intent.getAction());
+        intentJSON.put("categories", intent.getCategories());
+        intentJSON.put("flags", intent.getFlags());
+        intentJSON.put("component", intent.getComponent());
+        intentJSON.put("data", intent.getData());
+        intentJSON.put("package", intent.getPackage());
+        intentJSON.put("pttType", intent.getStringExtra("originalAction"));
+
+        // JSObject.fromJSONObject: a second, shallow copy of the whole tree
+        JSObject copy = new JSObject();
+        for (String key : intentJSON.keySet()) {
+            copy.put(key, intentJSON.opt(key));
+        }
+        return copy;
+    }
+
+    private static Object toJsonValue(final Object value) throws JSONException {
+        if (value == null) {
+            return null;
+        } else if (value instanceof Bundle) {
+            final Bundle bundle = (Bundle) value;
+            final JSONObject result = new JSONObject();
+            for (final String key : bundle.keySet()) {
+                result.put(key, toJsonValue(bundle.get(key)));
+            }
+            return result;
+        } else if ((value.getClass().isArray())) {
+            final JSONArray result = new JSONArray();
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; ++i) {
+                result.put(i, toJsonValue(Array.get(value, i)));
+            }
+            return result;
+        } else if (value instanceof ArrayList<?>) {
+            final ArrayList<?> arrayList = (ArrayList<?>) value;
+            final JSONArray result = new JSONArray();
+            for (int i = 0; i < arrayList.size(); i++) result.put(toJsonValue(arrayList.get(i)));
+            return result;
+        } else if (
+            value instanceof String ||
+            value instanceof Boolean ||
+            value instanceof Integer ||
+            value instanceof Long ||
+            value instanceof Double
+        ) {
+            return value;
+        } else {
+            return String.valueOf(value);
+        }
+    }
+}
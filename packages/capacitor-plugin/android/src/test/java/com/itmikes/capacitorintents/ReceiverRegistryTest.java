@@ -0,0 +1,199 @@
+package com.itmikes.capacitorintents;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import android.webkit.MimeTypeMap;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+/** Subscription fan-out and the shared receivers behind {@code registerBroadcastReceiver}. */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class ReceiverRegistryTest {
+
+    private static final String SCAN = "com.example.vendor.SCAN";
+    private static final String BATTERY = "com.example.vendor.BATTERY";
+    private static final String PTT_DOWN = "com.itmikes.ptt.event.down";
+
+    private Context context;
+    private Looper looper;
+    private ReceiverRegistry registry;
+    private long sent;
+
+    /** Records the {@code seq} extra of every event it is resolved with. */
+    private static final class RecordingCall extends PluginCall {
+
+        final List<Long> seqs = new ArrayList<>();
+
+        RecordingCall(String callbackId) {
+            super(null, "CapacitorIntentsPlugin", callbackId, "registerBroadcastReceiver", new JSObject());
+        }
+
+        @Override
+        public void resolve(JSObject data) {
+            try {
+                seqs.add(data.getJSONObject("extras").getLong("seq"));
+            } catch (JSONException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        looper = Looper.getMainLooper();
+        registry = new ReceiverRegistry(
+            context,
+            new Handler(looper),
+            new IntentSerializer(context.getContentResolver(), MimeTypeMap.getSingleton()),
+            event -> {}
+        );
+    }
+
+    @After
+    public void tearDown() {
+        registry.clear();
+        PttEventBus.setBroadcastTransport(false);
+    }
+
+    @Test
+    public void eachIntentReachesEverySubscriberOfItsAction() {
+        RecordingCall first = subscribe("first", SCAN);
+        RecordingCall second = subscribe("second", SCAN, BATTERY);
+        RecordingCall battery = subscribe("battery", BATTERY);
+
+        long scan = send(SCAN);
+        long level = send(BATTERY);
+        shadowOf(looper).idle();
+
+        assertEquals(List.of(scan), first.seqs);
+        assertEquals(List.of(scan, level), second.seqs);
+        assertEquals(List.of(level), battery.seqs);
+    }
+
+    @Test
+    public void removingAnUnknownIdChangesNothing() {
+        RecordingCall call = subscribe("known", SCAN);
+
+        assertNull(registry.remove("unknown"));
+        long seq = send(SCAN);
+        shadowOf(looper).idle();
+
+        assertEquals(List.of(seq), call.seqs);
+        assertEquals(1, registry.stats().length());
+    }
+
+    @Test
+    public void removedSubscriptionsStopReceiving() {
+        RecordingCall kept = subscribe("kept", SCAN);
+        RecordingCall removed = subscribe("removed", SCAN);
+
+        assertNotNull(registry.remove("removed"));
+        long seq = send(SCAN);
+        shadowOf(looper).idle();
+
+        assertEquals(List.of(seq), kept.seqs);
+        assertTrue(removed.seqs.isEmpty());
+    }
+
+    @Test
+    public void queuedIntentsSurviveSubscriptionChanges() {
+        RecordingCall scanner = subscribe("scanner", SCAN);
+
+        // Queued on the receiver thread while other subscriptions come and go
+        long before = send(SCAN);
+        RecordingCall battery = subscribe("battery", BATTERY);
+        long during = send(SCAN);
+        assertNotNull(registry.remove("battery"));
+        long after = send(SCAN);
+        shadowOf(looper).idle();
+
+        assertEquals(List.of(before, during, after), scanner.seqs);
+        assertTrue(battery.seqs.isEmpty());
+    }
+
+    @Test
+    public void resubscribingNeitherLosesNorDuplicatesEvents() {
+        RecordingCall scanner = subscribe("scanner", SCAN);
+        RecordingCall battery = subscribe("battery", BATTERY);
+        assertNotNull(registry.remove("battery"));
+
+        // BATTERY is watched again, and SCAN gains a subscriber, while a SCAN intent is queued
+        long queued = send(SCAN);
+        RecordingCall again = subscribe("again", BATTERY, SCAN);
+        long level = send(BATTERY);
+        long scan = send(SCAN);
+        shadowOf(looper).idle();
+
+        assertEquals(List.of(queued, scan), scanner.seqs);
+        // Fan-out goes to whoever subscribes when the intent is handled
+        assertEquals(List.of(queued, level, scan), again.seqs);
+        assertTrue(battery.seqs.isEmpty());
+    }
+
+    @Test
+    public void pttBroadcastsPassOnlyWhileTheServiceSendsThem() {
+        RecordingCall call = subscribe("ptt", PTT_DOWN);
+
+        send(PTT_DOWN);
+        shadowOf(looper).idle();
+        assertTrue(call.seqs.isEmpty());
+
+        // Set by the running service, not by this plugin instance, so it survives a WebView reload
+        PttEventBus.setBroadcastTransport(true);
+        long seq = send(PTT_DOWN);
+        shadowOf(looper).idle();
+        assertEquals(List.of(seq), call.seqs);
+    }
+
+    @Test
+    public void nothingIsDeliveredAfterClear() {
+        RecordingCall call = subscribe("scanner", SCAN);
+
+        registry.clear();
+        send(SCAN);
+        shadowOf(looper).idle();
+
+        assertTrue(call.seqs.isEmpty());
+        assertEquals(0, registry.stats().length());
+    }
+
+    private RecordingCall subscribe(String id, String... actions) {
+        RecordingCall call = new RecordingCall(id);
+        registry.add(
+            new BroadcastSubscription(
+                call,
+                Arrays.asList(actions),
+                PayloadShape.FULL,
+                null,
+                new SubscriptionQueue<>(64, SubscriptionQueue.Overflow.DROP_OLDEST, null),
+                null,
+                null
+            )
+        );
+        return call;
+    }
+
+    private long send(String action) {
+        long seq = sent++;
+        context.sendBroadcast(new Intent(action).putExtra("seq", seq));
+        return seq;
+    }
+}
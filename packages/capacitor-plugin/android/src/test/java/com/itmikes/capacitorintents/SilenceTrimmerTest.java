@@ -0,0 +1,258 @@
+package com.itmikes.capacitorintents;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Voice-activity trimming on 16 kHz PCM: generated tones, noise and hiss, plus the speech-over-room
+ * fixtures in {@code src/test/resources/pcm} (see the README there for their boundaries).
+ */
+public class SilenceTrimmerTest {
+
+    private static final int RATE = 16000;
+    private static final int HANGOVER_MS = 200;
+    private static final int MAX_HOLD_MS = 2000;
+    private static final int READ_BYTES = 2048;
+    // One VAD frame either way
+    private static final long TOLERANCE_MS = VoiceActivityDetector.FRAME_MS * 2;
+
+    @Test
+    public void pureSilenceIsDroppedEntirely() throws IOException {
+        SilenceTrimmer trimmer = trimmer(new Pcm().silence(3000).bytes());
+        assertEquals(0, drain(trimmer).length);
+        assertEquals(3000, trimmer.originalMs());
+        assertEquals(0, trimmer.keptMs());
+    }
+
+    @Test
+    public void leadingAndTrailingSilenceAreTrimmedToTheHangover() throws IOException {
+        SilenceTrimmer trimmer = trimmer(new Pcm().silence(1500).voice(1000).silence(1500).bytes());
+        byte[] kept = drain(trimmer);
+        assertEquals(4000, trimmer.originalMs());
+        assertEquals(1000 + 2 * HANGOVER_MS, trimmer.keptMs(), TOLERANCE_MS);
+        assertEquals(kept.length * 1000L / (RATE * 2), trimmer.keptMs());
+    }
+
+    @Test
+    public void pausesInsideTheClipAreKept() throws IOException {
+        SilenceTrimmer trimmer = trimmer(new Pcm().silence(500).voice(800).silence(1000).voice(800).silence(2000).bytes());
+        drain(trimmer);
+        assertEquals(800 + 1000 + 800 + 2 * HANGOVER_MS, trimmer.keptMs(), TOLERANCE_MS);
+    }
+
+    @Test
+    public void pausesLongerThanTheHoldBudgetAreReleasedNotDropped() throws IOException {
+        SilenceTrimmer trimmer = trimmer(new Pcm().voice(500).silence(MAX_HOLD_MS + 1000).voice(500).bytes());
+        drain(trimmer);
+        assertEquals(500 + MAX_HOLD_MS + 1000 + 500, trimmer.keptMs(), TOLERANCE_MS);
+    }
+
+    @Test
+    public void steadyHissIsNotSpeech() throws IOException {
+        SilenceTrimmer trimmer = trimmer(new Pcm().silence(300).hiss(2000).silence(300).bytes());
+        drain(trimmer);
+        assertEquals(0, trimmer.keptMs());
+    }
+
+    @Test
+    public void speechAtTheVeryStartIsKept() throws IOException {
+        SilenceTrimmer trimmer = trimmer(new Pcm().voice(1000).silence(1000).bytes());
+        drain(trimmer);
+        assertEquals(1000 + HANGOVER_MS, trimmer.keptMs(), TOLERANCE_MS);
+    }
+
+    @Test
+    public void roomNoiseFixtureIsDroppedEntirely() throws IOException {
+        SilenceTrimmer trimmer = trimmer(fixture("room_noise.pcm"));
+        assertEquals(0, drain(trimmer).length);
+        assertEquals(2000, trimmer.originalMs());
+    }
+
+    @Test
+    public void speechFixtureIsCutAtItsBoundaries() throws IOException {
+        byte[] input = fixture("speech_in_room.pcm");
+        byte[] kept = drain(trimmer(input));
+        // Nothing inside is dropped, so the output is one slice of the input
+        long startMs = sliceStartMs(input, kept);
+        long endMs = startMs + ms(kept.length);
+        assertEquals(800 - HANGOVER_MS, startMs, TOLERANCE_MS);
+        assertEquals(2010 + HANGOVER_MS, endMs, TOLERANCE_MS);
+    }
+
+    @Test
+    public void pauseBetweenFixturePhrasesIsKept() throws IOException {
+        byte[] input = fixture("two_phrases.pcm");
+        byte[] kept = drain(trimmer(input));
+        long startMs = sliceStartMs(input, kept);
+        long endMs = startMs + ms(kept.length);
+        assertEquals(500 - HANGOVER_MS, startMs, TOLERANCE_MS);
+        assertEquals(3430 + HANGOVER_MS, endMs, TOLERANCE_MS);
+    }
+
+    @Test
+    public void releasedAudioIsPaidOutOneReadAtATime() throws IOException {
+        // The 900 ms pause is held back, then released when the second phrase starts
+        CountingSource source = new CountingSource(fixture("two_phrases.pcm"));
+        VoiceActivityDetector detector = new VoiceActivityDetector(RATE, VoiceActivityDetector.DEFAULT_THRESHOLD_DB);
+        SilenceTrimmer trimmer = new SilenceTrimmer(source, detector, RATE, HANGOVER_MS, MAX_HOLD_MS, READ_BYTES);
+        byte[] buffer = new byte[64 * 1024];
+        int calls = 0;
+        int read;
+        while ((read = trimmer.read(buffer, 0, buffer.length)) >= 0) {
+            calls++;
+            assertTrue("one read passed on " + read + " bytes", read <= READ_BYTES);
+            // The microphone is read on every call until it runs dry, never stalled by a release
+            if (!source.ended) {
+                assertEquals(calls, source.reads);
+            }
+        }
+    }
+
+    private static SilenceTrimmer trimmer(byte[] pcm) {
+        VoiceActivityDetector detector = new VoiceActivityDetector(RATE, VoiceActivityDetector.DEFAULT_THRESHOLD_DB);
+        return new SilenceTrimmer(new ArraySource(pcm), detector, RATE, HANGOVER_MS, MAX_HOLD_MS, READ_BYTES);
+    }
+
+    private static byte[] drain(SilenceTrimmer trimmer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[READ_BYTES];
+        int read;
+        while ((read = trimmer.read(buffer, 0, buffer.length)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] fixture(String name) throws IOException {
+        try (InputStream in = SilenceTrimmerTest.class.getResourceAsStream("/pcm/" + name)) {
+            assertNotNull("missing fixture " + name, in);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /** Where {@code slice} sits in {@code input}, in ms; fails unless it is one contiguous piece of it. */
+    private static long sliceStartMs(byte[] input, byte[] slice) {
+        assertTrue(slice.length > 0);
+        for (int offset = 0; offset + slice.length <= input.length; offset += 2) {
+            if (Arrays.equals(input, offset, offset + slice.length, slice, 0, slice.length)) {
+                return ms(offset);
+            }
+        }
+        fail("Output is not a contiguous slice of the input");
+        return -1;
+    }
+
+    private static long ms(int bytes) {
+        return bytes * 1000L / (RATE * 2);
+    }
+
+    /** Counts how often the trimmer pulls from the microphone. */
+    private static final class CountingSource implements PttAudioStreamer.PcmSource {
+
+        private final ArraySource delegate;
+        int reads;
+        boolean ended;
+
+        CountingSource(byte[] pcm) {
+            delegate = new ArraySource(pcm);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            int read = delegate.read(buffer, offset, length);
+            if (read < 0) {
+                ended = true;
+            } else {
+                reads++;
+            }
+            return read;
+        }
+    }
+
+    /** Plays a fixture back in capture-sized reads, then reports end of stream. */
+    private static final class ArraySource implements PttAudioStreamer.PcmSource {
+
+        private final byte[] pcm;
+        private int position;
+
+        ArraySource(byte[] pcm) {
+            this.pcm = pcm;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (position == pcm.length) {
+                return -1;
+            }
+            int count = Math.min(length, pcm.length - position);
+            System.arraycopy(pcm, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+    }
+
+    /** Fixture builder for 16-bit little-endian mono PCM. */
+    private static final class Pcm {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final Random random = new Random(7);
+        private long sampleIndex;
+
+        /** Quiet room: Gaussian noise around -65 dBFS. */
+        Pcm silence(int ms) {
+            for (int i = 0; i < samples(ms); i++) {
+                sample(random.nextGaussian() * 20);
+            }
+            return this;
+        }
+
+        /** Voiced speech stand-in: a 140 Hz harmonic series at about -20 dBFS with a syllable-rate envelope. */
+        Pcm voice(int ms) {
+            for (int i = 0; i < samples(ms); i++) {
+                double t = (double) sampleIndex / RATE;
+                double envelope = 0.6 + 0.4 * Math.sin(2 * Math.PI * 4 * t);
+                double value = 0;
+                for (int harmonic = 1; harmonic <= 5; harmonic++) {
+                    value += Math.sin(2 * Math.PI * 140 * harmonic * t) / harmonic;
+                }
+                sample(value * 2500 * envelope + random.nextGaussian() * 20);
+            }
+            return this;
+        }
+
+        /** Broadband hiss at about -35 dBFS. */
+        Pcm hiss(int ms) {
+            for (int i = 0; i < samples(ms); i++) {
+                sample(random.nextGaussian() * 600);
+            }
+            return this;
+        }
+
+        byte[] bytes() {
+            return out.toByteArray();
+        }
+
+        private int samples(int ms) {
+            return RATE * ms / 1000;
+        }
+
+        private void sample(double value) {
+            int s = (int) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value)));
+            out.write(s & 0xFF);
+            out.write((s >> 8) & 0xFF);
+            sampleIndex++;
+        }
+    }
+}
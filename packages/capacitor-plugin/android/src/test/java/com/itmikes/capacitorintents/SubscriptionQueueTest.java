@@ -0,0 +1,76 @@
+package com.itmikes.capacitorintents;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/** Overflow policies of the per-subscription queue. */
+public class SubscriptionQueueTest {
+
+    @Test
+    public void firstOfferAsksForADrain() {
+        SubscriptionQueue<Integer> queue = new SubscriptionQueue<>(4, SubscriptionQueue.Overflow.DROP_OLDEST, null);
+        assertTrue(queue.offer(1, null));
+        assertFalse(queue.offer(2, null));
+        queue.poll();
+        queue.poll();
+        assertTrue(queue.offer(3, null));
+    }
+
+    @Test
+    public void dropOldestKeepsTheNewestEvents() {
+        SubscriptionQueue<Integer> queue = new SubscriptionQueue<>(3, SubscriptionQueue.Overflow.DROP_OLDEST, null);
+        for (int i = 0; i < 10; i++) {
+            queue.offer(i, null);
+        }
+        assertEquals(3, queue.size());
+        assertEquals(Integer.valueOf(7), queue.poll());
+        assertEquals(Integer.valueOf(8), queue.poll());
+        assertEquals(Integer.valueOf(9), queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void dropNewestKeepsTheOldestEvents() {
+        SubscriptionQueue<Integer> queue = new SubscriptionQueue<>(3, SubscriptionQueue.Overflow.DROP_NEWEST, null);
+        for (int i = 0; i < 10; i++) {
+            queue.offer(i, null);
+        }
+        assertEquals(3, queue.size());
+        assertEquals(Integer.valueOf(0), queue.poll());
+        assertEquals(Integer.valueOf(1), queue.poll());
+        assertEquals(Integer.valueOf(2), queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void conflateLatestReplacesInPlacePerKey() {
+        SubscriptionQueue<String> queue = new SubscriptionQueue<>(10, SubscriptionQueue.Overflow.CONFLATE_LATEST, "deviceId");
+        assertTrue(queue.conflates());
+        queue.offer("a1", "a");
+        queue.offer("b1", "b");
+        queue.offer("a2", "a");
+        queue.offer("a3", "a");
+        assertEquals(2, queue.size());
+        // a keeps its original position but carries the latest value
+        assertEquals("a3", queue.poll());
+        assertEquals("b1", queue.poll());
+        // Once delivered, the key starts a new slot
+        assertTrue(queue.offer("a4", "a"));
+        assertEquals("a4", queue.poll());
+    }
+
+    @Test
+    public void conflateLatestStillHonoursCapacity() {
+        SubscriptionQueue<Integer> queue = new SubscriptionQueue<>(2, SubscriptionQueue.Overflow.CONFLATE_LATEST, null);
+        queue.offer(1, "x");
+        queue.offer(2, "y");
+        queue.offer(3, "z");
+        assertEquals(2, queue.size());
+        assertEquals(Integer.valueOf(2), queue.poll());
+        // The evicted key no longer conflates into anything
+        queue.offer(4, "x");
+        assertEquals(Integer.valueOf(3), queue.poll());
+        assertEquals(Integer.valueOf(4), queue.poll());
+    }
+}
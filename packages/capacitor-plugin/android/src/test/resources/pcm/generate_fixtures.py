@@ -0,0 +1,176 @@
+#!/usr/bin/env python3
+"""Writes the PCM fixtures for SilenceTrimmerTest: 16 kHz, 16-bit little-endian, mono, headerless.
+
+Speech is formant-synthesized (glottal pulses through F1-F3 resonators, with pitch contour, jitter,
+shimmer, fricatives and stop bursts) over modelled room noise (pink noise, mains hum, HVAC rumble).
+Seeded, so the output is byte-for-byte reproducible. Speech boundaries are listed in README.md.
+
+    python3 generate_fixtures.py
+"""
+import math
+import os
+import random
+import struct
+
+RATE = 16000
+OUT = os.path.dirname(os.path.abspath(__file__))
+
+VOWELS = {  # F1, F2, F3 in Hz
+    'a': (730, 1090, 2440),
+    'e': (530, 1840, 2480),
+    'i': (270, 2290, 3010),
+    'o': (570, 840, 2410),
+    'u': (300, 870, 2240),
+}
+
+
+class Resonator:
+    """Klatt-style second-order resonator."""
+
+    def __init__(self, freq, bandwidth):
+        r = math.exp(-math.pi * bandwidth / RATE)
+        self.b = 2 * r * math.cos(2 * math.pi * freq / RATE)
+        self.c = -r * r
+        self.a = 1 - self.b - self.c
+        self.y1 = 0.0
+        self.y2 = 0.0
+
+    def __call__(self, x):
+        y = self.a * x + self.b * self.y1 + self.c * self.y2
+        self.y2, self.y1 = self.y1, y
+        return y
+
+
+class Room:
+    """Quiet office: pink noise around -60 dBFS, 50 Hz hum and a slowly breathing HVAC rumble."""
+
+    def __init__(self, seed):
+        self.random = random.Random(seed)
+        self.pink = [0.0] * 7
+        self.rumble = Resonator(90, 60)
+        self.n = 0
+
+    def sample(self):
+        white = self.random.gauss(0, 1)
+        p = self.pink  # Paul Kellet's pink filter
+        p[0] = 0.99886 * p[0] + white * 0.0555179
+        p[1] = 0.99332 * p[1] + white * 0.0750759
+        p[2] = 0.96900 * p[2] + white * 0.1538520
+        p[3] = 0.86650 * p[3] + white * 0.3104856
+        p[4] = 0.55000 * p[4] + white * 0.5329522
+        p[5] = -0.7616 * p[5] - white * 0.0168980
+        pink = sum(p) + p[6] + white * 0.5362
+        p[6] = white * 0.115926
+        t = self.n / RATE
+        self.n += 1
+        hum = 6 * math.sin(2 * math.pi * 50 * t) + 3 * math.sin(2 * math.pi * 150 * t)
+        breathing = 1 + 0.3 * math.sin(2 * math.pi * 0.4 * t)
+        return pink * 9 + hum + self.rumble(self.random.gauss(0, 1)) * 25 * breathing
+
+
+class Voice:
+    """Male-range talker at roughly -20 dBFS."""
+
+    def __init__(self, seed):
+        self.random = random.Random(seed)
+        self.phase = 0.0
+
+    def vowel(self, name, ms, f0_start, f0_end, level=1.0):
+        f1, f2, f3 = VOWELS[name]
+        chain = [Resonator(f1, 80), Resonator(f2, 100), Resonator(f3, 140)]
+        n = RATE * ms // 1000
+        out = []
+        for i in range(n):
+            f0 = (f0_start + (f0_end - f0_start) * i / n) * (1 + self.random.gauss(0, 0.01))
+            self.phase += f0 / RATE
+            if self.phase >= 1:
+                self.phase -= 1
+            # Rosenberg glottal pulse: open for 40% of the period, then closed
+            open_q = 0.4
+            g = 0.0
+            if self.phase < open_q:
+                x = self.phase / open_q
+                g = 3 * x * x - 2 * x * x * x
+            x = g - 0.3
+            for r in chain:
+                x = r(x)
+            edge = min(1.0, i / (0.03 * RATE), (n - i) / (0.04 * RATE))
+            shimmer = 1 + self.random.gauss(0, 0.04)
+            out.append(x * 4000 * edge * shimmer * level)
+        return out
+
+    def fricative(self, ms, freq=5000, level=1.0):
+        chain = [Resonator(freq, 1500)]
+        n = RATE * ms // 1000
+        out = []
+        for i in range(n):
+            x = chain[0](self.random.gauss(0, 1))
+            edge = min(1.0, i / (0.015 * RATE), (n - i) / (0.015 * RATE))
+            out.append(x * 220 * edge * level)
+        return out
+
+    def stop(self, ms=60):
+        n = RATE * ms // 1000
+        closure = [0.0] * (n * 2 // 3)
+        burst = [self.random.gauss(0, 1) * 700 * math.exp(-i / 40) for i in range(n - len(closure))]
+        return closure + burst
+
+
+def word(voice, parts):
+    out = []
+    for part in parts:
+        out += part
+    return out
+
+
+def mix(room, speech_at_ms, total_ms):
+    """Room noise for total_ms with each (start_ms, samples) speech run added on top."""
+    n = RATE * total_ms // 1000
+    buffer = [room.sample() for _ in range(n)]
+    for start_ms, samples in speech_at_ms:
+        start = RATE * start_ms // 1000
+        for i, s in enumerate(samples):
+            buffer[start + i] += s
+    return buffer
+
+
+def write(name, samples):
+    with open(os.path.join(OUT, name), 'wb') as f:
+        for s in samples:
+            f.write(struct.pack('<h', max(-32768, min(32767, int(round(s))))))
+
+
+def phrase_one(voice):
+    # "passing over" - vowels carry the pitch contour, fricatives and a stop sit between them
+    return (voice.stop() + voice.vowel('a', 190, 118, 132) + voice.fricative(110)
+            + voice.vowel('i', 140, 132, 126) + voice.vowel('o', 210, 126, 120)
+            + voice.fricative(70, 3500, 0.6) + voice.vowel('e', 170, 120, 112)
+            + voice.vowel('a', 260, 112, 98))
+
+
+def phrase_two(voice):
+    # "copy that"
+    return (voice.stop() + voice.vowel('o', 180, 124, 130) + voice.stop(50)
+            + voice.vowel('i', 150, 130, 122) + [0.0] * (RATE * 80 // 1000)
+            + voice.fricative(60, 4200, 0.5) + voice.vowel('a', 240, 122, 100))
+
+
+def main():
+    write('room_noise.pcm', mix(Room(11), [], 2000))
+
+    voice = Voice(23)
+    one = phrase_one(voice)
+    print('speech_in_room: speech 800 ms to %d ms' % (800 + len(one) * 1000 // RATE))
+    write('speech_in_room.pcm', mix(Room(12), [(800, one)], 3200))
+
+    voice = Voice(31)
+    first = phrase_two(voice)
+    second_at = 500 + len(first) * 1000 // RATE + 900
+    second = phrase_one(voice)
+    print('two_phrases: %d-%d ms, %d-%d ms' % (
+        500, 500 + len(first) * 1000 // RATE, second_at, second_at + len(second) * 1000 // RATE))
+    write('two_phrases.pcm', mix(Room(13), [(500, first), (second_at, second)], second_at + len(second) * 1000 // RATE + 800))
+
+
+if __name__ == '__main__':
+    main()
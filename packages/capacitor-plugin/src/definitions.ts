@@ -1,14 +1,445 @@
+import type { PluginListenerHandle } from '@capacitor/core';
+
+export interface BroadcastReceiverOptions {
+  /** Intent actions to listen for; at least one is required. */
+  filters: string[];
+  /**
+   * Deliver intents in batches of up to this many events. When either batch option is set the
+   * callback receives `{ events: [...] }` instead of a single intent.
+   */
+  batchMaxEvents?: number;
+  /** Longest time (ms) the first buffered intent waits before its batch is delivered. Defaults to 100 when batching. */
+  batchMaxDelayMs?: number;
+  /** Only serialize these extras keys. An empty array omits `extras` entirely. */
+  includeExtras?: string[];
+  /** Include `clipItems`. Defaults to true. */
+  includeClipData?: boolean;
+  /** Include `type`, `categories`, `flags`, `component`, `data` and `package`. Defaults to true. */
+  includeMetadata?: boolean;
+  /** Nesting levels of Bundles / arrays kept below `extras`; deeper values are dropped. */
+  maxDepth?: number;
+  /** Arrays in extras are truncated to this many elements. */
+  maxArrayLength?: number;
+  /**
+   * Only deliver intents meeting all of these conditions. They are checked natively before the
+   * intent is serialized, so filtered-out broadcasts never cross the bridge.
+   */
+  match?: IntentMatch[];
+  /**
+   * Most intents waiting to be delivered to this subscription. Receiving only queues; intents are
+   * serialized as the queue drains, so ones dropped on overflow cost almost nothing. Defaults to 1000.
+   */
+  queueMax?: number;
+  /**
+   * What happens on a flood. `dropOldest` (default) and `dropNewest` pick what to discard once the
+   * queue is full. `conflateLatest` replaces a queued intent with a newer one for the same action
+   * (and the same `conflateKey` extra value), so only the latest state is delivered.
+   */
+  overflow?: 'dropOldest' | 'dropNewest' | 'conflateLatest';
+  /** Extras key that separates conflated intents of one action, e.g. a device or sensor id. */
+  conflateKey?: string;
+  /**
+   * For periodic status broadcasts. The first intent per action is delivered in full with
+   * `deltaSync: 'full'`. Later ones carry `deltaSync: 'delta'`, only the added or changed keys in
+   * `extras`, and the dropped keys in `removedExtras`. Intents that change nothing are not
+   * delivered. Values are compared natively, so unchanged keys are never serialized. Merge deltas
+   * into the last full event per `action`. Defaults to false.
+   */
+  deltaMode?: boolean;
+  /** With `deltaMode`, send the next intent of each action in full once this long (ms) has passed since the last full one. Defaults to 0 (first only). */
+  deltaFullSyncMs?: number;
+}
+
+export interface BroadcastReceiverStats {
+  id: string;
+  actions: string[];
+  capacity: number;
+  overflow: 'dropOldest' | 'dropNewest' | 'conflateLatest';
+  depth: number;
+  maxDepth: number;
+  received: number;
+  delivered: number;
+  dropped: number;
+  conflated: number;
+  /** With `deltaMode` only. `keysSkipped` counts unchanged extras that were not sent. */
+  delta?: {
+    fullSyncMs: number;
+    fullEvents: number;
+    deltaEvents: number;
+    unchangedEvents: number;
+    keysSent: number;
+    keysSkipped: number;
+  };
+}
+
+/**
+ * One condition on a received intent. Name the value with `extra` (an extras key) or `field`,
+ * then give exactly one operator. For `category` the condition holds if any category meets it.
+ * Numbers compare by value; other values by their string form.
+ */
+export interface IntentMatch {
+  extra?: string;
+  field?: 'category' | 'scheme' | 'type' | 'package';
+  equals?: string | number | boolean;
+  in?: (string | number | boolean)[];
+  /** True: the value must be present; false: it must be absent. */
+  exists?: boolean;
+  /** String values only. */
+  prefix?: string;
+}
+
+export interface PttServiceOptions {
+  /** Stream encoded audio chunks to `pttAudioChunk` listeners while PTT is held. Defaults to false. */
+  streaming?: boolean;
+  /** Size in bytes of each streamed chunk. Defaults to 512. */
+  streamChunkBytes?: number;
+  /**
+   * How finished clips are attached to the `com.itmikes.ptt.event.up` event.
+   * `base64` (default) inlines `audioBase64`; `reference` only sends `audioPath`, `audioUri`
+   * and `audioUrl` (fetchable from the WebView). Referenced clips must be freed with `releasePttClip`.
+   */
+  clipDelivery?: 'base64' | 'reference';
+  /**
+   * Recorded clip format, always mono. The event's `mimeType` reports the result.
+   * - `default`: AAC in MP4 (`audio/mp4`, `.m4a`) at 16 kHz / 128 kbps, as before.
+   * - `voice`: AAC-LC in MP4 at 16 kHz / 24 kbps, about 5x smaller.
+   * - `opus`: Opus in Ogg (`audio/ogg`) at 16 kHz / 16 kbps on Android 10+, `voice` elsewhere.
+   *
+   * When `encoding`, `sampleRate` or `bitRate` is set, streaming uses the profile's rate and bitrate
+   * (AAC profiles only; `opus` streams as `voice`). Otherwise it streams at 16 kHz / 32 kbps.
+   */
+  encoding?: 'default' | 'voice' | 'opus';
+  /** Overrides the profile's sample rate (Hz). */
+  sampleRate?: number;
+  /** Overrides the profile's bitrate (bits per second). */
+  bitRate?: number;
+  /**
+   * Milliseconds of audio from before key-down to prepend to each clip (max 5000). Keeps the
+   * microphone open while the service runs, and clips are then encoded as ADTS AAC (`audio/aac`)
+   * like streaming. The down event reports the amount included as `preRollMs`. Defaults to 0 (off).
+   */
+  preRollMs?: number;
+  /**
+   * How often (ms) pre-roll capture wakes to read the microphone, 10-500. Larger values save power.
+   * Defaults to 40.
+   */
+  preRollReadMs?: number;
+  /** Clip cache size budget in bytes; least recently used clips beyond it are deleted. Defaults to 50 MB. */
+  clipCacheMaxBytes?: number;
+  /** Clip cache count budget. Defaults to 200. */
+  clipCacheMaxCount?: number;
+  /**
+   * Hardware PTT action presets to listen for. Defaults to `['android']`
+   * (`android.intent.action.PTT.down` / `.up`) when neither this nor `pttActions` is given.
+   */
+  pttVendors?: ('android' | 'ulefone' | 'sonim' | 'runbo' | 'generic' | 'zello')[];
+  /** Additional hardware down/up action pairs. */
+  pttActions?: { down: string; up: string }[];
+  /**
+   * A release is held back this long (ms) and cancelled if the key goes down again, so key
+   * chatter stays one press. Repeated downs and unpaired ups are always ignored. Defaults to 20.
+   */
+  debounceMs?: number;
+  /** Shortest press (ms); an earlier release is deferred until it is reached. Defaults to 0. */
+  minPressMs?: number;
+  /**
+   * Longest clip (ms). A press held longer is treated as a stuck key and released with
+   * `autoReleased: true` and no `originalAction` on the up event. Also bounds the wake lock.
+   * Defaults to 120000.
+   */
+  maxClipMs?: number;
+  /**
+   * Cuts long presses into clips of this length (ms, at least 1000). Each finished clip is sent as a
+   * `com.itmikes.ptt.event.segment` event (`pressId`, `segmentIndex`) while recording continues; the
+   * up event carries the last one plus `segments` and `pressDurationMs`. Keeps memory flat however
+   * long the key is held. Needs API 26+ with the MP4 encodings, or streaming / pre-roll capture.
+   * MP4 segments are cut by size at the encoder bitrate, so their length is approximate.
+   * Defaults to 0 (one clip per press).
+   */
+  segmentMs?: number;
+  /**
+   * Trim leading and trailing silence on the device with a voice-activity detector. Records
+   * through the AAC (`audio/aac`) capture path. The up event adds `originalDurationMs` and
+   * `trimmedDurationMs`. Pauses inside the clip are kept. Defaults to false.
+   */
+  trimSilence?: boolean;
+  /** Silence kept before the first and after the last speech (ms). Defaults to 300. */
+  vadHangoverMs?: number;
+  /** Longest pause held back as possible trailing silence; longer pauses are kept. Bounds memory. Defaults to 3000. */
+  vadMaxHoldMs?: number;
+  /** Frames quieter than this (dBFS) are never speech. Defaults to -50. */
+  vadThresholdDb?: number;
+  /**
+   * How PTT events reach `registerBroadcastReceiver` subscribers and `pttAudioChunk` listeners.
+   * `local` (default) hands them over in-process; `com.itmikes.ptt.event.*` broadcasts from other
+   * apps are then ignored. `broadcast` sends global broadcasts as before, for native receivers
+   * outside the plugin.
+   */
+  eventTransport?: 'local' | 'broadcast';
+  /**
+   * Journal down/up events to disk while nothing in JS receives them (WebView gone, or no
+   * `registerBroadcastReceiver` for the action) so they can be fetched with `replayOutbox`.
+   * Journaled clips are delivered by reference. Requires `eventTransport: 'local'`. Defaults to false.
+   */
+  outbox?: boolean;
+  /**
+   * Upload finished clips natively, straight from the clip cache, instead of handing them to JS.
+   * Clips are then attached by reference with `uploading: true`, never as Base64, and progress
+   * arrives as `pttUploadStatus` events. The queue and endpoint are kept across restarts.
+   * Omit to stop uploading new clips; queued ones wait until an endpoint is set again.
+   */
+  upload?: PttUploadOptions;
+}
+
+export interface PttUploadOptions {
+  /** Receives a `multipart/form-data` POST with one file part per clip. */
+  url: string;
+  /** Sent with every request, e.g. `Authorization`. Stored on the device with the queue. */
+  headers?: { [name: string]: string };
+  /** Form field name of the clip parts. Defaults to `clip`. */
+  fieldName?: string;
+  /** Clips per request, 1-50. Defaults to 1. */
+  batchSize?: number;
+  /** Requests in flight at once, 1-4. Defaults to 2. */
+  concurrency?: number;
+  /** Attempts per clip before it is reported `failed`. Defaults to 10. */
+  maxAttempts?: number;
+  /** First retry delay (ms); doubles per attempt with jitter. `Retry-After` is honoured. Defaults to 2000. */
+  backoffMs?: number;
+  /** Longest retry delay (ms). Defaults to 300000. */
+  maxBackoffMs?: number;
+  /** Delete clips once uploaded; otherwise they are left to the cache budget. Defaults to true. */
+  deleteAfterUpload?: boolean;
+}
+
+/**
+ * Network errors, 408, 429 and 5xx responses are retried; other responses fail the clip at once.
+ * An interrupted request is sent again in full; clip file names are unique, so the server can
+ * drop duplicates.
+ */
+export interface PttUploadStatus {
+  status: 'queued' | 'uploading' | 'uploaded' | 'retrying' | 'failed';
+  /** Matches `audioPath` on the event that carried the clip. */
+  audioPath: string;
+  fileName: string;
+  /** Attempts finished so far. */
+  attempts: number;
+  /** Set on `uploading`: the attempt now being made. */
+  attempt?: number;
+  httpStatus?: number;
+  /** Set on `uploaded`. */
+  bytes?: number;
+  error?: string;
+  /** Set on `retrying`. */
+  retryInMs?: number;
+  /** Clips still waiting, including this one unless it has left the queue. */
+  queued: number;
+}
+
+export interface PttUploadStats {
+  /** False when `startPttService` was last called without `upload`. */
+  enabled: boolean;
+  queued: number;
+  /** Requests in flight. */
+  active: number;
+  requests: number;
+  uploaded: number;
+  uploadedBytes: number;
+  retries: number;
+  failed: number;
+  clips: { audioPath: string; attempts: number; uploading: boolean; nextAttemptAt: number }[];
+}
+
+export interface OutboxBatch {
+  /** Journaled events in order; `event` has the same shape as a `registerBroadcastReceiver` callback. */
+  events: { seq: number; event: { [key: string]: any } }[];
+  /** True for the last batch of the replay. */
+  done: boolean;
+}
+
+export interface PttAudioChunk {
+  /** Identifies the transmission; equal for every chunk of one PTT press. */
+  streamId: number;
+  /** Zero-based chunk index within the stream. */
+  sequence: number;
+  /** Wall-clock capture time (ms) of the first byte in the chunk. */
+  timestamp: number;
+  /** True for the final chunk of the stream, which may be shorter or empty. */
+  last: boolean;
+  /** MIME type of the concatenated stream (`audio/aac`, ADTS framed). */
+  mimeType: string;
+  /** Base64 encoded chunk bytes. */
+  data: string;
+}
+
+export interface PttClipStats {
+  /** Clips currently on disk. */
+  count: number;
+  bytes: number;
+  maxCount: number;
+  maxBytes: number;
+  /** Clips deleted to stay within budget. */
+  evictedCount: number;
+  evictedBytes: number;
+  /** Leftover clips from a previous crash or kill, deleted when the service starts. */
+  sweptCount: number;
+  sweptBytes: number;
+  /** Clips deleted through `releasePttClip`. */
+  releasedCount: number;
+}
+
+export interface PttLatencyStats {
+  count: number;
+  meanMs: number;
+  p50Ms: number;
+  p95Ms: number;
+  p99Ms: number;
+  maxMs: number;
+}
+
+export interface PttMetrics {
+  /** Latencies measured natively with a monotonic clock, from the moment the key event is received. */
+  stages: {
+    pressToCapture: PttLatencyStats;
+    /** Streaming capture only. */
+    pressToFirstAudio: PttLatencyStats;
+    releaseToStop: PttLatencyStats;
+    clipEncode: PttLatencyStats;
+    broadcastSend: PttLatencyStats;
+    keyToBroadcast: PttLatencyStats;
+    keyToJs: PttLatencyStats;
+  };
+}
+
+export interface PttPowerStats {
+  serviceUptimeMs: number;
+  wakeLockAcquisitions: number;
+  wakeLockHeldMs: number;
+  longestWakeLockMs: number;
+  wakeLockHeld: boolean;
+  /** Time the microphone was capturing for a press; pre-roll listening is not included. */
+  micOpenMs: number;
+  focusRequests: number;
+  focusDenied: number;
+  /** Presses closed by `maxClipMs` because no key-up arrived. */
+  stuckKeyReleases: number;
+  /** Battery charge drawn since the service started, in µAh. Absent where the fuel gauge does not report it. */
+  batteryDrainUah?: number;
+}
+
+export type DiagnosticLevel = 'off' | 'error' | 'warn' | 'info' | 'debug';
+
+export interface DiagnosticEvent {
+  /** Wall-clock milliseconds, derived from the monotonic stamp taken when the event was recorded. */
+  timestamp: number;
+  level: Exclude<DiagnosticLevel, 'off'>;
+  /** e.g. `keyReceived`, `captureStarted`, `clipReady`, `uploadFailed`. */
+  event: string;
+  /**
+   * Event-specific numbers, e.g. `latencyMs` and `prewarmed` on `captureStarted`. Flags are 1 or 0;
+   * `state` on `keyReceived` is 0 idle, 1 arming, 2 recording, 3 finalising.
+   */
+  [arg: string]: any;
+}
+
+export interface Diagnostics {
+  level: DiagnosticLevel;
+  logcat: boolean;
+  /** Events kept; older ones are overwritten. */
+  capacity: number;
+  /** Events recorded since start or the last clear. */
+  recorded: number;
+  overwritten: number;
+  /** Oldest first. */
+  events: DiagnosticEvent[];
+}
+
+export type IntentExtraType =
+  | 'string'
+  | 'int'
+  | 'long'
+  | 'float'
+  | 'double'
+  | 'boolean'
+  | 'bundle'
+  | 'json'
+  | 'string[]'
+  | 'int[]'
+  | 'long[]'
+  | 'float[]'
+  | 'double[]'
+  | 'boolean[]';
+
+export interface OutgoingIntent {
+  action: string;
+  /**
+   * Sent as typed extras. Whole numbers become int (or long beyond int range), other numbers
+   * double; arrays become typed arrays, objects nested Bundles. Use `extraTypes` to override.
+   */
+  extras?: { [key: string]: any };
+  /** Per-key type for `extras`, e.g. `{ level: 'float', ids: 'long[]' }`. `json` sends the value's JSON text. */
+  extraTypes?: { [key: string]: IntentExtraType };
+  /** Legacy form: sent as one `value` string extra holding the object's JSON, like `sendBroadcastIntent`. */
+  value?: { [key: string]: any };
+  /** Restricts delivery to one app. */
+  package?: string;
+  /** Explicit receiver as `package/class` (a leading `.` on the class is relative to the package). */
+  component?: string;
+  categories?: string[];
+  data?: string;
+  type?: string;
+  flags?: number;
+}
+
 export interface CapacitorIntentsPlugin {
   registerBroadcastReceiver(
-    options: { filters: string[] },
+    options: BroadcastReceiverOptions,
     callback: (data: { [key: string]: any }) => void
   ): Promise<string>;
 
   unregisterBroadcastReceiver(options: { id: string }): Promise<void>;
 
+  /** Queue depth and drop counters for every active `registerBroadcastReceiver` subscription. */
+  getBroadcastReceiverStats(): Promise<{ subscriptions: BroadcastReceiverStats[] }>;
+
   sendBroadcastIntent(options: { action: string; value: { [key: string]: any } }): Promise<void>;
+  /** Sends all intents for one bridge call. Rejects without sending any if an entry is malformed. */
+  sendBroadcastIntents(options: { intents: OutgoingIntent[] }): Promise<{ sent: number }>;
 
   // New methods for PTT service
-  startPttService(): Promise<void>;
+  startPttService(options?: PttServiceOptions): Promise<void>;
   stopPttService(): Promise<void>;
-}
\ No newline at end of file
+  /**
+   * Deletes a clip once JS has consumed it. `clipDelivery: 'reference'` clips are never evicted
+   * before this call (they still count toward the cache budget), so release them promptly;
+   * unreleased ones are only cleaned up when the service next starts. A clip still being uploaded
+   * or still held by the event outbox is deleted once those are done with it.
+   */
+  releasePttClip(options: { path: string }): Promise<{ released: boolean }>;
+  getPttClipStats(): Promise<PttClipStats>;
+  /** Streams the event outbox in batches of `batchSize` (default 50). Entries stay until acknowledged. */
+  replayOutbox(options: { batchSize?: number }, callback: (batch: OutboxBatch) => void): Promise<string>;
+  /** Removes every journaled event up to and including `seq` and compacts the journal. */
+  ackOutbox(options: { seq: number }): Promise<{ remaining: number }>;
+  /** Percentiles are bucket upper bounds, accurate to within 1/8 of the value. */
+  getPttMetrics(): Promise<PttMetrics>;
+  resetPttMetrics(): Promise<void>;
+  getPttPowerStats(): Promise<PttPowerStats>;
+  getPttUploadStats(): Promise<PttUploadStats>;
+  /** Native key, record and receive events from a fixed in-memory ring. `clear` empties it after reading. */
+  getDiagnostics(options?: { clear?: boolean }): Promise<Diagnostics>;
+  /**
+   * Events above `level` are not recorded (default `info`). `logcat` also prints each recorded
+   * event, which formats a string per event; leave it off outside development.
+   */
+  setDiagnosticLevel(options: { level: DiagnosticLevel; logcat?: boolean }): Promise<void>;
+
+  addListener(
+    eventName: 'pttAudioChunk',
+    listenerFunc: (chunk: PttAudioChunk) => void
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+  addListener(
+    eventName: 'pttUploadStatus',
+    listenerFunc: (status: PttUploadStatus) => void
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+}
@@ -1,10 +1,23 @@
 import { WebPlugin } from '@capacitor/core';
 
-import type { CapacitorIntentsPlugin } from './definitions';
+import type {
+  BroadcastReceiverOptions,
+  BroadcastReceiverStats,
+  CapacitorIntentsPlugin,
+  DiagnosticLevel,
+  Diagnostics,
+  OutboxBatch,
+  OutgoingIntent,
+  PttClipStats,
+  PttMetrics,
+  PttPowerStats,
+  PttServiceOptions,
+  PttUploadStats,
+} from './definitions';
 
 export class CapacitorIntentsPluginWeb extends WebPlugin implements CapacitorIntentsPlugin {
   async registerBroadcastReceiver(
-    _options: { filters: string[] },
+    _options: BroadcastReceiverOptions,
     _callback: (data: { [key: string]: any }) => void
   ): Promise<string> {
     throw new Error('Feature not implemented in web.');
@@ -14,15 +27,63 @@ export class CapacitorIntentsPluginWeb extends WebPlugin implements CapacitorInt
     throw new Error('Feature not implemented in web.');
   }
 
+  async getBroadcastReceiverStats(): Promise<{ subscriptions: BroadcastReceiverStats[] }> {
+    throw new Error('Feature not implemented in web.');
+  }
+
   async sendBroadcastIntent(_options: { action: string; value: { [key: string]: any } }): Promise<void> {
     throw new Error('Feature not implemented in web.');
   }
 
-  async startPttService(): Promise<void> {
+  async sendBroadcastIntents(_options: { intents: OutgoingIntent[] }): Promise<{ sent: number }> {
+    throw new Error('Feature not implemented in web.');
+  }
+
+  async startPttService(_options?: PttServiceOptions): Promise<void> {
     throw new Error('Feature not implemented in web.');
   }
 
   async stopPttService(): Promise<void> {
     throw new Error('Feature not implemented in web.');
   }
+
+  async releasePttClip(_options: { path: string }): Promise<{ released: boolean }> {
+    throw new Error('Feature not implemented in web.');
+  }
+
+  async getPttClipStats(): Promise<PttClipStats> {
+    throw new Error('Feature not implemented in web.');
+  }
+
+  async replayOutbox(_options: { batchSize?: number }, _callback: (batch: OutboxBatch) => void): Promise<string> {
+    throw new Error('Feature not implemented in web.');
+  }
+
+  async ackOutbox(_options: { seq: number }): Promise<{ remaining: number }> {
+    throw new Error('Feature not implemented in web.');
+  }
+
+  async getPttMetrics(): Promise<PttMetrics> {
+    throw new Error('Feature not implemented in web.');
+  }
+
+  async resetPttMetrics(): Promise<void> {
+    throw new Error('Feature not implemented in web.');
+  }
+
+  async getPttPowerStats(): Promise<PttPowerStats> {
+    throw new Error('Feature not implemented in web.');
+  }
+
+  async getPttUploadStats(): Promise<PttUploadStats> {
+    throw new Error('Feature not implemented in web.');
+  }
+
+  async getDiagnostics(_options?: { clear?: boolean }): Promise<Diagnostics> {
+    throw new Error('Feature not implemented in web.');
+  }
+
+  async setDiagnosticLevel(_options: { level: DiagnosticLevel; logcat?: boolean }): Promise<void> {
+    throw new Error('Feature not implemented in web.');
+  }
 }